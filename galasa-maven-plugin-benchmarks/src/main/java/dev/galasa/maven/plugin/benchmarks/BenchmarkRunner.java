@@ -0,0 +1,76 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the benchmarks with the JMH command line options, writing the results as JSON to
+ * target/benchmarks/galasa-maven-plugin-&lt;version&gt;.json unless -rf or -rff say otherwise, so
+ * the results of one release can be compared with the next.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+
+        // *** Enough iterations for a stable average without a run of many hours
+        if (!commandLine.getForkCount().hasValue()) {
+            options.forks(1);
+        }
+        if (!commandLine.getWarmupIterations().hasValue()) {
+            options.warmupIterations(3);
+        }
+        if (!commandLine.getWarmupTime().hasValue()) {
+            options.warmupTime(TimeValue.seconds(5));
+        }
+        if (!commandLine.getMeasurementIterations().hasValue()) {
+            options.measurementIterations(5);
+        }
+        if (!commandLine.getMeasurementTime().hasValue()) {
+            options.measurementTime(TimeValue.seconds(5));
+        }
+
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            File results = new File("target/benchmarks/galasa-maven-plugin-" + getVersion() + "."
+                    + commandLine.getResultFormat().orElse(ResultFormatType.JSON).toString().toLowerCase());
+            results.getParentFile().mkdirs();
+            options.result(results.getPath());
+        }
+
+        new Runner(options.build()).run();
+    }
+
+    private static String getVersion() throws Exception {
+        Properties properties = new Properties();
+        try (InputStream is = BenchmarkRunner.class.getResourceAsStream("/benchmarks.properties")) {
+            if (is != null) {
+                properties.load(is);
+            }
+        }
+        return properties.getProperty("version", "unknown");
+    }
+}
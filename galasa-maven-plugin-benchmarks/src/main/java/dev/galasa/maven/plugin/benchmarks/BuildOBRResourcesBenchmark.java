@@ -0,0 +1,91 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.galasa.maven.plugin.BuildOBRResources;
+import dev.galasa.maven.plugin.LargeProject;
+import dev.galasa.maven.plugin.LargeProjectGenerator;
+import dev.galasa.maven.plugin.MockMavenProjectHelper;
+
+/**
+ * The obrresources goal, writing the OBR of a set of bundles from scratch and again when nothing
+ * has changed since the last build
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BuildOBRResourcesBenchmark {
+
+    @Param({ "50", "500" })
+    public int              bundles;
+
+    @Param({ "65536" })
+    public int              bundleSize;
+
+    private SyntheticInputs inputs;
+    private LargeProject    project;
+    private File            fullOutput;
+    private File            incrementalOutput;
+
+    @Setup
+    public void setup() throws Exception {
+        inputs = new SyntheticInputs();
+        LargeProjectGenerator generator = inputs.getGenerator();
+        generator.setBundles(bundles);
+        generator.setTestClassesPerBundle(4);
+        generator.setOtherClassesPerBundle(4);
+        generator.setBundlePadding(bundleSize);
+        project = generator.generate();
+        fullOutput = inputs.getBase().resolve("full").toFile();
+        incrementalOutput = inputs.getBase().resolve("incremental").toFile();
+        build(incrementalOutput, true);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        inputs.close();
+    }
+
+    private MavenProject build(File output, boolean incremental) throws Exception {
+        MavenProject obr = project.createObrProject();
+
+        BuildOBRResources mojo = new BuildOBRResources();
+        mojo.setLog(SyntheticInputs.quietLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", obr);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectTargetDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "incremental", incremental);
+        ReflectionUtils.setVariableValueInObject(mojo, "buildIndex", true);
+        mojo.execute();
+        return obr;
+    }
+
+    @Benchmark
+    public MavenProject fullBuild() throws Exception {
+        return build(fullOutput, false);
+    }
+
+    @Benchmark
+    public MavenProject incrementalUnchanged() throws Exception {
+        return build(incrementalOutput, true);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.galasa.maven.plugin.BuildBundleTestCatalog;
+import dev.galasa.maven.plugin.LargeProject;
+import dev.galasa.maven.plugin.LargeProjectGenerator;
+import dev.galasa.maven.plugin.MockMavenProjectHelper;
+
+/**
+ * The bundletestcat goal, discovering the test classes of a bundle by scanning and loading its
+ * classes, one in four of them a test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BundleTestCatalogBenchmark {
+
+    @Param({ "100", "1000" })
+    public int              classes;
+
+    private SyntheticInputs inputs;
+    private LargeProject    project;
+
+    @Setup
+    public void setup() throws Exception {
+        inputs = new SyntheticInputs();
+        LargeProjectGenerator generator = inputs.getGenerator();
+        generator.setBundles(1);
+        generator.setPackagesPerBundle(10);
+        generator.setTestClassesPerBundle(classes / 4);
+        generator.setOtherClassesPerBundle(classes - classes / 4);
+        project = generator.generate();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        inputs.close();
+    }
+
+    @Benchmark
+    public MavenProject discoverTests() throws Exception {
+        MavenProject bundle = project.createBundleProject(0);
+        File target = new File(bundle.getBuild().getDirectory());
+
+        BuildBundleTestCatalog mojo = new BuildBundleTestCatalog();
+        mojo.setLog(SyntheticInputs.quietLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", bundle);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", target);
+        ReflectionUtils.setVariableValueInObject(mojo, "classpathElements", project.getClasspathElements(0));
+        mojo.execute();
+
+        if (!new File(target, "testcatalog.json").exists()) {
+            throw new IllegalStateException("No test catalog was built");
+        }
+        return bundle;
+    }
+}
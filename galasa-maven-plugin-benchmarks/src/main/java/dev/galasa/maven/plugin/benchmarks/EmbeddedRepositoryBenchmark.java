@@ -0,0 +1,104 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.galasa.maven.plugin.BuildObrEmbeddedRepository;
+import dev.galasa.maven.plugin.LargeProject;
+import dev.galasa.maven.plugin.LargeProjectGenerator;
+
+/**
+ * The obrembedded goal, copying the bundles of a tree of OBRs into an empty repository and into one
+ * already holding them
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class EmbeddedRepositoryBenchmark {
+
+    @Param({ "50", "500" })
+    public int              bundles;
+
+    @Param({ "65536" })
+    public int              bundleSize;
+
+    // Levels of OBRs, each OBR above the lowest referring to two below it
+    @Param({ "1", "3" })
+    public int              obrDepth;
+
+    // Threads copying the bundles, 0 is the number of processors
+    @Param({ "0" })
+    public int              copyThreads;
+
+    private SyntheticInputs inputs;
+    private LargeProject    project;
+    private File            emptyOutput;
+    private File            populatedOutput;
+
+    @Setup
+    public void setup() throws Exception {
+        inputs = new SyntheticInputs();
+        LargeProjectGenerator generator = inputs.getGenerator();
+        generator.setBundles(bundles);
+        generator.setTestClassesPerBundle(4);
+        generator.setOtherClassesPerBundle(4);
+        generator.setBundlePadding(bundleSize);
+        generator.setObrs(obrDepth, 2);
+        project = generator.generate();
+
+        emptyOutput = inputs.getBase().resolve("empty").toFile();
+        populatedOutput = inputs.getBase().resolve("populated").toFile();
+        build(populatedOutput);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTheRepository() throws Exception {
+        FileUtils.deleteDirectory(emptyOutput);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        inputs.close();
+    }
+
+    private MavenProject build(File output) throws Exception {
+        MavenProject obr = project.createObrProject();
+
+        BuildObrEmbeddedRepository mojo = new BuildObrEmbeddedRepository();
+        mojo.setLog(SyntheticInputs.quietLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", obr);
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "copyThreads", copyThreads);
+        mojo.execute();
+        return obr;
+    }
+
+    @Benchmark
+    public MavenProject emptyRepository() throws Exception {
+        return build(emptyOutput);
+    }
+
+    @Benchmark
+    public MavenProject unchangedRepository() throws Exception {
+        return build(populatedOutput);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.galasa.maven.plugin.FeatureFileScanner;
+
+/**
+ * The feature file scan on its own, over a tree in which a tenth of the files are features and a
+ * quarter of the tree is under target directories that the default excludes prune.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FeatureFileScanBenchmark {
+
+    private static final int    PER_DIR = 50;
+
+    @Param({ "100000" })
+    public int                  files;
+
+    // Threads scanning, 0 is the number of processors
+    @Param({ "1", "0" })
+    public int                  threads;
+
+    // False to scan the target directories as well, to show what the pruning saves
+    @Param({ "true", "false" })
+    public boolean              prune;
+
+    private Path                base;
+    private FeatureFileScanner  scanner;
+
+    @Setup
+    public void setup() throws IOException {
+        base = Files.createTempDirectory("galasa-benchmark");
+        byte[] content = "Feature: benchmark\n".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < files; i++) {
+            int directory = i / PER_DIR;
+            String top = (directory % 4 == 0) ? "target/generated" : "src/test/resources";
+            Path dir = base.resolve("module" + (directory % 20)).resolve(top).resolve("d" + (directory / 20));
+            if (i % PER_DIR == 0) {
+                Files.createDirectories(dir);
+            }
+            String name = (i % 10 == 0) ? "test" + i + ".feature" : "data" + i + ".txt";
+            Files.write(dir.resolve(name), content);
+        }
+
+        int scanThreads = (threads > 0) ? threads : Runtime.getRuntime().availableProcessors();
+        List<String> excludes = prune ? null : Collections.<String>emptyList();
+        scanner = new FeatureFileScanner(base, null, excludes, scanThreads);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(base.toFile());
+    }
+
+    @Benchmark
+    public List<Path> scan() throws IOException {
+        return scanner.scan();
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.galasa.maven.plugin.BuildGherkinTestCatalog;
+import dev.galasa.maven.plugin.BuildGherkinZip;
+import dev.galasa.maven.plugin.LargeProject;
+import dev.galasa.maven.plugin.LargeProjectGenerator;
+import dev.galasa.maven.plugin.MockMavenProjectHelper;
+
+/**
+ * The gherkin goals, scanning a project for feature files to build their test catalog and zip.
+ * The output directory is emptied before each invocation, so neither goal reuses a previous scan
+ * or zip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GherkinBenchmark {
+
+    @Param({ "200", "2000" })
+    public int              features;
+
+    @Param({ "10" })
+    public int              scenariosPerFeature;
+
+    // Levels of directories holding the feature files, ten directories at each
+    @Param({ "3" })
+    public int              directoryDepth;
+
+    // Threads scanning and zipping, 0 is the number of processors
+    @Param({ "0" })
+    public int              threads;
+
+    private SyntheticInputs inputs;
+    private LargeProject    project;
+    private File            output;
+
+    @Setup
+    public void setup() throws Exception {
+        inputs = new SyntheticInputs();
+        LargeProjectGenerator generator = inputs.getGenerator();
+        generator.setFeatures(features);
+        generator.setScenariosPerFeature(scenariosPerFeature);
+        generator.setFeatureDirectoryDepth(directoryDepth);
+        project = generator.generate();
+        output = inputs.getBase().resolve("target").toFile();
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTheOutput() throws Exception {
+        FileUtils.deleteDirectory(output);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        inputs.close();
+    }
+
+    private MavenProject execute(AbstractMojo mojo) throws Exception {
+        MavenProject features = project.createFeatureProject();
+
+        mojo.setLog(SyntheticInputs.quietLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", features);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "scanThreads", threads);
+        mojo.execute();
+        return features;
+    }
+
+    @Benchmark
+    public MavenProject testCatalog() throws Exception {
+        return execute(new BuildGherkinTestCatalog());
+    }
+
+    @Benchmark
+    public MavenProject zip() throws Exception {
+        BuildGherkinZip mojo = new BuildGherkinZip();
+        ReflectionUtils.setVariableValueInObject(mojo, "zipThreads", threads);
+        return execute(mojo);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.galasa.maven.plugin.LargeProject;
+import dev.galasa.maven.plugin.LargeProjectGenerator;
+import dev.galasa.maven.plugin.MergeTestCatalogs;
+import dev.galasa.maven.plugin.MockMavenProjectHelper;
+
+/**
+ * The mergetestcat goal, merging the test catalogs of the bundles an OBR depends on, embedded in the
+ * bundles or as sister artifacts in the repository
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MergeTestCatalogsBenchmark {
+
+    @Param({ "10", "100" })
+    public int              bundles;
+
+    @Param({ "100" })
+    public int              testsPerBundle;
+
+    @Param({ "true", "false" })
+    public boolean          embedded;
+
+    private SyntheticInputs inputs;
+    private LargeProject    project;
+    private File            output;
+
+    @Setup
+    public void setup() throws Exception {
+        inputs = new SyntheticInputs();
+        LargeProjectGenerator generator = inputs.getGenerator();
+        generator.setBundles(bundles);
+        generator.setTestClassesPerBundle(testsPerBundle);
+        generator.setOtherClassesPerBundle(0);
+        generator.setEmbeddedTestCatalogs(embedded);
+        generator.setSisterTestCatalogs(!embedded);
+        project = generator.generate();
+        output = inputs.getBase().resolve("target").toFile();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        inputs.close();
+    }
+
+    @Benchmark
+    public MavenProject merge() throws Exception {
+        MavenProject obr = project.createObrProject();
+
+        MergeTestCatalogs mojo = new MergeTestCatalogs();
+        mojo.setLog(SyntheticInputs.quietLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", obr);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "repoSystem", project.createRepositorySystem());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "buildJob", "benchmark");
+        mojo.execute();
+        return obr;
+    }
+}
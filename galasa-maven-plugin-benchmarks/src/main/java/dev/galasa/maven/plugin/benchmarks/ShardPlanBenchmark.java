@@ -0,0 +1,87 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import dev.galasa.maven.plugin.ShardPlanner;
+
+/**
+ * The shard planner on its own, over a catalog with log-normal test durations of roughly 10s to 30
+ * minutes, in which one test in ten belongs to one of a few hundred shared environment groups.
+ * How close the longest shard is to the lower bound is printed at the end of each trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ShardPlanBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int                       tests;
+
+    @Param({ "8", "64", "512" })
+    public int                       shards;
+
+    private List<ShardPlanner.Group> groups;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(tests);
+        groups = new ArrayList<>();
+        int senvGroups = Math.max(1, tests / 200);
+        long[] senvDurations = new long[senvGroups];
+        List<List<String>> senvTests = new ArrayList<>();
+        for (int i = 0; i < senvGroups; i++) {
+            senvTests.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < tests; i++) {
+            long duration = Math.min(1_800_000, Math.max(10_000, Math.round(Math.exp(11 + random.nextGaussian()))));
+            String name = "bundle/dev.galasa.benchmark.Test" + i;
+            if (random.nextInt(10) == 0) {
+                int senv = random.nextInt(senvGroups);
+                senvTests.get(senv).add(name);
+                senvDurations[senv] += duration;
+            } else {
+                groups.add(new ShardPlanner.Group(name, Collections.singletonList(name), duration));
+            }
+        }
+        for (int i = 0; i < senvGroups; i++) {
+            if (!senvTests.get(i).isEmpty()) {
+                groups.add(new ShardPlanner.Group("senv" + i, senvTests.get(i), senvDurations[i]));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        long longest = 0;
+        for (ShardPlanner.Shard shard : ShardPlanner.plan(groups, shards)) {
+            longest = Math.max(longest, shard.getDuration());
+        }
+        System.out.println(String.format("longest shard / lower bound = %.4f",
+                (double) longest / ShardPlanner.lowerBound(groups, shards)));
+    }
+
+    @Benchmark
+    public List<ShardPlanner.Shard> plan() {
+        return ShardPlanner.plan(groups, shards);
+    }
+}
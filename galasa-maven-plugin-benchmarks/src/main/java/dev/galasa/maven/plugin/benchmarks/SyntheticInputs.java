@@ -0,0 +1,57 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+
+import dev.galasa.maven.plugin.LargeProjectGenerator;
+
+/**
+ * A temporary directory for the inputs of a benchmark, made by the {@link LargeProjectGenerator}
+ * of the plugin tests
+ */
+public class SyntheticInputs implements AutoCloseable {
+
+    private final Path                  base;
+    private final LargeProjectGenerator generator;
+
+    public SyntheticInputs() throws IOException {
+        this.base = Files.createTempDirectory("galasa-benchmark");
+        this.generator = new LargeProjectGenerator(base.resolve("project").toFile());
+        this.generator.setBundles(0);
+    }
+
+    public Path getBase() {
+        return base;
+    }
+
+    /**
+     * @return the generator, with no bundles or features until they are set
+     */
+    public LargeProjectGenerator getGenerator() {
+        return generator;
+    }
+
+    /**
+     * @return a log that drops everything, so the benchmarks do not time the console
+     */
+    public static Log quietLog() {
+        return new DefaultLog(new ConsoleLogger(Logger.LEVEL_DISABLED, "benchmark"));
+    }
+
+    @Override
+    public void close() throws IOException {
+        FileUtils.deleteDirectory(base.toFile());
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * The parameters and wrapping common to all the goals, which time their work in {@link BuildMetrics}
+ * and write the metrics out when they finish, whether or not they succeed
+ */
+public abstract class AbstractGalasaMojo extends AbstractMojo {
+
+    // Write where the time of the goal goes to galasa-metrics.json in the build directory
+    @Parameter(defaultValue = "false", property = "galasa.metrics", required = false)
+    private boolean      writeMetrics;
+
+    // Also write the metrics in the Prometheus text format to galasa-metrics.prom, implies galasa.metrics
+    @Parameter(defaultValue = "false", property = "galasa.metrics.prometheus", required = false)
+    private boolean      writePrometheusMetrics;
+
+    private final String goal;
+
+    /**
+     * @param goal the name of the goal, as in its @Mojo annotation, which the metrics are recorded under
+     */
+    protected AbstractGalasaMojo(String goal) {
+        this.goal = goal;
+    }
+
+    @Override
+    public final void execute() throws MojoExecutionException, MojoFailureException {
+        BuildMetrics metrics = new BuildMetrics(goal);
+        try {
+            execute(metrics);
+        } finally {
+            metrics.write(getLog(), getProject(), writeMetrics, writePrometheusMetrics);
+        }
+    }
+
+    /**
+     * @return the project the goal is running for, whose build directory the metrics are written to
+     */
+    protected abstract MavenProject getProject();
+
+    protected abstract void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException;
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.lang.reflect.Method;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Test catalog deploys running in the background while the rest of the build carries on, or left
+ * until the end of the build, joined by the DeployTestCatalogParticipant when the session ends so a
+ * failure still fails the build.
+ *
+ * The deploys are kept in the session data of the build, and only hold JDK types, as the
+ * participant and the mojos may be loaded by different class realms.
+ */
+public class BackgroundDeploys {
+
+    private static final String DEPLOYS_KEY = BackgroundDeploys.class.getName() + ".deploys";
+    private static final String ENABLED_KEY = BackgroundDeploys.class.getName() + ".enabled";
+    private static final String AT_SESSION_END_KEY = BackgroundDeploys.class.getName() + ".atSessionEnd";
+
+    private BackgroundDeploys() {
+    }
+
+    /**
+     * Called by the participant, so the mojos know there is someone to join their deploys
+     */
+    public static void enable(MavenSession session) {
+        getData(session).set(ENABLED_KEY, Boolean.TRUE);
+    }
+
+    public static boolean isEnabled(MavenSession session) {
+        return session != null && Boolean.TRUE.equals(getData(session).get(ENABLED_KEY));
+    }
+
+    /**
+     * Start the deploy on a virtual thread if the JVM has them, otherwise a platform thread
+     *
+     * @param name the module being deployed, groupId:artifactId, used in messages only
+     */
+    public static void start(MavenSession session, String name, Callable<Void> deploy) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        getDeploys(session).add(new SimpleImmutableEntry<>(name, future));
+
+        Runnable task = () -> {
+            try {
+                deploy.call();
+                future.complete(null);
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        };
+        newThread("galasa-deploytestcat-" + name, task).start();
+    }
+
+    /**
+     * Deploy at the end of the session, once every module has been built
+     *
+     * @param key     the same key returns the deploy already registered
+     * @param creator creates the deploy, if none is registered with the key
+     * @return the deploy registered with the key
+     */
+    public static Callable<Void> atSessionEnd(MavenSession session, String key, Supplier<Callable<Void>> creator) {
+        Map<String, Callable<Void>> deploys = get(session, AT_SESSION_END_KEY, () -> Collections.synchronizedMap(new LinkedHashMap<>()));
+        synchronized (deploys) {
+            return deploys.computeIfAbsent(key, k -> creator.get());
+        }
+    }
+
+    /**
+     * Wait for all the deploys started in the session, then run the deploys left for the end of the session
+     *
+     * @throws MojoExecutionException listing every deploy that failed
+     */
+    public static void join(MavenSession session, Log log) throws MojoExecutionException {
+        List<String> failed = new ArrayList<>();
+
+        List<Map.Entry<String, CompletableFuture<Void>>> deploys = take(session, DEPLOYS_KEY);
+        if (deploys != null && !deploys.isEmpty()) {
+            log.info("Waiting for " + deploys.size() + " background test catalog deploy(s) to complete");
+            long start = System.nanoTime();
+
+            for (Map.Entry<String, CompletableFuture<Void>> deploy : deploys) {
+                try {
+                    deploy.getValue().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MojoExecutionException("Interrupted waiting for the background test catalog deploys", e);
+                } catch (ExecutionException e) {
+                    log.error("Background test catalog deploy of " + deploy.getKey() + " failed - " + e.getCause().getMessage());
+                    failed.add(deploy.getKey());
+                }
+            }
+            log.info("Background test catalog deploy(s) complete, waited " + ((System.nanoTime() - start) / 1_000_000) + "ms");
+        }
+
+        Map<String, Callable<Void>> atSessionEnd = take(session, AT_SESSION_END_KEY);
+        if (atSessionEnd != null) {
+            for (Callable<Void> deploy : atSessionEnd.values()) {
+                try {
+                    deploy.call();
+                } catch (Exception e) {
+                    log.error("Test catalog deploy of " + deploy + " failed - " + e.getMessage());
+                    failed.add(deploy.toString());
+                }
+            }
+        }
+
+        if (!failed.isEmpty()) {
+            throw new MojoExecutionException("Failed to deploy the test catalog of " + String.join(", ", failed));
+        }
+    }
+
+    // *** A list rather than a map, so two deploys of modules with the same name are both joined
+    private static List<Map.Entry<String, CompletableFuture<Void>>> getDeploys(MavenSession session) {
+        return get(session, DEPLOYS_KEY, () -> Collections.synchronizedList(new ArrayList<>()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T get(MavenSession session, String key, Supplier<T> creator) {
+        SessionData data = getData(session);
+        T value = (T) data.get(key);
+        while (value == null) {
+            // *** Modules can be built in parallel, only one of them creates the value
+            data.set(key, null, creator.get());
+            value = (T) data.get(key);
+        }
+        return value;
+    }
+
+    // *** Removed, so the deploys are only joined once
+    @SuppressWarnings("unchecked")
+    private static <T> T take(MavenSession session, String key) {
+        SessionData data = getData(session);
+        T value = (T) data.get(key);
+        if (value != null) {
+            data.set(key, null);
+        }
+        return value;
+    }
+
+    private static SessionData getData(MavenSession session) {
+        return session.getRepositorySession().getData();
+    }
+
+    // *** Thread.ofVirtual() is looked up by reflection, the plugin is built for JVMs without it
+    private static Thread newThread(String name, Runnable task) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class).invoke(builder, name);
+            Method unstarted = builderClass.getMethod("unstarted", Runnable.class);
+            return (Thread) unstarted.invoke(builder, task);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return new Thread(task, name);
+        }
+    }
+}
@@ -6,22 +6,15 @@
 package dev.galasa.maven.plugin;
 
 import java.io.File;
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
+import java.io.IOException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.jar.Manifest;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
@@ -31,7 +24,6 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
-import org.reflections.ReflectionUtils;
 import org.reflections.Reflections;
 import org.reflections.scanners.SubTypesScanner;
 import org.reflections.scanners.TypeAnnotationsScanner;
@@ -39,7 +31,6 @@ import org.reflections.util.ConfigurationBuilder;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
 /**
@@ -47,7 +38,7 @@ import com.google.gson.JsonObject;
  * needs @Test to be included
  */
 @Mojo(name = "bundletestcat", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true, requiresDependencyCollection = ResolutionScope.COMPILE_PLUS_RUNTIME, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
-public class BuildBundleTestCatalog extends AbstractMojo {
+public class BuildBundleTestCatalog extends AbstractGalasaMojo {
     @Parameter(defaultValue = "${project}", readonly = true)
     private MavenProject       project;
 
@@ -69,7 +60,25 @@ public class BuildBundleTestCatalog extends AbstractMojo {
     
     private boolean skip = (skipBundleTestCatalog || skipBundleTestCatalogOldSpelling);
 
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    // Record the classes in the bundle and the packages outside it that each test uses, from its bytecode
+    @Parameter(defaultValue = "false", property = "galasa.testcatalog.dependencies", required = false)
+    private boolean            recordDependencies;
+
+    // The reactortestcat goal of the OBR builds the test catalogs of all its bundles at once instead
+    @Parameter(defaultValue = "false", property = "galasa.testcatalog.aggregate", required = false)
+    private boolean            aggregate;
+
+    public BuildBundleTestCatalog() {
+        super("bundletestcat");
+    }
+
+    @Override
+    protected MavenProject getProject() {
+        return project;
+    }
+
+    @Override
+    protected void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException {
         
         if (skip) {
             getLog().info("Skipping Bundle Test Catalog build");
@@ -81,25 +90,19 @@ public class BuildBundleTestCatalog extends AbstractMojo {
             return;
         }
 
+        if (aggregate) {
+            getLog().info("Skipping Bundle Test Catalog build, it is built by the reactortestcat goal");
+            return;
+        }
+
         if (!outputDirectory.exists()) {
             outputDirectory.mkdirs();
         }
 
-        Path manifestPath = Paths.get(outputDirectory.toURI()).resolve("classes").resolve("META-INF")
-                .resolve("MANIFEST.MF");
-        if (!Files.exists(manifestPath)) {
-            throw new MojoExecutionException(
-                    "Unable to build Test Catalog as the META-INF/MANIFEST.MF file is missing");
-        }
+        Path classesDirectory = Paths.get(outputDirectory.toURI()).resolve("classes");
 
         try {
-            Manifest manifest = new Manifest(Files.newInputStream(manifestPath));
-
-            String bundleName = manifest.getMainAttributes().getValue("Bundle-SymbolicName");
-            if (bundleName == null || bundleName.trim().isEmpty()) {
-                throw new MojoExecutionException(
-                        "Unable to determine the Bundle-SymbolicName in the META-INF/MANIFEST.MF file");
-            }
+            String bundleName = BundleTestCatalogBuilder.getBundleName(classesDirectory);
 
             // *** Calculate the classpath
             ArrayList<URL> classpathURLs = new ArrayList<URL>();
@@ -111,180 +114,53 @@ public class BuildBundleTestCatalog extends AbstractMojo {
             }
 
             ClassLoader thisLoad = getClass().getClassLoader();
-            ClassLoader load = new URLClassLoader(classpathURLs.toArray(new URL[classpathURLs.size()]), thisLoad);
-
-            Class<?> annotationTest = ReflectionUtils.forName("dev.galasa.Test", load);
-            Class<?> annotationSharedEnv = ReflectionUtils.forName("dev.galasa.SharedEnvironment", load);
-            Class<?> annotationBuilder = ReflectionUtils.forName("dev.galasa.framework.spi.TestCatalogBuilder", load);
-            Class<?> annotationBuilderInterface = ReflectionUtils
-                    .forName("dev.galasa.framework.spi.ITestCatalogBuilder", load);
-
-            if (annotationTest == null || annotationSharedEnv == null || annotationBuilder == null || annotationBuilderInterface == null) {
-                getLog().warn(
-                        "Ignoring bundle for test catalog processing because the annotations are missing on the classpath");
-                getLog().warn("dev.galasa.Test=" + annotationSharedEnv);
-                getLog().warn("dev.galasa.SharedEnvironment=" + annotationTest);
-                getLog().warn("dev.galasa.framework.spi.TestCatalogBuilder=" + annotationBuilder);
-                getLog().warn("dev.galasa.framework.spi.ITestCatalogBuilder=" + annotationBuilderInterface);
-                return;
-            }
-
-            // *** Set up reflections
-            ConfigurationBuilder configuration = new ConfigurationBuilder();
-            configuration.addClassLoaders(load);
-            configuration.addUrls(classpathURLs);
-            configuration.addScanners(new SubTypesScanner(), new TypeAnnotationsScanner());
-
-            Reflections reflections = new Reflections(configuration);
-
-            // *** Locate all the Test Catalog Builders on the classpath
-            HashMap<Object, Method> catalogTestBuilders = new HashMap<>();
-            HashMap<Object, Method> catalogSenvBuilders = new HashMap<>();
-            @SuppressWarnings("unchecked")
-            Set<Class<?>> testCatalogBuilderClasses = reflections
-            .getTypesAnnotatedWith((Class<? extends Annotation>) annotationBuilder);
-            for (Class<?> klass : testCatalogBuilderClasses) {
-                // *** Have to do reflection here, becuase of the different classpaths
-                if (annotationBuilderInterface.isAssignableFrom(klass)) {
-                    try {
-                        Object instance = klass.newInstance();
-                        catalogTestBuilders.put(instance,
-                                klass.getMethod("appendTestCatalog", JsonObject.class, JsonObject.class, Class.class));
-                        catalogSenvBuilders.put(instance,
-                                klass.getMethod("appendTestCatalogForSharedEnvironment", JsonObject.class, Class.class));
-                        getLog().debug("Found test catalog builder class " + klass.getName());
-                    } catch (Exception e) {
-                        getLog().warn("Ignoring test catalog builder class " + klass.getName(), e);
-                    }
+            try (URLClassLoader load = new URLClassLoader(classpathURLs.toArray(new URL[classpathURLs.size()]), thisLoad)) {
+
+                // *** Set up reflections
+                ConfigurationBuilder configuration = new ConfigurationBuilder();
+                configuration.addClassLoaders(load);
+                configuration.addUrls(classpathURLs);
+                configuration.addScanners(new SubTypesScanner(), new TypeAnnotationsScanner());
+
+                Reflections reflections;
+                try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.SCAN).items(classpathURLs.size());
+                        PluginEvents.Event event = PluginEvents.begin(PluginEvents.Type.DISCOVERY, project.getArtifactId())
+                                .items(classpathURLs.size()).detail("classes")) {
+                    reflections = new Reflections(configuration);
                 }
-            }
-
-            // *** Locate all the test classes on the classpath
-            @SuppressWarnings("unchecked")
-            Set<Class<?>> sourceTestClasses = reflections
-            .getTypesAnnotatedWith((Class<? extends Annotation>) annotationTest);
-
-            // *** Create the JSON Template
-            JsonObject jsonRoot = new JsonObject();
-            JsonObject jsonClasses = new JsonObject();
-            jsonRoot.add("classes", jsonClasses);
-            JsonObject jsonPackages = new JsonObject();
-            jsonRoot.add("packages", jsonPackages);
-            JsonObject jsonBundles = new JsonObject();
-            jsonRoot.add("bundles", jsonBundles);
-            JsonObject jsonSharedEnv = new JsonObject();
-            jsonRoot.add("sharedEnvironments", jsonSharedEnv);
 
-            JsonObject jsonBundle = new JsonObject();
-            jsonBundles.add(bundleName, jsonBundle);
-            JsonObject jsonBundlePackages = new JsonObject();
-            jsonBundle.add("packages", jsonBundlePackages);
-
-            getLog().info("Building the Test Catalog for this bundle:-");
-            int testCount = 0;
-            for (Class<?> sourceTestClass : sourceTestClasses) {
-                testCount++;
-                String fullName = bundleName + "/" + sourceTestClass.getName();
-                String testClassName = sourceTestClass.getName();
-                String packageName = null;
-                if (sourceTestClass.getPackage() != null) {
-                    packageName = sourceTestClass.getPackage().getName();
-                } else {
-                    packageName = "default";
+                BundleTestCatalogBuilder catalogBuilder = new BundleTestCatalogBuilder(getLog(), recordDependencies);
+                catalogBuilder.setMetrics(metrics);
+                JsonObject jsonRoot = catalogBuilder.build(bundleName, classesDirectory, load, reflections);
+                if (jsonRoot == null) {
+                    return;
                 }
 
-                getLog().info("     " + testClassName);
-
-                // *** Create the main test class descriptor
-                JsonObject jsonTestClass = new JsonObject();
-                jsonTestClass.addProperty("name", testClassName);
-                jsonTestClass.addProperty("bundle", bundleName);
-                jsonTestClass.addProperty("shortName", sourceTestClass.getSimpleName());
-                jsonTestClass.addProperty("package", packageName);
-                jsonClasses.add(fullName, jsonTestClass);
-
-                // *** Add to the package list
-                JsonArray jsonPackage = jsonPackages.getAsJsonArray(packageName);
-                if (jsonPackage == null) {
-                    jsonPackage = new JsonArray();
-                    jsonPackages.add(packageName, jsonPackage);
-                }
-                jsonPackage.add(fullName);
-
-                // *** Add to the bundle package list
-                jsonPackage = jsonBundlePackages.getAsJsonArray(packageName);
-                if (jsonPackage == null) {
-                    jsonPackage = new JsonArray();
-                    jsonBundlePackages.add(packageName, jsonPackage);
-                }
-                jsonPackage.add(fullName);
-
-                // *** Call each Catalog Builder in turn to append data to the root and the
-                // class
-                for (Entry<Object, Method> builder : catalogTestBuilders.entrySet()) {
-                    builder.getValue().invoke(builder.getKey(), jsonRoot, jsonTestClass, sourceTestClass);
-                }
+                writeTestCatalog(project, projectHelper, outputDirectory, jsonRoot, metrics);
             }
+        } catch (MojoExecutionException e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new MojoExecutionException("Problem processing the test catalog for the bundle", t);
+        }
 
-            //*** Build list of shared environments
-
-            @SuppressWarnings("unchecked")
-            Set<Class<?>> sourceSenvClasses = reflections
-            .getTypesAnnotatedWith((Class<? extends Annotation>) annotationSharedEnv);
-            int senvCount = 0;
-            for (Class<?> sourceSenvClass : sourceSenvClasses) {
-                senvCount++;
-                String fullName = bundleName + "/" + sourceSenvClass.getName();
-                String senvClassName = sourceSenvClass.getName();
-                String packageName = null;
-                if (sourceSenvClass.getPackage() != null) {
-                    packageName = sourceSenvClass.getPackage().getName();
-                } else {
-                    packageName = "default";
-                }
-                getLog().info("     " + senvClassName);
-
-                // *** Create the main test class descriptor
-                JsonObject jsonSenvClass = new JsonObject();
-                jsonSenvClass.addProperty("name", senvClassName);
-                jsonSenvClass.addProperty("bundle", bundleName);
-                jsonSenvClass.addProperty("shortName", sourceSenvClass.getSimpleName());
-                jsonSenvClass.addProperty("package", packageName);
-                jsonSharedEnv.add(fullName, jsonSenvClass);
-
-                // *** Call each Catalog Builder in turn to append data to the
-                // class
-                for (Entry<Object, Method> builder : catalogSenvBuilders.entrySet()) {
-                    builder.getValue().invoke(builder.getKey(), jsonSenvClass, sourceSenvClass);
-                }
-            }
+    }
 
+    /**
+     * Write the test catalog of a bundle project and attach it to the project
+     */
+    static void writeTestCatalog(MavenProject project, MavenProjectHelper projectHelper, File outputDirectory,
+            JsonObject jsonRoot, BuildMetrics metrics) throws IOException {
+        File fileTestCatalog = new File(outputDirectory, "testcatalog.json");
+        try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(1)) {
             Gson gson = new GsonBuilder().setPrettyPrinting().create();
             String testCatlog = gson.toJson(jsonRoot);
 
-            File fileTestCatalog = new File(outputDirectory, "testcatalog.json");
             FileUtils.writeStringToFile(fileTestCatalog, testCatlog, "utf-8");
-
-            projectHelper.attachArtifact(project, "json", "testcatalog", fileTestCatalog);
-
-            if (testCount == 0) {
-                getLog().info("Test catalog built with no test classes defined");
-            } else if (testCount == 1) {
-                getLog().info("Test catalog built with 1 test class");
-            } else {
-                getLog().info("Test catalog built with " + testCount + " test classes");
-            }
-            if (senvCount == 0) {
-                getLog().info("Test catalog built with no shared environments defined");
-            } else if (senvCount == 1) {
-                getLog().info("Test catalog built with 1 shared environment");
-            } else {
-                getLog().info("Test catalog built with " + testCount + " shared environments");
-            }
-        } catch (Throwable t) {
-            throw new MojoExecutionException("Problem processing the test catalog for the bundle", t);
+            timer.bytesWritten(fileTestCatalog.length());
         }
 
+        projectHelper.attachArtifact(project, "json", "testcatalog", fileTestCatalog);
     }
 
 }
@@ -6,18 +6,25 @@
 package dev.galasa.maven.plugin;
 
 import java.io.File;
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.function.Consumer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -29,7 +36,7 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 
 @Mojo(name = "gherkintestcat", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true, requiresDependencyCollection = ResolutionScope.COMPILE_PLUS_RUNTIME, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
-public class BuildGherkinTestCatalog extends AbstractMojo {
+public class BuildGherkinTestCatalog extends AbstractGalasaMojo {
 
     @Component
     private MavenProjectHelper projectHelper;
@@ -39,6 +46,22 @@ public class BuildGherkinTestCatalog extends AbstractMojo {
 
     @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
     private File               outputDirectory;
+
+    // Globs, relative to the base directory, of the feature files to include
+    @Parameter(property = "galasa.gherkin.includes", required = false)
+    private List<String>       includes;
+
+    // Globs of the files and directories to skip, target and hidden directories by default
+    @Parameter(property = "galasa.gherkin.excludes", required = false)
+    private List<String>       excludes;
+
+    // Number of threads scanning for and reading feature files, 0 is the number of processors
+    @Parameter(defaultValue = "0", property = "galasa.gherkin.scan.threads", required = false)
+    private int                scanThreads;
+
+    // Reuse the feature file scan recorded under the build directory while nothing has changed
+    @Parameter(defaultValue = "true", property = "galasa.gherkin.scan.reuse", required = false)
+    private boolean            reuseScan;
     
     // This spelling of the property is old/wrong/deprecated.
     @Parameter(defaultValue = "${galasa.skip.gherkintestcatatlog}", readonly = true, required = false)
@@ -49,8 +72,17 @@ public class BuildGherkinTestCatalog extends AbstractMojo {
     
     private boolean skip = (skipGherkinTestCatalog || skipGherkinTestCatalogOldSpelling);
 
+    public BuildGherkinTestCatalog() {
+        super("gherkintestcat");
+    }
+
+    @Override
+    protected MavenProject getProject() {
+        return project;
+    }
+
     @Override
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    protected void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException {
         try {
             if (skip) {
                 getLog().info("Skipping Gherkin Test Catalog build");
@@ -66,26 +98,76 @@ public class BuildGherkinTestCatalog extends AbstractMojo {
             JsonObject jsonFeatures = new JsonObject();
             jsonRoot.add("gherkin", jsonFeatures);
 
-            List<Path> featureFiles = new ArrayList<>();
-            Files.list(project.getBasedir().toPath()).forEach(new ConsumeDirectory(featureFiles));
+            FeatureFileManifest manifest;
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.SCAN);
+                    PluginEvents.Event event = PluginEvents.begin(PluginEvents.Type.DISCOVERY, project.getArtifactId())
+                            .detail("features")) {
+                manifest = FeatureFileManifest.scan(getLog(), project.getBasedir().toPath(), outputDirectory,
+                        includes, excludes, scanThreads, reuseScan);
+                timer.items(manifest.getFiles().size());
+                event.items(manifest.getFiles().size());
+            }
+            List<Path> featureFiles = manifest.getFiles();
+
+            List<GherkinFeatureReader.Feature> features;
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.PARSE).items(featureFiles.size())) {
+                features = readFeatures(featureFiles);
+                for (Path feature : featureFiles) {
+                    timer.bytesRead(manifest.getFeature(feature).getSize());
+                }
+            }
+            TreeMap<String, TreeSet<String>> tagIndex = new TreeMap<>();
 
-            for(Path feature : featureFiles) {
+            for (int i = 0; i < featureFiles.size(); i++) {
+                Path feature = featureFiles.get(i);
                 String featureName = project.getBasedir().toPath().relativize(feature).toString();
                 JsonObject featureJson = new JsonObject();
                 featureJson.addProperty("name", featureName);
+                // *** The includes may match any extension, not only .feature
                 String fileName = feature.getFileName().toString();
-                featureJson.addProperty("shortName", fileName.substring(0, fileName.length() - 8));
+                int extension = fileName.lastIndexOf('.');
+                featureJson.addProperty("shortName", extension > 0 ? fileName.substring(0, extension) : fileName);
                 String maven = project.getGroupId() + "/" + project.getArtifactId() + "/" + project.getVersion();
                 featureJson.addProperty("maven",  maven);
 
+                // *** The outline of the feature, so runs can be planned without fetching the feature file
+                GherkinFeatureReader.Feature outline = features.get(i);
+                featureJson.addProperty("title", outline.getTitle());
+                featureJson.addProperty("sha256", manifest.getFeature(feature).getSha256());
+                featureJson.add("tags", toJsonArray(outline.getTags()));
+                addTags(tagIndex, outline.getTags(), featureName);
+
+                JsonArray scenariosJson = new JsonArray();
+                for (GherkinFeatureReader.Scenario scenario : outline.getScenarios()) {
+                    JsonObject scenarioJson = new JsonObject();
+                    scenarioJson.addProperty("name", scenario.getName());
+                    scenarioJson.addProperty("type", scenario.isOutline() ? "outline" : "scenario");
+                    scenarioJson.add("tags", toJsonArray(scenario.getTags()));
+                    if (scenario.isOutline()) {
+                        scenarioJson.addProperty("examples", scenario.getExamples());
+                    }
+                    scenariosJson.add(scenarioJson);
+                    addTags(tagIndex, scenario.getTags(), featureName);
+                }
+                featureJson.add("scenarios", scenariosJson);
+
                 jsonFeatures.add(featureName, featureJson);
             }
 
-            Gson gson = new GsonBuilder().setPrettyPrinting().create();
-            String testCatalog = gson.toJson(jsonRoot);
+            JsonObject jsonTags = new JsonObject();
+            for (Map.Entry<String, TreeSet<String>> tag : tagIndex.entrySet()) {
+                jsonTags.add(tag.getKey(), toJsonArray(tag.getValue()));
+            }
+            jsonRoot.add("gherkinTags", jsonTags);
 
             File fileTestCatalog = new File(outputDirectory, "testcatalog.json");
-            FileUtils.writeStringToFile(fileTestCatalog, testCatalog, "utf-8");
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(1)) {
+                Gson gson = new GsonBuilder().setPrettyPrinting().create();
+                String testCatalog = gson.toJson(jsonRoot);
+
+                FileUtils.writeStringToFile(fileTestCatalog, testCatalog, "utf-8");
+                timer.bytesWritten(fileTestCatalog.length());
+            }
 
             projectHelper.attachArtifact(project, "json", "testcatalog", fileTestCatalog);
         } catch (Throwable t) {
@@ -93,28 +175,48 @@ public class BuildGherkinTestCatalog extends AbstractMojo {
         }
     }
 
-    private static class ConsumeDirectory implements Consumer<Path> {
-
-        private final List<Path> files;
-
-        public ConsumeDirectory(List<Path> files) {
-            this.files = files;
+    private List<GherkinFeatureReader.Feature> readFeatures(List<Path> featureFiles) throws IOException {
+        List<GherkinFeatureReader.Feature> features = new ArrayList<>();
+        if (featureFiles.isEmpty()) {
+            return features;
         }
 
-        @Override
-        public void accept(Path path) {
-            try {
-                if(Files.isDirectory(path)) {
-                    Files.list(path).forEach(new ConsumeDirectory(files));
-                } else {
-                    if(path.toFile().getName().endsWith(".feature")) {
-                        files.add(path);
-                    }
+        int threads = scanThreads > 0 ? scanThreads : Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, featureFiles.size()));
+        try {
+            List<Future<GherkinFeatureReader.Feature>> futures = new ArrayList<>();
+            for (Path featureFile : featureFiles) {
+                futures.add(executor.submit(() -> GherkinFeatureReader.read(featureFile)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    features.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    throw new IOException("Problem reading feature file " + featureFiles.get(i), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted reading feature files", e);
                 }
-            } catch (Exception e) {
-                e.printStackTrace();
             }
+        } finally {
+            executor.shutdownNow();
+        }
+        return features;
+    }
+
+    private static void addTags(Map<String, TreeSet<String>> tagIndex, List<String> tags, String featureName) {
+        for (String tag : tags) {
+            tagIndex.computeIfAbsent(tag, k -> new TreeSet<>()).add(featureName);
+        }
+    }
+
+    private static JsonArray toJsonArray(Collection<String> values) {
+        JsonArray array = new JsonArray();
+        for (String value : values) {
+            array.add(value);
         }
+        return array;
     }
     
 }
\ No newline at end of file
@@ -6,19 +6,16 @@
 package dev.galasa.maven.plugin;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.nio.file.Files;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.security.MessageDigest;
 import java.util.List;
-import java.util.function.Consumer;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Map;
+import java.util.TreeMap;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.maven.plugin.AbstractMojo;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
@@ -30,7 +27,9 @@ import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 
 @Mojo(name = "gherkinzip", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true, requiresDependencyCollection = ResolutionScope.COMPILE_PLUS_RUNTIME, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
-public class BuildGherkinZip extends AbstractMojo {
+public class BuildGherkinZip extends AbstractGalasaMojo {
+
+    private static final String ZIP_COMMENT_PREFIX = "galasa-gherkin-sha256:";
 
     @Component
     private MavenProjectHelper projectHelper;
@@ -41,11 +40,40 @@ public class BuildGherkinZip extends AbstractMojo {
     @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
     private File               outputDirectory;
 
+    // Globs, relative to the base directory, of the feature files to include
+    @Parameter(property = "galasa.gherkin.includes", required = false)
+    private List<String>       includes;
+
+    // Globs of the files and directories to skip, target and hidden directories by default
+    @Parameter(property = "galasa.gherkin.excludes", required = false)
+    private List<String>       excludes;
+
+    // Number of threads scanning for feature files, 0 is the number of processors
+    @Parameter(defaultValue = "0", property = "galasa.gherkin.scan.threads", required = false)
+    private int                scanThreads;
+
+    // Reuse the feature file scan recorded under the build directory while nothing has changed
+    @Parameter(defaultValue = "true", property = "galasa.gherkin.scan.reuse", required = false)
+    private boolean            reuseScan;
+
+    // Number of threads compressing feature files, 0 is the number of processors
+    @Parameter(defaultValue = "0", property = "galasa.gherkin.zip.threads", required = false)
+    private int                zipThreads;
+
     @Parameter(defaultValue = "${galasa.skip.gherkinzip}", readonly = true, required = false)
     private boolean            skip;
 
+    public BuildGherkinZip() {
+        super("gherkinzip");
+    }
+
+    @Override
+    protected MavenProject getProject() {
+        return project;
+    }
+
     @Override
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    protected void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException {
         try {
             if (skip) {
                 getLog().info("Skipping Gherkin Zip build");
@@ -56,24 +84,46 @@ public class BuildGherkinZip extends AbstractMojo {
                 outputDirectory.mkdirs();
             }
 
-            List<Path> featureFiles = new ArrayList<>();
-            Files.list(project.getBasedir().toPath()).forEach(new ConsumeDirectory(featureFiles));
+            FeatureFileManifest manifest;
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.SCAN);
+                    PluginEvents.Event event = PluginEvents.begin(PluginEvents.Type.DISCOVERY, project.getArtifactId())
+                            .detail("features")) {
+                manifest = FeatureFileManifest.scan(getLog(), project.getBasedir().toPath(), outputDirectory,
+                        includes, excludes, scanThreads, reuseScan);
+                timer.items(manifest.getFiles().size());
+                event.items(manifest.getFiles().size());
+            }
+            List<Path> featureFiles = manifest.getFiles();
 
             Path zipFile = Paths.get(outputDirectory.getPath(), project.getArtifactId() + "-" + project.getVersion() + ".zip");
 
-            FileOutputStream fos = new FileOutputStream(zipFile.toString());
-            ZipOutputStream zos = new ZipOutputStream(fos);
-            for(Path feature : featureFiles){
-                getLog().info("Zipping " + feature);
-                ZipEntry ze = new ZipEntry(project.getBasedir().toPath().relativize(feature).toString());
-                zos.putNextEntry(ze);
-                FileInputStream fis = new FileInputStream(feature.toString());
-                IOUtils.copy(fis, zos);
-                zos.closeEntry();
-                fis.close();
+            // *** Entry names always use / whatever the platform
+            TreeMap<String, Path> entries = new TreeMap<>();
+            MessageDigest fingerprint = DigestUtils.getSha256Digest();
+            for (Path feature : featureFiles) {
+                String entryName = project.getBasedir().toPath().relativize(feature).toString().replace(File.separatorChar, '/');
+                entries.put(entryName, feature);
+            }
+            for (Map.Entry<String, Path> entry : entries.entrySet()) {
+                String line = entry.getKey() + "\u0000" + manifest.getFeature(entry.getValue()).getSha256() + "\n";
+                fingerprint.update(line.getBytes(StandardCharsets.UTF_8));
+            }
+            String comment = ZIP_COMMENT_PREFIX + Hex.encodeHexString(fingerprint.digest());
+
+            if (comment.equals(GherkinZipWriter.readComment(zipFile))) {
+                getLog().info("Gherkin zip unchanged with " + entries.size() + " feature file(s) - " + zipFile);
+            } else {
+                for (Path feature : entries.values()) {
+                    getLog().info("Zipping " + feature);
+                }
+                try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(entries.size())) {
+                    new GherkinZipWriter(zipThreads).write(zipFile, entries, comment);
+                    for (Path feature : entries.values()) {
+                        timer.bytesRead(manifest.getFeature(feature).getSize());
+                    }
+                    timer.bytesWritten(zipFile.toFile().length());
+                }
             }
-            zos.close();
-            fos.close();
 
             projectHelper.attachArtifact(project, "zip", "gherkin", zipFile.toFile());
 
@@ -81,28 +131,4 @@ public class BuildGherkinZip extends AbstractMojo {
             throw new MojoExecutionException("Problem processing creating zip for gherkin", t);
         }
     }
-
-    private static class ConsumeDirectory implements Consumer<Path> {
-
-        private final List<Path> files;
-
-        public ConsumeDirectory(List<Path> files) {
-            this.files = files;
-        }
-
-        @Override
-        public void accept(Path path) {
-            try {
-                if(Files.isDirectory(path)) {
-                    Files.list(path).forEach(new ConsumeDirectory(files));
-                } else {
-                    if(path.toFile().getName().endsWith(".feature")) {
-                        files.add(path);
-                    }
-                }
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,334 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * Where the time of a goal goes, by phase.
+ *
+ * Each phase records its wall time, the bytes read and written, the items processed and an estimate of
+ * the memory allocated by the thread that ran it. A phase run on several threads at once records the
+ * total over the threads, so its time can be more than the wall time of the goal.
+ *
+ * The metrics of each goal are merged into {@value #METRICS_FILE} in the build directory of the project,
+ * and optionally written out again as {@value #PROMETHEUS_FILE} in the Prometheus text format, for the
+ * node exporter textfile collector or a build dashboard to pick up.
+ */
+public class BuildMetrics {
+
+    public static final String METRICS_FILE    = "galasa-metrics.json";
+    public static final String PROMETHEUS_FILE = "galasa-metrics.prom";
+
+    public enum Phase {
+        SCAN("scan"),
+        CLASS_LOAD("class-load"),
+        BUILDER_INVOKE("builder-invoke"),
+        PARSE("parse"),
+        MERGE("merge"),
+        WRITE("write"),
+        COPY("copy"),
+        UPLOAD("upload");
+
+        private final String name;
+
+        Phase(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static class Counters {
+        private final LongAdder count          = new LongAdder();
+        private final LongAdder nanos          = new LongAdder();
+        private final LongAdder bytesRead      = new LongAdder();
+        private final LongAdder bytesWritten   = new LongAdder();
+        private final LongAdder items          = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+    }
+
+    /**
+     * The timing of one run of a phase, on one thread
+     */
+    public class Timer implements AutoCloseable {
+        private final Phase phase;
+        private final long  start;
+        private final long  allocatedStart;
+        private long        bytesRead;
+        private long        bytesWritten;
+        private long        items;
+
+        private Timer(Phase phase) {
+            this.phase = phase;
+            this.allocatedStart = getAllocatedBytes();
+            this.start = System.nanoTime();
+        }
+
+        public Timer bytesRead(long bytes) {
+            this.bytesRead += bytes;
+            return this;
+        }
+
+        public Timer bytesWritten(long bytes) {
+            this.bytesWritten += bytes;
+            return this;
+        }
+
+        public Timer items(long items) {
+            this.items += items;
+            return this;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        @Override
+        public void close() {
+            Counters counters = phases.get(phase);
+            counters.nanos.add(System.nanoTime() - start);
+            long allocatedEnd = getAllocatedBytes();
+            if (allocatedStart >= 0 && allocatedEnd >= allocatedStart) {
+                counters.allocatedBytes.add(allocatedEnd - allocatedStart);
+            }
+            counters.count.increment();
+            counters.bytesRead.add(bytesRead);
+            counters.bytesWritten.add(bytesWritten);
+            counters.items.add(items);
+        }
+    }
+
+    // *** The allocation estimates need the HotSpot extension of the thread bean, without it they are left out
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = getThreadBean();
+
+    private final String                    goal;
+    private final long                      start = System.nanoTime();
+    private final Map<Phase, Counters>      phases = new EnumMap<>(Phase.class);
+
+    public BuildMetrics(String goal) {
+        this.goal = goal;
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new Counters());
+        }
+    }
+
+    /**
+     * Start timing a run of a phase on this thread, to be closed when the run ends
+     */
+    public Timer start(Phase phase) {
+        return new Timer(phase);
+    }
+
+    /**
+     * Add to the counts of a phase without timing it, for work counted away from where it is timed
+     */
+    public void add(Phase phase, long items, long bytesRead, long bytesWritten) {
+        Counters counters = phases.get(phase);
+        counters.items.add(items);
+        counters.bytesRead.add(bytesRead);
+        counters.bytesWritten.add(bytesWritten);
+    }
+
+    /**
+     * @return true if nothing has been recorded, as when the goal was skipped
+     */
+    public boolean isEmpty() {
+        for (Counters counters : phases.values()) {
+            if (counters.count.sum() != 0 || counters.items.sum() != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the metrics of this goal so far, as held in the metrics file
+     */
+    public JsonObject toJson() {
+        JsonObject jsonGoal = new JsonObject();
+        jsonGoal.addProperty("timestamp", Instant.now().toString());
+        jsonGoal.addProperty("wallMillis", (System.nanoTime() - start) / 1_000_000);
+
+        JsonObject jsonPhases = new JsonObject();
+        for (Entry<Phase, Counters> entry : phases.entrySet()) {
+            Counters counters = entry.getValue();
+            if (counters.count.sum() == 0 && counters.items.sum() == 0) {
+                continue;
+            }
+            JsonObject jsonPhase = new JsonObject();
+            jsonPhase.addProperty("count", counters.count.sum());
+            jsonPhase.addProperty("wallMillis", counters.nanos.sum() / 1_000_000);
+            jsonPhase.addProperty("bytesRead", counters.bytesRead.sum());
+            jsonPhase.addProperty("bytesWritten", counters.bytesWritten.sum());
+            jsonPhase.addProperty("items", counters.items.sum());
+            if (THREAD_BEAN != null) {
+                jsonPhase.addProperty("allocatedBytes", counters.allocatedBytes.sum());
+            }
+            jsonPhases.add(entry.getKey().getName(), jsonPhase);
+        }
+        jsonGoal.add("phases", jsonPhases);
+        return jsonGoal;
+    }
+
+    /**
+     * Merge the metrics of this goal into the metrics file of the project, replacing those of an earlier
+     * run of the same goal. Problems are only warned about, the metrics must never fail the build.
+     *
+     * @param json       write the metrics file
+     * @param prometheus write the Prometheus file too, implies json
+     */
+    public void write(Log log, MavenProject project, boolean json, boolean prometheus) {
+        if ((!json && !prometheus) || isEmpty()) {
+            return;
+        }
+
+        String buildDirectory = project.getBuild() == null ? null : project.getBuild().getDirectory();
+        if (buildDirectory == null) {
+            log.warn("Unable to write the Galasa build metrics, the project has no build directory");
+            return;
+        }
+
+        File directory = new File(buildDirectory);
+        File metricsFile = new File(directory, METRICS_FILE);
+        try {
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+            // *** Keep the metrics of the other goals already run on the project
+            JsonObject jsonRoot = null;
+            if (metricsFile.exists()) {
+                try {
+                    jsonRoot = gson.fromJson(FileUtils.readFileToString(metricsFile, "utf-8"), JsonObject.class);
+                } catch (RuntimeException e) {
+                    log.warn("Ignoring the unreadable Galasa build metrics file " + metricsFile + " - " + e.getMessage());
+                }
+            }
+            if (jsonRoot == null || !jsonRoot.has("goals") || !jsonRoot.get("goals").isJsonObject()) {
+                jsonRoot = new JsonObject();
+                jsonRoot.add("goals", new JsonObject());
+            }
+            jsonRoot.addProperty("project", getProjectName(project) + ":" + project.getVersion());
+            jsonRoot.getAsJsonObject("goals").add(goal, toJson());
+
+            FileUtils.writeStringToFile(metricsFile, gson.toJson(jsonRoot), "utf-8");
+            log.debug("Galasa build metrics written to " + metricsFile);
+
+            if (prometheus) {
+                File prometheusFile = new File(directory, PROMETHEUS_FILE);
+                FileUtils.writeStringToFile(prometheusFile, toPrometheus(getProjectName(project), jsonRoot.getAsJsonObject("goals")), "utf-8");
+                log.debug("Galasa build metrics written to " + prometheusFile);
+            }
+        } catch (IOException e) {
+            log.warn("Unable to write the Galasa build metrics to " + directory + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the goals of a metrics file in the Prometheus text format, labelled with the project, goal
+     *         and phase
+     */
+    static String toPrometheus(String project, JsonObject jsonGoals) {
+        StringBuilder goalSeconds = new StringBuilder();
+        StringBuilder phaseSeconds = new StringBuilder();
+        StringBuilder bytesRead = new StringBuilder();
+        StringBuilder bytesWritten = new StringBuilder();
+        StringBuilder items = new StringBuilder();
+        StringBuilder allocatedBytes = new StringBuilder();
+
+        for (Entry<String, JsonElement> goal : jsonGoals.entrySet()) {
+            JsonObject jsonGoal = goal.getValue().getAsJsonObject();
+            String goalLabels = "project=\"" + escape(project) + "\",goal=\"" + escape(goal.getKey()) + "\"";
+            appendSample(goalSeconds, "galasa_plugin_goal_seconds", goalLabels, seconds(jsonGoal, "wallMillis"));
+
+            for (Entry<String, JsonElement> phase : jsonGoal.getAsJsonObject("phases").entrySet()) {
+                JsonObject jsonPhase = phase.getValue().getAsJsonObject();
+                String labels = goalLabels + ",phase=\"" + escape(phase.getKey()) + "\"";
+                appendSample(phaseSeconds, "galasa_plugin_phase_seconds", labels, seconds(jsonPhase, "wallMillis"));
+                appendSample(bytesRead, "galasa_plugin_phase_bytes_read", labels, jsonPhase.get("bytesRead").getAsString());
+                appendSample(bytesWritten, "galasa_plugin_phase_bytes_written", labels, jsonPhase.get("bytesWritten").getAsString());
+                appendSample(items, "galasa_plugin_phase_items", labels, jsonPhase.get("items").getAsString());
+                if (jsonPhase.has("allocatedBytes")) {
+                    appendSample(allocatedBytes, "galasa_plugin_phase_allocated_bytes", labels, jsonPhase.get("allocatedBytes").getAsString());
+                }
+            }
+        }
+
+        StringBuilder text = new StringBuilder();
+        appendFamily(text, "galasa_plugin_goal_seconds", "Wall time of the goal", goalSeconds);
+        appendFamily(text, "galasa_plugin_phase_seconds", "Time spent in the phase, totalled over the threads", phaseSeconds);
+        appendFamily(text, "galasa_plugin_phase_bytes_read", "Bytes read by the phase", bytesRead);
+        appendFamily(text, "galasa_plugin_phase_bytes_written", "Bytes written by the phase", bytesWritten);
+        appendFamily(text, "galasa_plugin_phase_items", "Items processed by the phase", items);
+        appendFamily(text, "galasa_plugin_phase_allocated_bytes", "Estimated bytes allocated by the phase", allocatedBytes);
+        return text.toString();
+    }
+
+    private static void appendFamily(StringBuilder text, String name, String help, StringBuilder samples) {
+        if (samples.length() == 0) {
+            return;
+        }
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" gauge\n");
+        text.append(samples);
+    }
+
+    private static void appendSample(StringBuilder samples, String name, String labels, String value) {
+        samples.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String seconds(JsonObject json, String millisName) {
+        return String.format(Locale.ROOT, "%.3f", json.get(millisName).getAsLong() / 1000.0);
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String getProjectName(MavenProject project) {
+        return project.getGroupId() + ":" + project.getArtifactId();
+    }
+
+    private static long getAllocatedBytes() {
+        if (THREAD_BEAN == null) {
+            return -1;
+        }
+        return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean hotspotBean = (com.sun.management.ThreadMXBean) bean;
+                if (hotspotBean.isThreadAllocatedMemorySupported() && hotspotBean.isThreadAllocatedMemoryEnabled()) {
+                    return hotspotBean;
+                }
+            }
+        } catch (LinkageError | SecurityException e) {
+            // *** Not a JVM with the extension
+        }
+        return null;
+    }
+}
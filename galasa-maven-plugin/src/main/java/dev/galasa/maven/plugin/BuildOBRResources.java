@@ -8,14 +8,20 @@ package dev.galasa.maven.plugin;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
 import java.lang.reflect.Field;
 import java.net.URI;
+import java.nio.charset.Charset;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.felix.bundlerepository.DataModelHelper;
 import org.apache.felix.bundlerepository.Repository;
 import org.apache.felix.bundlerepository.Requirement;
@@ -25,17 +31,21 @@ import org.apache.felix.bundlerepository.impl.RepositoryImpl;
 import org.apache.felix.bundlerepository.impl.ResourceImpl;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 
 @Mojo(name = "obrresources", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, threadSafe = true, requiresDependencyCollection = ResolutionScope.COMPILE, requiresDependencyResolution = ResolutionScope.COMPILE)
-public class BuildOBRResources extends AbstractMojo {
+public class BuildOBRResources extends AbstractGalasaMojo {
 
     public enum OBR_URL_TYPE {
         file,
@@ -45,6 +55,9 @@ public class BuildOBRResources extends AbstractMojo {
     @Parameter(defaultValue = "${project}", readonly = true)
     private MavenProject project;
 
+    @Component
+    private MavenProjectHelper projectHelper;
+
     @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
     private File         outputDirectory;
 
@@ -57,10 +70,43 @@ public class BuildOBRResources extends AbstractMojo {
     @Parameter(defaultValue = "false", property = "includeSelf", required = false)
     private boolean      includeSelf;
 
+    // Write repository-index.json mapping packages and capabilities to resources
+    @Parameter(defaultValue = "false", property = "galasa.obr.index", required = false)
+    private boolean      buildIndex;
+
+    @Parameter(defaultValue = "false", property = "galasa.obr.index.failOnUnresolved", required = false)
+    private boolean      failOnUnresolved;
+
+    // Packages expected to come from the runtime, not reported as unresolved, "a.b.*" matches a.b and below
+    @Parameter(property = "galasa.obr.index.ignorePackages", required = false)
+    private List<String> ignorePackages;
+
+    // Requirement namespaces expected to be met by the runtime, such as the execution environment "ee"
+    @Parameter(property = "galasa.obr.index.ignoreNamespaces", required = false)
+    private List<String> ignoreNamespaces;
+
+    // Reuse resources from the previous repository.obr for bundles whose digest has not changed
+    @Parameter(defaultValue = "true", property = "galasa.obr.incremental", required = false)
+    private boolean      incremental;
+
+    // Also write an OSGi R5 repository.xml.gz from the same resources
+    @Parameter(defaultValue = "false", property = "galasa.obr.r5", required = false)
+    private boolean      buildR5Index;
+
     private Field requirementsField;
 
+    public BuildOBRResources() {
+        super("obrresources");
+    }
+
+    @Override
+    protected MavenProject getProject() {
+        return project;
+    }
+
     @SuppressWarnings("deprecation")
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    @Override
+    protected void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException {
 
         // give access to the requirements field in the ResourceImpl so we can remove the 
         // execution environment requirement as Felix has an outstanding bug
@@ -99,6 +145,22 @@ public class BuildOBRResources extends AbstractMojo {
             project.setDependencyArtifacts(dependencyArtifacts);
         }
 
+        Repository previousRepository;
+        try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.PARSE)) {
+            previousRepository = readPreviousRepository(repositoryFile, obrDataModelHelper);
+            if (previousRepository != null) {
+                timer.items(1).bytesRead(repositoryFile.length());
+            }
+        }
+        HashMap<String, Resource> previousResources = new HashMap<>();
+        if (previousRepository != null) {
+            for (Resource resource : previousRepository.getResources()) {
+                if (resource.getURI() != null) {
+                    previousResources.put(resource.getURI(), resource);
+                }
+            }
+        }
+
         RepositoryImpl newRepository = new RepositoryImpl();
 
         for (Object dependency : project.getDependencyArtifacts()) {
@@ -129,9 +191,15 @@ public class BuildOBRResources extends AbstractMojo {
                     }
 
                     if (name.endsWith(".jar")) {
-                        processBundle(artifact, newRepository, obrDataModelHelper);
+                        try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.SCAN).items(1).bytesRead(file.length());
+                                PluginEvents.Event event = PluginEvents.begin(PluginEvents.Type.BUNDLE_ANALYSIS, artifact.getArtifactId())
+                                        .items(1).bytes(file.length()).detail("obrresources")) {
+                            processBundle(artifact, newRepository, obrDataModelHelper, previousResources);
+                        }
                     } else if (name.endsWith(".obr")) {
-                        processObr(artifact, newRepository, obrDataModelHelper);
+                        try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.PARSE).items(1).bytesRead(file.length())) {
+                            processObr(artifact, newRepository, obrDataModelHelper);
+                        }
                     }
                 }
             }
@@ -144,23 +212,119 @@ public class BuildOBRResources extends AbstractMojo {
         getLog().info("BuildOBRResources: OBR Artifact ID is " + project.getArtifact().getId());
 
         newRepository.setName(project.getGroupId() + ":" + project.getArtifactId() + ":" + project.getVersion());
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd-HHmmss");
-        newRepository.setLastModified(sdf.format(Calendar.getInstance().getTime()));
 
+        // *** If the resources are the same as last time, leave the file alone so the install and deploy 
+        // *** steps see an unchanged artifact
+        if (isUnchanged(newRepository, previousRepository, repositoryFile, obrDataModelHelper)) {
+            getLog().info("BuildOBRResources: Repository unchanged with " + newRepository.getResources().length
+                    + " resource(s) stored in " + repositoryFile.getAbsolutePath());
+        } else {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMdd-HHmmss");
+            newRepository.setLastModified(sdf.format(Calendar.getInstance().getTime()));
+
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(1)) {
+                FileWriter fw = new FileWriter(repositoryFile);
+                obrDataModelHelper.writeRepository(newRepository, fw);
+                fw.close();
+                timer.bytesWritten(repositoryFile.length());
+            } catch (Exception e) {
+                throw new MojoExecutionException("Problem with writing repository.xml", e);
+            }
+
+            if (newRepository.getResources().length == 1) {
+                getLog().info("BuildOBRResources: Repository created with " + newRepository.getResources().length
+                        + " resource stored in " + repositoryFile.getAbsolutePath());
+            } else {
+                getLog().info("BuildOBRResources: Repository created with " + newRepository.getResources().length
+                        + " resources stored in " + repositoryFile.getAbsolutePath());
+            }
+        }
+
+        if (buildIndex) {
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(1)) {
+                writeIndex(newRepository);
+                timer.bytesWritten(new File(outputDirectory, "repository-index.json").length());
+            }
+        }
+
+        if (buildR5Index) {
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(1)) {
+                writeR5Index(newRepository);
+                timer.bytesWritten(new File(outputDirectory, "repository.xml.gz").length());
+            }
+        }
+    }
+
+    private boolean isUnchanged(RepositoryImpl newRepository, Repository previousRepository, File repositoryFile,
+            DataModelHelper obrDataModelHelper) {
+        if (previousRepository == null) {
+            return false;
+        }
+
+        newRepository.setLastModified(previousRepository.getLastModified());
         try {
-            FileWriter fw = new FileWriter(repositoryFile);
-            obrDataModelHelper.writeRepository(newRepository, fw);
-            fw.close();
-        } catch (Exception e) {
-            throw new MojoExecutionException("Problem with writing repository.xml", e);
+            String newContent = obrDataModelHelper.writeRepository(newRepository);
+            String previousContent = FileUtils.readFileToString(repositoryFile, Charset.defaultCharset());
+            return newContent.equals(previousContent);
+        } catch (IOException e) {
+            getLog().warn("BuildOBRResources: Unable to compare with the previous repository - " + e.getMessage());
+            return false;
         }
+    }
 
-        if (newRepository.getResources().length == 1) {
-            getLog().info("BuildOBRResources: Repository created with " + newRepository.getResources().length
-                    + " resource stored in " + repositoryFile.getAbsolutePath());
-        } else {
-            getLog().info("BuildOBRResources: Repository created with " + newRepository.getResources().length
-                    + " resources stored in " + repositoryFile.getAbsolutePath());
+    private void writeIndex(RepositoryImpl newRepository) throws MojoExecutionException, MojoFailureException {
+        ObrRepositoryIndex index = new ObrRepositoryIndex(newRepository.getName(), newRepository.getResources(),
+                ignorePackages == null ? ObrRepositoryIndex.DEFAULT_IGNORED_PACKAGES : ignorePackages,
+                ignoreNamespaces == null ? ObrRepositoryIndex.DEFAULT_IGNORED_NAMESPACES : ignoreNamespaces);
+
+        for (String unresolved : index.getUnresolved()) {
+            getLog().warn("BuildOBRResources: Requirement not satisfied within the OBR - " + unresolved);
+        }
+        if (failOnUnresolved && !index.getUnresolved().isEmpty()) {
+            throw new MojoFailureException(index.getUnresolved().size() + " requirement(s) cannot be satisfied within the OBR");
+        }
+
+        File indexFile = new File(outputDirectory, "repository-index.json");
+        try {
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            String indexContent = gson.toJson(index.getJson());
+
+            // *** Same as the OBR, only touch the file if the content has changed
+            if (!indexFile.exists() || !indexContent.equals(FileUtils.readFileToString(indexFile, "utf-8"))) {
+                FileUtils.writeStringToFile(indexFile, indexContent, "utf-8");
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Problem with writing repository-index.json", e);
+        }
+
+        projectHelper.attachArtifact(project, "json", "index", indexFile);
+        getLog().info("BuildOBRResources: Repository index stored in " + indexFile.getAbsolutePath());
+    }
+
+    private void writeR5Index(RepositoryImpl newRepository) throws MojoExecutionException {
+        File r5File = new File(outputDirectory, "repository.xml.gz");
+        try {
+            new R5RepositoryWriter(newRepository.getName(), newRepository.getLastModified())
+                    .write(newRepository.getResources(), r5File);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Problem with writing repository.xml.gz", e);
+        }
+
+        projectHelper.attachArtifact(project, "xml.gz", "r5", r5File);
+        getLog().info("BuildOBRResources: R5 repository index stored in " + r5File.getAbsolutePath());
+    }
+
+    private Repository readPreviousRepository(File repositoryFile, DataModelHelper obrDataModelHelper) {
+        if (!incremental || !repositoryFile.exists()) {
+            return null;
+        }
+
+        try (FileReader fr = new FileReader(repositoryFile)) {
+            return obrDataModelHelper.readRepository(fr);
+        } catch (Exception e) {
+            getLog().warn("BuildOBRResources: Unable to read the previous repository, all bundles will be processed - "
+                    + e.getMessage());
+            return null;
         }
     }
 
@@ -180,13 +344,39 @@ public class BuildOBRResources extends AbstractMojo {
         }
     }
 
-    private void processBundle(DefaultArtifact artifact, RepositoryImpl repository, DataModelHelper obrDataModelHelper)
-            throws MojoExecutionException {
+    private void processBundle(DefaultArtifact artifact, RepositoryImpl repository, DataModelHelper obrDataModelHelper,
+            Map<String, Resource> previousResources) throws MojoExecutionException {
 
         try {
             getLog().info("BuildOBRResources: Processing artifact " + artifact.getId());
-            ResourceImpl newResource = (ResourceImpl) obrDataModelHelper
-                    .createResource(artifact.getFile().toURI().toURL());
+
+            URI name = null;
+            switch (obrUrlType) {
+                case mvn:
+                    name = new URI("mvn:" + artifact.getGroupId() + "/" + artifact.getArtifactId() + "/"
+                            + artifact.getBaseVersion() + "/" + artifact.getType());
+                    break;
+                case file:
+                default:
+                    name = artifact.getFile().toURI();
+                    break;
+            }
+
+            BundleContent content = new BundleContent(artifact.getFile());
+
+            // *** The bundle has not changed since the last build, so reuse the resource rather than analyse it again.
+            // *** Only digest it up front when the size still matches, otherwise the digest comes from Felix's read
+            Resource previousResource = previousResources.get(name.toString());
+            if (previousResource != null
+                    && artifact.getFile().length() == previousResource.getSize()
+                    && content.getSha256().equals(BundleContent.getSha256(previousResource))) {
+                repository.addResource(previousResource);
+                getLog().info("BuildOBRResources: Reused unchanged bundle " + previousResource.getPresentationName()
+                        + " - " + previousResource.getId());
+                return;
+            }
+
+            ResourceImpl newResource = (ResourceImpl) obrDataModelHelper.createResource(content.getUrl());
             if (newResource == null) {
                 throw new MojoExecutionException("Problem with jar file. Not an OSGi bundle?");
             }
@@ -211,19 +401,11 @@ public class BuildOBRResources extends AbstractMojo {
                 throw new MojoExecutionException("Unable to remove execution environment requirement", t);
             }
 
-            URI name = null;
-            switch (obrUrlType) {
-                case mvn:
-                    name = new URI("mvn:" + artifact.getGroupId() + "/" + artifact.getArtifactId() + "/"
-                            + artifact.getBaseVersion() + "/" + artifact.getType());
-                    break;
-                case file:
-                default:
-                    name = artifact.getFile().toURI();
-                    break;
-            }
             newResource.put(Resource.URI, name);
 
+            // *** Record the digest and size so the runtime can validate a cached copy without resolving it again
+            content.addTo(newResource);
+
             repository.addResource(newResource);
 
             getLog().info("BuildOBRResources: Added bundle " + newResource.getPresentationName() + " - "
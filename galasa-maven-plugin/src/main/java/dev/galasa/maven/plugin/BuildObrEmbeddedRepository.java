@@ -8,12 +8,19 @@ package dev.galasa.maven.plugin;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.net.MalformedURLException;
 import java.net.URI;
+import java.net.URL;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.felix.bundlerepository.DataModelHelper;
@@ -23,7 +30,6 @@ import org.apache.felix.bundlerepository.impl.DataModelHelperImpl;
 import org.apache.felix.bundlerepository.impl.RepositoryImpl;
 import org.apache.felix.bundlerepository.impl.ResourceImpl;
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -33,7 +39,11 @@ import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
 
 @Mojo(name = "obrembedded", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, threadSafe = true, requiresDependencyCollection = ResolutionScope.COMPILE, requiresDependencyResolution = ResolutionScope.COMPILE)
-public class BuildObrEmbeddedRepository extends AbstractMojo {
+public class BuildObrEmbeddedRepository extends AbstractGalasaMojo {
+
+    public static final String ARCHIVE_NAME       = "galasa-bundles.zip";
+    public static final String ARCHIVE_SEPARATOR  = "!/";
+    public static final String ARCHIVE_URI_PREFIX = ARCHIVE_NAME + ARCHIVE_SEPARATOR;
 
     @Parameter(defaultValue = "${project}", readonly = true)
     private MavenProject project;
@@ -41,9 +51,35 @@ public class BuildObrEmbeddedRepository extends AbstractMojo {
     @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
     private File         outputDirectory;
 
+    // Hard link bundles from the local repository rather than copy them, when on the same file store
+    @Parameter(defaultValue = "true", property = "galasa.obr.embedded.hardlink", required = false)
+    private boolean      hardLink;
+
+    // Number of threads copying bundles, 0 is the number of processors
+    @Parameter(defaultValue = "0", property = "galasa.obr.embedded.copy.threads", required = false)
+    private int          copyThreads;
+
+    // Package the bundles into a single stored archive rather than loose jars
+    @Parameter(defaultValue = "false", property = "galasa.obr.embedded.archive", required = false)
+    private boolean      archive;
+
+    // Also write an OSGi R5 repository.xml.gz from the same resources
+    @Parameter(defaultValue = "false", property = "galasa.obr.r5", required = false)
+    private boolean      buildR5Index;
+
     private Path         outputRepositoryDirectory;
 
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    public BuildObrEmbeddedRepository() {
+        super("obrembedded");
+    }
+
+    @Override
+    protected MavenProject getProject() {
+        return project;
+    }
+
+    @Override
+    protected void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException {
         DataModelHelper obrDataModelHelper = new DataModelHelperImpl();
 
         if (!outputDirectory.exists()) {
@@ -51,7 +87,26 @@ public class BuildObrEmbeddedRepository extends AbstractMojo {
         }
         outputRepositoryDirectory = Paths.get(outputDirectory.toURI());
 
+        Path repositoryFile = outputRepositoryDirectory.resolve("galasa.obr");
+        Repository previousRepository;
+        try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.PARSE)) {
+            previousRepository = readPreviousRepository(obrDataModelHelper, repositoryFile);
+            if (previousRepository != null) {
+                timer.items(1).bytesRead(repositoryFile.toFile().length());
+            }
+        }
+        Map<String, Resource> previousResources = new HashMap<>();
+        if (previousRepository != null) {
+            for (Resource resource : previousRepository.getResources()) {
+                if (resource.getURI() != null) {
+                    previousResources.put(resource.getURI(), resource);
+                }
+            }
+        }
+
         RepositoryImpl newRepository = new RepositoryImpl();
+        long lastModified = newRepository.getLastModified();
+        List<EmbeddedBundle> bundles = new ArrayList<>();
 
         Set<Artifact> artifacts = project.getArtifacts();
 
@@ -60,7 +115,9 @@ public class BuildObrEmbeddedRepository extends AbstractMojo {
         HashSet<String> validSymbolicNames = new HashSet<>();
         for (Artifact artifact : artifacts) {
             if (artifact.getScope().equals(Artifact.SCOPE_COMPILE) && "obr".equals(artifact.getType())) {
-                processObr(obrDataModelHelper, artifact, validSymbolicNames);
+                try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.PARSE).items(1).bytesRead(getLength(artifact))) {
+                    processObr(obrDataModelHelper, artifact, validSymbolicNames);
+                }
             }
         }
 
@@ -68,25 +125,128 @@ public class BuildObrEmbeddedRepository extends AbstractMojo {
         // symbolicname
         for (Artifact artifact : artifacts) {
             if (artifact.getScope().equals(Artifact.SCOPE_COMPILE) && !"obr".equals(artifact.getType())) {
-                processBundle(obrDataModelHelper, newRepository, artifact, validSymbolicNames);
+                try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.SCAN).items(1).bytesRead(getLength(artifact));
+                        PluginEvents.Event event = PluginEvents.begin(PluginEvents.Type.BUNDLE_ANALYSIS, artifact.getArtifactId())
+                                .items(1).bytes(getLength(artifact)).detail("obrembedded")) {
+                    processBundle(obrDataModelHelper, newRepository, artifact, validSymbolicNames, previousResources, bundles);
+                }
             }
         }
 
-        Path repositoryFile = outputRepositoryDirectory.resolve("galasa.obr");
-        try (FileWriter fw = new FileWriter(repositoryFile.toFile())) {
-            obrDataModelHelper.writeRepository(newRepository, fw);
-        } catch (Exception e) {
-            throw new MojoExecutionException("Problem with writing repository.xml", e);
+        Path archiveFile = outputRepositoryDirectory.resolve(ARCHIVE_NAME);
+        if (archive) {
+            if (isArchiveUnchanged(archiveFile, bundles, previousResources)) {
+                getLog().info("Bundle archive " + ARCHIVE_NAME + " unchanged");
+            } else {
+                try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.COPY).items(bundles.size())) {
+                    new BundleArchiveWriter(copyThreads).write(archiveFile, bundles);
+                    for (EmbeddedBundle bundle : bundles) {
+                        timer.bytesRead(bundle.getSize());
+                    }
+                    timer.bytesWritten(archiveFile.toFile().length());
+                }
+                getLog().info("Bundles archived " + bundles.size() + " into " + ARCHIVE_NAME);
+            }
+        } else {
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.COPY)) {
+                BundleCopier copier = new BundleCopier(getLog(), outputRepositoryDirectory, copyThreads, hardLink);
+                copier.copy(bundles);
+                timer.items(copier.getCopied() + copier.getLinked())
+                        .bytesRead(copier.getCopiedBytes())
+                        .bytesWritten(copier.getCopiedBytes());
+            }
+        }
+
+        // *** Remove bundles left by a previous build that are no longer in the repository
+        for (Resource resource : newRepository.getResources()) {
+            previousResources.remove(resource.getURI());
+        }
+        boolean archiveStale = false;
+        for (String staleUri : previousResources.keySet()) {
+            if (staleUri.contains(ARCHIVE_URI_PREFIX)) {
+                archiveStale = true;
+            } else {
+                pruneBundle(staleUri);
+            }
+        }
+        if (archiveStale && !archive) {
+            pruneBundle("file:" + ARCHIVE_NAME);
+        }
+
+        // *** Keep the previous lastmodified, and so the R5 increment, while the resources are the same
+        File r5File = outputRepositoryDirectory.resolve("repository.xml.gz").toFile();
+        long increment = lastModified;
+        if (isUnchanged(newRepository, previousRepository, repositoryFile, obrDataModelHelper)) {
+            getLog().info("Embedded repository galasa.obr unchanged");
+            long previousIncrement = R5RepositoryWriter.readIncrement(r5File);
+            if (previousIncrement != 0) {
+                increment = previousIncrement;
+            }
+        } else {
+            newRepository.setLastModified(lastModified);
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(1)) {
+                // *** Written from the same string it is compared with next time
+                try (FileWriter fw = new FileWriter(repositoryFile.toFile())) {
+                    fw.write(obrDataModelHelper.writeRepository(newRepository));
+                }
+                timer.bytesWritten(repositoryFile.toFile().length());
+            } catch (Exception e) {
+                throw new MojoExecutionException("Problem with writing repository.xml", e);
+            }
+        }
+
+        if (buildR5Index) {
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(1)) {
+                new R5RepositoryWriter("galasa.obr", increment)
+                        .write(newRepository.getResources(), r5File);
+                timer.bytesWritten(r5File.length());
+            } catch (IOException e) {
+                throw new MojoExecutionException("Problem with writing repository.xml.gz", e);
+            }
         }
 
     }
 
+    /**
+     * Resolve the URI of a resource in galasa.obr to a URL that can be opened.
+     *
+     * The URIs are relative to galasa.obr so that the repository can be moved. A bundle in the archive
+     * is referred to as galasa-bundles.zip!/entry, which a plain resolve would turn into a file URL
+     * that cannot be opened, so the archive is resolved against the repository and the entry is opened
+     * through a jar: URL.
+     *
+     * @param repositoryUrl the URL galasa.obr was loaded from
+     * @param resourceUri   the uri attribute of the resource
+     */
+    public static URL resolveBundleUrl(URL repositoryUrl, String resourceUri) throws MalformedURLException {
+        int separator = resourceUri.indexOf(ARCHIVE_SEPARATOR);
+        if (separator < 0) {
+            return new URL(repositoryUrl, resourceUri);
+        }
+        URL archiveUrl = new URL(repositoryUrl, resourceUri.substring(0, separator));
+        return new URL("jar:" + archiveUrl + resourceUri.substring(separator));
+    }
+
     private void processBundle(DataModelHelper obrDataModelHelper, RepositoryImpl newRepository, Artifact artifact,
-            HashSet<String> validSymbolicNames) throws MojoExecutionException {
+            HashSet<String> validSymbolicNames, Map<String, Resource> previousResources, List<EmbeddedBundle> bundles)
+            throws MojoExecutionException {
+
+        // *** Check the symbolic name from the manifest alone before paying for the full analysis
+        String symbolicName = BundleManifestProbe.getSymbolicName(artifact.getFile());
+        if (symbolicName == null) {
+            getLog().warn("Ignoring artifact " + artifact.toString() + " as not a valid OSGi bundle");
+            return;
+        }
 
+        if (!validSymbolicNames.contains(symbolicName)) {
+            getLog().warn("Ignoring artifact " + artifact.toString() + " as not on the valid symbolicname list");
+            return;
+        }
+
+        BundleContent content = new BundleContent(artifact.getFile());
         ResourceImpl newResource;
         try {
-            newResource = (ResourceImpl) obrDataModelHelper.createResource(artifact.getFile().toURI().toURL());
+            newResource = (ResourceImpl) obrDataModelHelper.createResource(content.getUrl());
         } catch (Exception e) {
             getLog().warn("Ignoring artifact " + artifact.toString() + " as not a valid OSGi bundle");
             return;
@@ -97,22 +257,21 @@ public class BuildObrEmbeddedRepository extends AbstractMojo {
             return;
         }
 
-        if (!validSymbolicNames.contains(newResource.getSymbolicName())) {
-            getLog().warn("Ignoring artifact " + artifact.toString() + " as not on the valid symbolicname list");
-            return;
-        }
-
         try {
             Path artifactFile = Paths.get(artifact.getFile().toURI());
-            Path targetFile = outputRepositoryDirectory.resolve(artifactFile.getFileName());
 
-            Files.copy(artifactFile, targetFile, StandardCopyOption.REPLACE_EXISTING);
-
-            URI uri = new URI("file:" + targetFile.getFileName());
+            String fileName = artifactFile.getFileName().toString();
+            URI uri = new URI(archive ? ARCHIVE_URI_PREFIX + fileName : "file:" + fileName);
             newResource.put(Resource.URI, uri);
+            content.addTo(newResource);
 
             newRepository.addResource(newResource);
 
+            Resource previousResource = previousResources.get(uri.toString());
+            String previousSha256 = previousResource == null ? null : BundleContent.getSha256(previousResource);
+            bundles.add(new EmbeddedBundle(artifact.getArtifactId(), fileName, artifactFile, content.getSha256(), content.getSize(),
+                    previousSha256));
+
             getLog().info("Added bundle " + newResource.getSymbolicName());
         } catch (Exception e) {
             throw new MojoExecutionException("Problem adding bundle to OBR reposiroty", e);
@@ -120,6 +279,73 @@ public class BuildObrEmbeddedRepository extends AbstractMojo {
 
     }
 
+    private boolean isArchiveUnchanged(Path archiveFile, List<EmbeddedBundle> bundles, Map<String, Resource> previousResources) {
+        if (!Files.exists(archiveFile) || previousResources.size() != bundles.size()) {
+            return false;
+        }
+        for (EmbeddedBundle bundle : bundles) {
+            if (!previousResources.containsKey(ARCHIVE_URI_PREFIX + bundle.getFileName())
+                    || !bundle.getSha256().equals(bundle.getPreviousSha256())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Repository readPreviousRepository(DataModelHelper obrDataModelHelper, Path repositoryFile) {
+        if (!Files.exists(repositoryFile)) {
+            return null;
+        }
+
+        try (FileReader fr = new FileReader(repositoryFile.toFile())) {
+            return obrDataModelHelper.readRepository(fr);
+        } catch (Exception e) {
+            getLog().warn("Unable to read the previous embedded repository, all bundles will be copied - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isUnchanged(RepositoryImpl newRepository, Repository previousRepository, Path repositoryFile,
+            DataModelHelper obrDataModelHelper) {
+        if (previousRepository == null) {
+            return false;
+        }
+
+        newRepository.setLastModified(previousRepository.getLastModified());
+        try {
+            String newContent = obrDataModelHelper.writeRepository(newRepository);
+            String previousContent = new String(Files.readAllBytes(repositoryFile), Charset.defaultCharset());
+            return newContent.equals(previousContent);
+        } catch (IOException e) {
+            getLog().warn("Unable to compare with the previous embedded repository - " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void pruneBundle(String staleUri) throws MojoExecutionException {
+        // *** Only touch the plain file names this mojo wrote
+        if (!staleUri.startsWith("file:")) {
+            return;
+        }
+        String fileName = staleUri.substring("file:".length());
+        if (fileName.isEmpty() || fileName.contains("/") || fileName.contains("\\")) {
+            return;
+        }
+
+        try {
+            if (Files.deleteIfExists(outputRepositoryDirectory.resolve(fileName))) {
+                getLog().info("Removed stale bundle " + fileName);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Problem removing stale bundle " + fileName, e);
+        }
+    }
+
+    // *** An unresolved artifact has no file, leave it to the process methods to report
+    private static long getLength(Artifact artifact) {
+        return artifact.getFile() == null ? 0 : artifact.getFile().length();
+    }
+
     private void processObr(DataModelHelper obrDataModelHelper, Artifact artifact, HashSet<String> validSymbolicNames)
             throws MojoExecutionException {
         try (FileReader fr = new FileReader(artifact.getFile())) {
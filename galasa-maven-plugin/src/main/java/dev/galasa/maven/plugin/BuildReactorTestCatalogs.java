@@ -0,0 +1,270 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.reflections.Reflections;
+import org.reflections.scanners.SubTypesScanner;
+import org.reflections.scanners.TypeAnnotationsScanner;
+import org.reflections.util.ConfigurationBuilder;
+
+import com.google.gson.JsonObject;
+
+/**
+ * Build the test catalogs of all the bundle projects in the reactor that this project depends on in one
+ * go, from the package phase of the project, by which time the reactor has built all those bundles.
+ * The galasa-obr lifecycle runs it just before the test catalogs are merged, so it all happens in one
+ * run of the lifecycle.
+ *
+ * The classpath elements common to every bundle, usually the Galasa framework and managers, are
+ * loaded by one parent class loader and scanned once, and the Test Catalog Builders they hold are
+ * shared. Each bundle then only scans its own classes and remaining dependencies, in parallel.
+ * Bundles that already have a test catalog, say from an OBR built earlier in the reactor, are left
+ * alone.
+ */
+@Mojo(name = "reactortestcat", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
+public class BuildReactorTestCatalogs extends AbstractGalasaMojo {
+
+    // *** Two OBRs built at once in a parallel build may depend on the same bundles
+    private static final Object LOCK = new Object();
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject       project;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession       session;
+
+    @Component
+    private MavenProjectHelper projectHelper;
+
+    // This spelling of the property is old/wrong/deprecated.
+    @Parameter(defaultValue = "${galasa.skip.bundletestcatatlog}", readonly = true, required = false)
+    private boolean            skipBundleTestCatalogOldSpelling;
+
+    @Parameter(defaultValue = "${galasa.skip.bundletestcatalog}", readonly = true, required = false)
+    private boolean            skipBundleTestCatalog;
+
+    // Build the test catalogs here, the bundletestcat goal of each bundle does nothing
+    @Parameter(defaultValue = "false", property = "galasa.testcatalog.aggregate", required = false)
+    private boolean            aggregate;
+
+    // Record the classes in the bundle and the packages outside it that each test uses, from its bytecode
+    @Parameter(defaultValue = "false", property = "galasa.testcatalog.dependencies", required = false)
+    private boolean            recordDependencies;
+
+    // Number of bundles to build test catalogs for at once, 0 is the number of processors
+    @Parameter(defaultValue = "0", property = "galasa.testcatalog.threads", required = false)
+    private int                threads;
+
+    public BuildReactorTestCatalogs() {
+        super("reactortestcat");
+    }
+
+    @Override
+    protected MavenProject getProject() {
+        return project;
+    }
+
+    @Override
+    protected void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException {
+
+        if (skipBundleTestCatalog || skipBundleTestCatalogOldSpelling) {
+            getLog().info("Skipping Reactor Test Catalog build");
+            return;
+        }
+
+        if (!aggregate) {
+            getLog().info("Skipping Reactor Test Catalog build, galasa.testcatalog.aggregate is not set");
+            return;
+        }
+
+        synchronized (LOCK) {
+            build(metrics);
+        }
+    }
+
+    private void build(BuildMetrics metrics) throws MojoExecutionException {
+        long start = System.nanoTime();
+
+        List<MavenProject> bundles = new ArrayList<>();
+        for (MavenProject upstream : session.getProjectDependencyGraph().getUpstreamProjects(project, true)) {
+            if ("bundle".equals(upstream.getPackaging()) && !hasTestCatalog(upstream)) {
+                bundles.add(upstream);
+            }
+        }
+
+        if (bundles.isEmpty()) {
+            getLog().info("Skipping Reactor Test Catalog build, no bundle projects in the reactor without a test catalog");
+            return;
+        }
+
+        Set<String> outputDirectories = new HashSet<>();
+        for (MavenProject reactorProject : session.getProjects()) {
+            outputDirectories.add(new File(reactorProject.getBuild().getOutputDirectory()).getAbsolutePath());
+        }
+
+        try {
+            // *** Calculate the classpath of each bundle, and the elements every bundle has
+            List<List<String>> classpaths = new ArrayList<>();
+            LinkedHashSet<String> common = null;
+            for (MavenProject bundle : bundles) {
+                List<String> classpath = getClasspath(bundle);
+                classpaths.add(classpath);
+                if (common == null) {
+                    common = new LinkedHashSet<>(classpath);
+                } else {
+                    common.retainAll(classpath);
+                }
+            }
+            // *** Reactor projects are built here, so their classes are never shared
+            common.removeIf(element -> outputDirectories.contains(new File(element).getAbsolutePath()));
+
+            List<URL> commonURLs = toURLs(common);
+            getLog().info("Building test catalogs for " + bundles.size() + " bundle(s), sharing " + commonURLs.size()
+                    + " common classpath element(s)");
+
+            BundleTestCatalogBuilder catalogBuilder = new BundleTestCatalogBuilder(getLog(), recordDependencies);
+            catalogBuilder.setMetrics(metrics);
+
+            try (URLClassLoader commonLoad = new URLClassLoader(commonURLs.toArray(new URL[commonURLs.size()]),
+                    getClass().getClassLoader())) {
+
+                Reflections commonReflections = null;
+                if (!commonURLs.isEmpty()) {
+                    commonReflections = scan(commonLoad, commonURLs, null, metrics);
+                }
+
+                int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+                ExecutorService executor = Executors.newFixedThreadPool(Math.min(poolSize, bundles.size()));
+                try {
+                    List<Future<Void>> futures = new ArrayList<>();
+                    for (int i = 0; i < bundles.size(); i++) {
+                        MavenProject bundle = bundles.get(i);
+                        List<String> own = new ArrayList<>(classpaths.get(i));
+                        own.removeAll(common);
+                        Reflections shared = commonReflections;
+                        futures.add(executor.submit(() -> {
+                            buildBundle(bundle, own, commonLoad, shared, catalogBuilder, metrics);
+                            return null;
+                        }));
+                    }
+
+                    for (int i = 0; i < futures.size(); i++) {
+                        try {
+                            futures.get(i).get();
+                        } catch (ExecutionException e) {
+                            throw new MojoExecutionException("Problem processing the test catalog for the bundle "
+                                    + bundles.get(i).getArtifactId(), e.getCause());
+                        }
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+            }
+
+            getLog().info("Built test catalogs for " + bundles.size() + " bundle(s) in "
+                    + ((System.nanoTime() - start) / 1_000_000) + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted building the test catalogs", e);
+        } catch (IOException | DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Problem processing the test catalogs for the reactor", e);
+        }
+    }
+
+    private static boolean hasTestCatalog(MavenProject bundle) {
+        for (Artifact attached : bundle.getAttachedArtifacts()) {
+            if ("testcatalog".equals(attached.getClassifier())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<String> getClasspath(MavenProject bundle) throws DependencyResolutionRequiredException, MojoExecutionException {
+        List<String> classpath = bundle.getCompileClasspathElements();
+        if (bundle.getArtifacts().isEmpty() && !bundle.getDependencies().isEmpty()) {
+            throw new MojoExecutionException("The dependencies of " + bundle.getArtifactId()
+                    + " have not been resolved, run the reactortestcat goal in a project that depends on the bundle");
+        }
+        return classpath;
+    }
+
+    private void buildBundle(MavenProject bundle, List<String> own, ClassLoader commonLoad, Reflections commonReflections,
+            BundleTestCatalogBuilder catalogBuilder, BuildMetrics metrics) throws Exception {
+        File outputDirectory = new File(bundle.getBuild().getDirectory());
+        Path classesDirectory = Paths.get(bundle.getBuild().getOutputDirectory());
+        String bundleName = BundleTestCatalogBuilder.getBundleName(classesDirectory);
+
+        List<URL> ownURLs = toURLs(own);
+        try (URLClassLoader load = new URLClassLoader(ownURLs.toArray(new URL[ownURLs.size()]), commonLoad)) {
+            Reflections reflections = scan(load, ownURLs, bundle.getArtifactId(), metrics);
+            if (commonReflections != null) {
+                reflections.merge(commonReflections);
+            }
+
+            JsonObject jsonRoot = catalogBuilder.build(bundleName, classesDirectory, load, reflections);
+            if (jsonRoot == null) {
+                return;
+            }
+
+            if (!outputDirectory.exists()) {
+                outputDirectory.mkdirs();
+            }
+            BuildBundleTestCatalog.writeTestCatalog(bundle, projectHelper, outputDirectory, jsonRoot, metrics);
+        }
+    }
+
+    /**
+     * @param artifactId the bundle the classpath is for, null for the classpath common to every bundle
+     */
+    private Reflections scan(ClassLoader load, List<URL> urls, String artifactId, BuildMetrics metrics) {
+        ConfigurationBuilder configuration = new ConfigurationBuilder();
+        configuration.addClassLoaders(load);
+        configuration.addUrls(urls);
+        configuration.addScanners(new SubTypesScanner(), new TypeAnnotationsScanner());
+        try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.SCAN).items(urls.size());
+                PluginEvents.Event event = PluginEvents.begin(PluginEvents.Type.DISCOVERY, artifactId)
+                        .items(urls.size()).detail("classes")) {
+            return new Reflections(configuration);
+        }
+    }
+
+    private List<URL> toURLs(Iterable<String> elements) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (String element : elements) {
+            urls.add(new File(element).toURI().toURL());
+        }
+        return urls;
+    }
+}
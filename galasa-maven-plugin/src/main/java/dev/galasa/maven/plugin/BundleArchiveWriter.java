@@ -0,0 +1,156 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+/**
+ * Writes the bundles of an embedded repository into a single stored (uncompressed) archive.
+ *
+ * As the entries are not compressed, the runtime can memory map the archive and open each bundle
+ * at the offset recorded in the index entry. Entries are sorted by name and carry a fixed timestamp
+ * so the same bundles always produce the same archive.
+ */
+public class BundleArchiveWriter {
+
+    public static final String INDEX_ENTRY = "META-INF/galasa-bundles.json";
+
+    // *** Built from the local calendar so it converts back to the same DOS time in any timezone
+    private static final long  FIXED_TIME  = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
+
+    private final int          threads;
+
+    public BundleArchiveWriter(int threads) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @return the index written into the archive
+     */
+    public JsonObject write(Path archive, List<EmbeddedBundle> bundles) throws MojoExecutionException {
+        List<EmbeddedBundle> sorted = new ArrayList<>(bundles);
+        sorted.sort(Comparator.comparing(EmbeddedBundle::getFileName));
+
+        // *** Stored entries need the CRC up front, calculate them in parallel
+        long[] crcs = calculateCrcs(sorted);
+
+        JsonObject jsonIndex = new JsonObject();
+        JsonObject jsonBundles = new JsonObject();
+        jsonIndex.add("bundles", jsonBundles);
+
+        Path tempArchive = archive.resolveSibling(archive.getFileName() + ".tmp");
+        try (CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(tempArchive)));
+                ZipOutputStream zos = new ZipOutputStream(counter)) {
+
+            for (int i = 0; i < sorted.size(); i++) {
+                EmbeddedBundle bundle = sorted.get(i);
+
+                ZipEntry entry = new ZipEntry(bundle.getFileName());
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(bundle.getSize());
+                entry.setCompressedSize(bundle.getSize());
+                entry.setCrc(crcs[i]);
+                entry.setTime(FIXED_TIME);
+                zos.putNextEntry(entry);
+
+                // *** Stored data is written straight through, so this is where the bundle starts
+                long offset = counter.getByteCount();
+                Files.copy(bundle.getSource(), zos);
+                zos.closeEntry();
+
+                JsonObject jsonBundle = new JsonObject();
+                jsonBundle.addProperty("offset", offset);
+                jsonBundle.addProperty("size", bundle.getSize());
+                jsonBundle.addProperty("sha256", bundle.getSha256());
+                jsonBundles.add(bundle.getFileName(), jsonBundle);
+            }
+
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            ZipEntry indexEntry = new ZipEntry(INDEX_ENTRY);
+            indexEntry.setTime(FIXED_TIME);
+            zos.putNextEntry(indexEntry);
+            zos.write(gson.toJson(jsonIndex).getBytes(StandardCharsets.UTF_8));
+            zos.closeEntry();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Problem writing the bundle archive " + archive, e);
+        }
+
+        try {
+            Files.move(tempArchive, archive, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Problem writing the bundle archive " + archive, e);
+        }
+
+        return jsonIndex;
+    }
+
+    private long[] calculateCrcs(List<EmbeddedBundle> bundles) throws MojoExecutionException {
+        long[] crcs = new long[bundles.size()];
+        if (bundles.isEmpty()) {
+            return crcs;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, bundles.size()));
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (EmbeddedBundle bundle : bundles) {
+                futures.add(executor.submit(() -> calculateCrc(bundle.getSource())));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    crcs[i] = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    throw new MojoExecutionException("Problem reading bundle " + bundles.get(i).getSource(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MojoExecutionException("Interrupted reading bundles", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return crcs;
+    }
+
+    private long calculateCrc(Path source) throws IOException {
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[65536];
+        try (InputStream is = Files.newInputStream(source)) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+}
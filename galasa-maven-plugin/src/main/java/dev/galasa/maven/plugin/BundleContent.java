@@ -0,0 +1,195 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Property;
+import org.apache.felix.bundlerepository.Resource;
+import org.apache.felix.bundlerepository.impl.CapabilityImpl;
+import org.apache.felix.bundlerepository.impl.ResourceImpl;
+
+/**
+ * The SHA-256 digest and size of a bundle jar.
+ *
+ * Hand the URL from {@link #getUrl()} to Felix when creating the resource. Felix only reads
+ * as far as the manifest, the rest of the jar is drained through the digest when Felix closes
+ * the stream, so the jar is only read once.
+ */
+public class BundleContent {
+
+    public static final String CAPABILITY    = "osgi.content";
+    public static final String PROPERTY_SIZE = "size";
+    public static final String PROPERTY_MIME = "mime";
+    public static final String BUNDLE_MIME   = "application/vnd.osgi.bundle";
+
+    private final File file;
+
+    private String     sha256;
+    private long       size = -1;
+    private boolean    opened;
+
+    public BundleContent(File file) {
+        this.file = file;
+    }
+
+    public URL getUrl() throws MalformedURLException {
+        return new URL(null, file.toURI().toString(), new DigestingHandler());
+    }
+
+    public String getSha256() throws IOException {
+        if (sha256 == null) {
+            // *** Nothing has read the file through our URL, so read it now
+            try (InputStream is = new DigestingInputStream(new FileInputStream(file))) {
+                byte[] buffer = new byte[8192];
+                while (is.read(buffer) != -1) {
+                }
+            }
+        }
+        return sha256;
+    }
+
+    public long getSize() throws IOException {
+        getSha256();
+        return size;
+    }
+
+    /**
+     * Record the size and digest on the resource, the digest is held in an osgi.content capability as
+     * the Felix repository writer does not output arbitrary resource properties
+     */
+    public void addTo(ResourceImpl resource) throws IOException {
+        resource.put(Resource.SIZE, Long.toString(getSize()));
+
+        CapabilityImpl capability = new CapabilityImpl(CAPABILITY);
+        capability.addProperty(CAPABILITY, getSha256());
+        capability.addProperty(PROPERTY_SIZE, Property.LONG, Long.toString(getSize()));
+        capability.addProperty(PROPERTY_MIME, BUNDLE_MIME);
+        resource.addCapability(capability);
+    }
+
+    /**
+     * Find the digest recorded by {@link #addTo(ResourceImpl)} on a resource, null if there is not one
+     */
+    public static String getSha256(Resource resource) {
+        for (Capability capability : resource.getCapabilities()) {
+            if (CAPABILITY.equals(capability.getName())) {
+                Object digest = capability.getPropertiesAsMap().get(CAPABILITY);
+                if (digest != null) {
+                    return digest.toString();
+                }
+            }
+        }
+        return null;
+    }
+
+    private class DigestingHandler extends URLStreamHandler {
+        @Override
+        protected URLConnection openConnection(URL url) throws IOException {
+            return new URLConnection(url) {
+                @Override
+                public void connect() throws IOException {
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    // *** Felix may open the jar again for the localisation file, only digest the first pass
+                    if (opened || sha256 != null) {
+                        return new FileInputStream(file);
+                    }
+                    opened = true;
+                    return new DigestingInputStream(new FileInputStream(file));
+                }
+            };
+        }
+    }
+
+    private class DigestingInputStream extends FilterInputStream {
+
+        private final MessageDigest digest;
+        private long                count;
+        private boolean             closed;
+
+        public DigestingInputStream(InputStream in) throws IOException {
+            super(in);
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("SHA-256 is not available", e);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                digest.update((byte) b);
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                digest.update(b, off, read);
+                count += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // *** Skipped bytes still have to pass through the digest
+            byte[] buffer = new byte[(int) Math.min(8192, Math.max(n, 1))];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read == -1) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                byte[] buffer = new byte[8192];
+                while (read(buffer, 0, buffer.length) != -1) {
+                }
+                sha256 = Hex.encodeHexString(digest.digest());
+                size = count;
+            } finally {
+                super.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Copies bundles into an embedded repository.
+ *
+ * Targets that already hold the same content are left alone, bundles are hard linked when the source
+ * and target are on the same file store, and the remaining copies are done in parallel with
+ * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+ */
+public class BundleCopier {
+
+    private final Log           log;
+    private final int           threads;
+    private final boolean       hardLink;
+    private final Path          directory;
+
+    private final AtomicInteger unchanged = new AtomicInteger();
+    private final AtomicInteger linked    = new AtomicInteger();
+    private final AtomicInteger copied    = new AtomicInteger();
+    private final AtomicLong    copiedBytes = new AtomicLong();
+
+    public BundleCopier(Log log, Path directory, int threads, boolean hardLink) {
+        this.log = log;
+        this.directory = directory;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.hardLink = hardLink;
+    }
+
+    public void copy(List<EmbeddedBundle> bundles) throws MojoExecutionException {
+        if (bundles.isEmpty()) {
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, bundles.size()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (EmbeddedBundle bundle : bundles) {
+                futures.add(executor.submit(() -> {
+                    copyBundle(bundle, directory.resolve(bundle.getFileName()));
+                    return null;
+                }));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    throw new MojoExecutionException("Problem copying bundle " + bundles.get(i).getSource(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MojoExecutionException("Interrupted copying bundles", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info("Bundles copied " + copied.get() + ", linked " + linked.get() + ", unchanged " + unchanged.get());
+    }
+
+    private void copyBundle(EmbeddedBundle bundle, Path target) throws IOException {
+        try (PluginEvents.Event event = PluginEvents.begin(PluginEvents.Type.FILE_COPY, bundle.getArtifactId())) {
+            event.detail(copyBundle(bundle, target, event));
+        }
+    }
+
+    /**
+     * @return how the bundle was copied, for the flight recording
+     */
+    private String copyBundle(EmbeddedBundle bundle, Path target, PluginEvents.Event event) throws IOException {
+        if (isUnchanged(bundle, target)) {
+            unchanged.incrementAndGet();
+            return "unchanged";
+        }
+
+        // *** Always remove the old target first, it may be a hard link into the local repository
+        // *** and must not be written through
+        Files.deleteIfExists(target);
+
+        if (hardLink && Files.getFileStore(bundle.getSource()).equals(Files.getFileStore(directory))) {
+            try {
+                Files.createLink(target, bundle.getSource());
+                linked.incrementAndGet();
+                return "linked";
+            } catch (IOException | UnsupportedOperationException | SecurityException e) {
+                log.debug("Unable to hard link " + bundle.getSource() + ", copying instead - " + e.getMessage());
+            }
+        }
+
+        try (FileChannel in = FileChannel.open(bundle.getSource(), StandardOpenOption.READ);
+                FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long size = in.size();
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            copiedBytes.addAndGet(size);
+            event.items(1).bytes(size);
+        }
+        copied.incrementAndGet();
+        return "copied";
+    }
+
+    private boolean isUnchanged(EmbeddedBundle bundle, Path target) throws IOException {
+        if (!Files.exists(target)) {
+            return false;
+        }
+
+        if (Files.isSameFile(bundle.getSource(), target)) {
+            return true;
+        }
+
+        if (Files.size(target) != bundle.getSize()) {
+            return false;
+        }
+
+        if (bundle.getPreviousSha256() != null) {
+            return bundle.getPreviousSha256().equals(bundle.getSha256());
+        }
+
+        return new BundleContent(target.toFile()).getSha256().equals(bundle.getSha256());
+    }
+
+    public int getUnchanged() {
+        return unchanged.get();
+    }
+
+    public int getLinked() {
+        return linked.get();
+    }
+
+    public int getCopied() {
+        return copied.get();
+    }
+
+    /**
+     * @return the bytes copied, hard linked and unchanged bundles cost nothing
+     */
+    public long getCopiedBytes() {
+        return copiedBytes.get();
+    }
+
+}
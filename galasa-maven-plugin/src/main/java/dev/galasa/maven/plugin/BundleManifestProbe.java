@@ -0,0 +1,61 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Cheap check of a jar's Bundle-SymbolicName. Only the zip central directory and the manifest
+ * entry are read, so it can be used to filter artifacts before the full Felix analysis.
+ */
+public class BundleManifestProbe {
+
+    private BundleManifestProbe() {
+    }
+
+    /**
+     * @return the Bundle-SymbolicName without any directives, or null if the file is not a jar or has no
+     *         symbolic name
+     */
+    public static String getSymbolicName(File file) {
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            ZipEntry entry = zipFile.getEntry(JarFile.MANIFEST_NAME);
+            if (entry == null) {
+                return null;
+            }
+
+            Manifest manifest;
+            try (InputStream is = zipFile.getInputStream(entry)) {
+                manifest = new Manifest(is);
+            }
+
+            String symbolicName = manifest.getMainAttributes().getValue("Bundle-SymbolicName");
+            if (symbolicName == null) {
+                return null;
+            }
+
+            int directives = symbolicName.indexOf(';');
+            if (directives >= 0) {
+                symbolicName = symbolicName.substring(0, directives);
+            }
+            symbolicName = symbolicName.trim();
+            return symbolicName.isEmpty() ? null : symbolicName;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+}
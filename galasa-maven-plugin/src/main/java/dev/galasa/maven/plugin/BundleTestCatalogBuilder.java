@@ -0,0 +1,324 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.Manifest;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.reflections.ReflectionUtils;
+import org.reflections.Reflections;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Builds the test catalog of one bundle from a class loader and a Reflections scan of its classpath.
+ *
+ * The Test Catalog Builders found on the classpath are instantiated once per class, so when several
+ * bundles are built with class loaders sharing a parent, the builders loaded by the parent are shared
+ * between them. Bundles may be built in parallel, but the builders are not written to be called from
+ * several threads, so the calls to each shared builder instance are serialised.
+ */
+public class BundleTestCatalogBuilder {
+
+    private final Log                            log;
+    private final boolean                        recordDependencies;
+
+    private final Map<Class<?>, CatalogBuilder>  catalogBuilders = new ConcurrentHashMap<>();
+
+    private BuildMetrics                         metrics = new BuildMetrics("bundletestcat");
+
+    private static class CatalogBuilder {
+        private final Object instance;
+        private final Method testMethod;
+        private final Method senvMethod;
+
+        private CatalogBuilder(Object instance, Method testMethod, Method senvMethod) {
+            this.instance = instance;
+            this.testMethod = testMethod;
+            this.senvMethod = senvMethod;
+        }
+    }
+
+    // *** Marks a builder class that could not be used, so it is only reported once
+    private static final CatalogBuilder IGNORED = new CatalogBuilder(null, null, null);
+
+    /**
+     * @param recordDependencies record the classes in the bundle and the packages outside it that each
+     *                           test uses, from its bytecode
+     */
+    public BundleTestCatalogBuilder(Log log, boolean recordDependencies) {
+        this.log = log;
+        this.recordDependencies = recordDependencies;
+    }
+
+    /**
+     * Record the class-load and builder-invoke phases in the metrics of the goal
+     */
+    public void setMetrics(BuildMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the Bundle-SymbolicName from the manifest in the classes directory
+     */
+    public static String getBundleName(Path classesDirectory) throws MojoExecutionException, IOException {
+        Path manifestPath = classesDirectory.resolve("META-INF").resolve("MANIFEST.MF");
+        if (!Files.exists(manifestPath)) {
+            throw new MojoExecutionException(
+                    "Unable to build Test Catalog as the META-INF/MANIFEST.MF file is missing");
+        }
+
+        Manifest manifest;
+        try (InputStream is = Files.newInputStream(manifestPath)) {
+            manifest = new Manifest(is);
+        }
+
+        String bundleName = manifest.getMainAttributes().getValue("Bundle-SymbolicName");
+        if (bundleName == null || bundleName.trim().isEmpty()) {
+            throw new MojoExecutionException(
+                    "Unable to determine the Bundle-SymbolicName in the META-INF/MANIFEST.MF file");
+        }
+        return bundleName;
+    }
+
+    /**
+     * @param bundleName       the symbolic name of the bundle
+     * @param classesDirectory the compiled classes of the bundle
+     * @param load             a class loader for the classpath of the bundle
+     * @param reflections      a scan of the classpath of the bundle
+     * @return the test catalog, or null if the Galasa annotations are not on the classpath
+     */
+    public JsonObject build(String bundleName, Path classesDirectory, ClassLoader load, Reflections reflections) throws Exception {
+        Class<?> annotationTest = ReflectionUtils.forName("dev.galasa.Test", load);
+        Class<?> annotationSharedEnv = ReflectionUtils.forName("dev.galasa.SharedEnvironment", load);
+        Class<?> annotationBuilder = ReflectionUtils.forName("dev.galasa.framework.spi.TestCatalogBuilder", load);
+        Class<?> annotationBuilderInterface = ReflectionUtils
+                .forName("dev.galasa.framework.spi.ITestCatalogBuilder", load);
+
+        if (annotationTest == null || annotationSharedEnv == null || annotationBuilder == null || annotationBuilderInterface == null) {
+            log.warn(
+                    "Ignoring bundle for test catalog processing because the annotations are missing on the classpath");
+            log.warn("dev.galasa.Test=" + annotationSharedEnv);
+            log.warn("dev.galasa.SharedEnvironment=" + annotationTest);
+            log.warn("dev.galasa.framework.spi.TestCatalogBuilder=" + annotationBuilder);
+            log.warn("dev.galasa.framework.spi.ITestCatalogBuilder=" + annotationBuilderInterface);
+            return null;
+        }
+
+        // *** Locate all the Test Catalog Builders on the classpath
+        List<CatalogBuilder> builders = new ArrayList<>();
+        Set<Class<?>> testCatalogBuilderClasses = getTypesAnnotatedWith(reflections, annotationBuilder);
+        for (Class<?> klass : testCatalogBuilderClasses) {
+            // *** Have to do reflection here, becuase of the different classpaths
+            if (annotationBuilderInterface.isAssignableFrom(klass)) {
+                CatalogBuilder builder = catalogBuilders.computeIfAbsent(klass, this::createCatalogBuilder);
+                if (builder != IGNORED) {
+                    builders.add(builder);
+                }
+            }
+        }
+
+        // *** Locate all the test classes on the classpath
+        Set<Class<?>> sourceTestClasses = getTypesAnnotatedWith(reflections, annotationTest);
+
+        // *** Create the JSON Template
+        JsonObject jsonRoot = new JsonObject();
+        JsonObject jsonClasses = new JsonObject();
+        jsonRoot.add("classes", jsonClasses);
+        JsonObject jsonPackages = new JsonObject();
+        jsonRoot.add("packages", jsonPackages);
+        JsonObject jsonBundles = new JsonObject();
+        jsonRoot.add("bundles", jsonBundles);
+        JsonObject jsonSharedEnv = new JsonObject();
+        jsonRoot.add("sharedEnvironments", jsonSharedEnv);
+
+        JsonObject jsonBundle = new JsonObject();
+        jsonBundles.add(bundleName, jsonBundle);
+        JsonObject jsonBundlePackages = new JsonObject();
+        jsonBundle.add("packages", jsonBundlePackages);
+
+        ClassDependencyAnalyser dependencyAnalyser = null;
+        if (recordDependencies) {
+            dependencyAnalyser = new ClassDependencyAnalyser(classesDirectory);
+        }
+
+        log.info("Building the Test Catalog for bundle " + bundleName + ":-");
+        int testCount = 0;
+        for (Class<?> sourceTestClass : sourceTestClasses) {
+            testCount++;
+            String fullName = bundleName + "/" + sourceTestClass.getName();
+            String testClassName = sourceTestClass.getName();
+            String packageName = null;
+            if (sourceTestClass.getPackage() != null) {
+                packageName = sourceTestClass.getPackage().getName();
+            } else {
+                packageName = "default";
+            }
+
+            log.info("     " + testClassName);
+
+            // *** Create the main test class descriptor
+            JsonObject jsonTestClass = new JsonObject();
+            jsonTestClass.addProperty("name", testClassName);
+            jsonTestClass.addProperty("bundle", bundleName);
+            jsonTestClass.addProperty("shortName", sourceTestClass.getSimpleName());
+            jsonTestClass.addProperty("package", packageName);
+            addDigest(jsonTestClass, load, testClassName);
+            if (dependencyAnalyser != null) {
+                addDependencies(jsonTestClass, dependencyAnalyser, testClassName);
+            }
+            jsonClasses.add(fullName, jsonTestClass);
+
+            // *** Add to the package list
+            JsonArray jsonPackage = jsonPackages.getAsJsonArray(packageName);
+            if (jsonPackage == null) {
+                jsonPackage = new JsonArray();
+                jsonPackages.add(packageName, jsonPackage);
+            }
+            jsonPackage.add(fullName);
+
+            // *** Add to the bundle package list
+            jsonPackage = jsonBundlePackages.getAsJsonArray(packageName);
+            if (jsonPackage == null) {
+                jsonPackage = new JsonArray();
+                jsonBundlePackages.add(packageName, jsonPackage);
+            }
+            jsonPackage.add(fullName);
+
+            // *** Call each Catalog Builder in turn to append data to the root and the
+            // class
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.BUILDER_INVOKE).items(builders.size())) {
+                for (CatalogBuilder builder : builders) {
+                    synchronized (builder) {
+                        builder.testMethod.invoke(builder.instance, jsonRoot, jsonTestClass, sourceTestClass);
+                    }
+                }
+            }
+        }
+
+        //*** Build list of shared environments
+
+        Set<Class<?>> sourceSenvClasses = getTypesAnnotatedWith(reflections, annotationSharedEnv);
+        int senvCount = 0;
+        for (Class<?> sourceSenvClass : sourceSenvClasses) {
+            senvCount++;
+            String fullName = bundleName + "/" + sourceSenvClass.getName();
+            String senvClassName = sourceSenvClass.getName();
+            String packageName = null;
+            if (sourceSenvClass.getPackage() != null) {
+                packageName = sourceSenvClass.getPackage().getName();
+            } else {
+                packageName = "default";
+            }
+            log.info("     " + senvClassName);
+
+            // *** Create the main test class descriptor
+            JsonObject jsonSenvClass = new JsonObject();
+            jsonSenvClass.addProperty("name", senvClassName);
+            jsonSenvClass.addProperty("bundle", bundleName);
+            jsonSenvClass.addProperty("shortName", sourceSenvClass.getSimpleName());
+            jsonSenvClass.addProperty("package", packageName);
+            addDigest(jsonSenvClass, load, senvClassName);
+            jsonSharedEnv.add(fullName, jsonSenvClass);
+
+            // *** Call each Catalog Builder in turn to append data to the
+            // class
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.BUILDER_INVOKE).items(builders.size())) {
+                for (CatalogBuilder builder : builders) {
+                    synchronized (builder) {
+                        builder.senvMethod.invoke(builder.instance, jsonSenvClass, sourceSenvClass);
+                    }
+                }
+            }
+        }
+
+        if (testCount == 0) {
+            log.info("Test catalog built with no test classes defined");
+        } else if (testCount == 1) {
+            log.info("Test catalog built with 1 test class");
+        } else {
+            log.info("Test catalog built with " + testCount + " test classes");
+        }
+        if (senvCount == 0) {
+            log.info("Test catalog built with no shared environments defined");
+        } else if (senvCount == 1) {
+            log.info("Test catalog built with 1 shared environment");
+        } else {
+            log.info("Test catalog built with " + senvCount + " shared environments");
+        }
+
+        return jsonRoot;
+    }
+
+    // *** Reflections loads the classes it returns, which is where the time of class loading goes
+    @SuppressWarnings("unchecked")
+    private Set<Class<?>> getTypesAnnotatedWith(Reflections reflections, Class<?> annotation) {
+        try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.CLASS_LOAD)) {
+            Set<Class<?>> types = reflections.getTypesAnnotatedWith((Class<? extends Annotation>) annotation);
+            timer.items(types.size());
+            return types;
+        }
+    }
+
+    private CatalogBuilder createCatalogBuilder(Class<?> klass) {
+        try {
+            Object instance = klass.newInstance();
+            CatalogBuilder builder = new CatalogBuilder(instance,
+                    klass.getMethod("appendTestCatalog", JsonObject.class, JsonObject.class, Class.class),
+                    klass.getMethod("appendTestCatalogForSharedEnvironment", JsonObject.class, Class.class));
+            log.debug("Found test catalog builder class " + klass.getName());
+            return builder;
+        } catch (Exception e) {
+            log.warn("Ignoring test catalog builder class " + klass.getName(), e);
+            return IGNORED;
+        }
+    }
+
+    private void addDependencies(JsonObject jsonClass, ClassDependencyAnalyser dependencyAnalyser, String className) throws IOException {
+        ClassDependencyAnalyser.Dependencies dependencies = dependencyAnalyser.analyse(className);
+        if (dependencies == null) {
+            log.debug("Test class " + className + " is not in this bundle, no dependencies recorded");
+            return;
+        }
+
+        JsonObject jsonDependencies = new JsonObject();
+        JsonArray jsonDependencyClasses = new JsonArray();
+        for (String dependency : dependencies.getClasses()) {
+            jsonDependencyClasses.add(dependency);
+        }
+        jsonDependencies.add("classes", jsonDependencyClasses);
+        JsonArray jsonDependencyPackages = new JsonArray();
+        for (String dependency : dependencies.getPackages()) {
+            jsonDependencyPackages.add(dependency);
+        }
+        jsonDependencies.add("packages", jsonDependencyPackages);
+        jsonClass.add("dependencies", jsonDependencies);
+    }
+
+    // *** Digest the class and its nested classes, so a change to the test can be spotted from the catalog alone
+    private void addDigest(JsonObject jsonClass, ClassLoader load, String className) throws IOException {
+        String digest = ClassContentDigest.digest(load, className);
+        if (digest == null) {
+            log.warn("Unable to locate the class file for " + className + ", no digest recorded");
+            return;
+        }
+        jsonClass.addProperty("sha256", digest);
+    }
+
+}
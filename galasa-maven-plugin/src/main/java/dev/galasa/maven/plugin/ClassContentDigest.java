@@ -0,0 +1,108 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Calculates a SHA-256 digest of the bytecode of a class together with all of its nested, inner,
+ * local and anonymous classes, so the digest changes whenever anything compiled from the class
+ * source changes.
+ *
+ * The class files are digested in name order, each preceded by its name and length, so the digest
+ * does not depend on the order the files are found in.
+ */
+public class ClassContentDigest {
+
+    private ClassContentDigest() {
+    }
+
+    /**
+     * @return the digest, or null if the class file cannot be found through the class loader
+     */
+    public static String digest(ClassLoader loader, String className) throws IOException {
+        String resourceName = className.replace('.', '/') + ".class";
+        URL url = loader.getResource(resourceName);
+        if (url == null) {
+            return null;
+        }
+
+        // *** The class itself and everything named Class$...
+        String nestedPrefix = resourceName.substring(0, resourceName.length() - ".class".length()) + "$";
+        TreeMap<String, byte[]> classFiles = new TreeMap<>();
+
+        if ("file".equals(url.getProtocol())) {
+            Path classFile;
+            try {
+                classFile = Paths.get(url.toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid class file location " + url, e);
+            }
+            classFiles.put(resourceName, Files.readAllBytes(classFile));
+
+            String simplePrefix = nestedPrefix.substring(nestedPrefix.lastIndexOf('/') + 1);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(classFile.getParent(), simplePrefix + "*.class")) {
+                for (Path nested : stream) {
+                    String nestedName = nestedPrefix.substring(0, nestedPrefix.lastIndexOf('/') + 1) + nested.getFileName();
+                    classFiles.put(nestedName, Files.readAllBytes(nested));
+                }
+            }
+        } else if ("jar".equals(url.getProtocol())) {
+            JarURLConnection connection = (JarURLConnection) url.openConnection();
+            connection.setUseCaches(false);
+            File jarFile;
+            try {
+                jarFile = new File(connection.getJarFileURL().toURI());
+            } catch (URISyntaxException e) {
+                throw new IOException("Invalid jar location " + url, e);
+            }
+            try (JarFile jar = new JarFile(jarFile)) {
+                Enumeration<JarEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    JarEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (name.equals(resourceName) || (name.startsWith(nestedPrefix) && name.endsWith(".class"))) {
+                        try (InputStream is = jar.getInputStream(entry)) {
+                            classFiles.put(name, IOUtils.toByteArray(is));
+                        }
+                    }
+                }
+            }
+        } else {
+            try (InputStream is = url.openStream()) {
+                classFiles.put(resourceName, IOUtils.toByteArray(is));
+            }
+        }
+
+        MessageDigest digest = DigestUtils.getSha256Digest();
+        for (Map.Entry<String, byte[]> classFile : classFiles.entrySet()) {
+            digest.update((classFile.getKey() + "\u0000" + classFile.getValue().length + "\u0000").getBytes(StandardCharsets.UTF_8));
+            digest.update(classFile.getValue());
+        }
+        return Hex.encodeHexString(digest.digest());
+    }
+
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Works out which classes a test depends on by reading the constant pools of the class files in a
+ * bundle's classes directory.
+ *
+ * The references of a class are the class entries of its constant pool and the class names within
+ * any descriptor or signature held there, which covers field, method and annotation types. Classes
+ * within the bundle are followed transitively, and references outside the bundle are reduced to
+ * their packages. Nested classes are folded into their top level class, and java.* is ignored.
+ */
+public class ClassDependencyAnalyser {
+
+    private static final int              MAGIC      = 0xCAFEBABE;
+
+    private final Path                    classesDirectory;
+    private final Map<String, Set<String>> references = new HashMap<>();
+
+    public static class Dependencies {
+        private final TreeSet<String> classes  = new TreeSet<>();
+        private final TreeSet<String> packages = new TreeSet<>();
+
+        /**
+         * @return the top level classes within the bundle used directly or indirectly
+         */
+        public TreeSet<String> getClasses() {
+            return classes;
+        }
+
+        /**
+         * @return the packages outside the bundle used directly or indirectly
+         */
+        public TreeSet<String> getPackages() {
+            return packages;
+        }
+    }
+
+    public ClassDependencyAnalyser(Path classesDirectory) {
+        this.classesDirectory = classesDirectory;
+    }
+
+    /**
+     * @return the dependencies of the class, or null if the class is not in the classes directory
+     */
+    public Dependencies analyse(String className) throws IOException {
+        String topLevel = topLevel(className.replace('.', '/'));
+        if (!isInBundle(topLevel)) {
+            return null;
+        }
+
+        Dependencies dependencies = new Dependencies();
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        visited.add(topLevel);
+        queue.add(topLevel);
+
+        while (!queue.isEmpty()) {
+            for (String reference : getReferences(queue.poll())) {
+                if (!visited.add(reference)) {
+                    continue;
+                }
+                if (isInBundle(reference)) {
+                    dependencies.classes.add(reference.replace('/', '.'));
+                    queue.add(reference);
+                } else {
+                    int lastSlash = reference.lastIndexOf('/');
+                    dependencies.packages.add(lastSlash < 0 ? "default" : reference.substring(0, lastSlash).replace('/', '.'));
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    private boolean isInBundle(String internalName) {
+        return Files.isRegularFile(classesDirectory.resolve(internalName + ".class"));
+    }
+
+    private synchronized Set<String> getReferences(String topLevel) throws IOException {
+        Set<String> classReferences = references.get(topLevel);
+        if (classReferences != null) {
+            return classReferences;
+        }
+
+        classReferences = new TreeSet<>();
+        Path classFile = classesDirectory.resolve(topLevel + ".class");
+        readConstantPool(classFile, classReferences);
+
+        String simpleName = classFile.getFileName().toString();
+        simpleName = simpleName.substring(0, simpleName.length() - ".class".length());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(classFile.getParent(), simpleName + "$*.class")) {
+            for (Path nested : stream) {
+                readConstantPool(nested, classReferences);
+            }
+        }
+
+        classReferences.remove(topLevel);
+        references.put(topLevel, classReferences);
+        return classReferences;
+    }
+
+    private void readConstantPool(Path classFile, Set<String> classReferences) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(classFile)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a class file " + classFile);
+            }
+            in.readUnsignedShort();
+            in.readUnsignedShort();
+
+            int count = in.readUnsignedShort();
+            String[] utf8 = new String[count];
+            List<Integer> classNames = new ArrayList<>();
+            for (int i = 1; i < count; i++) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                    case 1: // Utf8
+                        utf8[i] = in.readUTF();
+                        break;
+                    case 7: // Class
+                        classNames.add(in.readUnsignedShort());
+                        break;
+                    case 8: // String
+                    case 16: // MethodType
+                    case 19: // Module
+                    case 20: // Package
+                        in.readUnsignedShort();
+                        break;
+                    case 15: // MethodHandle
+                        in.readUnsignedByte();
+                        in.readUnsignedShort();
+                        break;
+                    case 3: // Integer
+                    case 4: // Float
+                    case 9: // Fieldref
+                    case 10: // Methodref
+                    case 11: // InterfaceMethodref
+                    case 12: // NameAndType
+                    case 17: // Dynamic
+                    case 18: // InvokeDynamic
+                        in.readInt();
+                        break;
+                    case 5: // Long
+                    case 6: // Double
+                        in.readLong();
+                        i++;
+                        break;
+                    default:
+                        throw new IOException("Unknown constant pool tag " + tag + " in " + classFile);
+                }
+            }
+
+            for (int index : classNames) {
+                String name = utf8[index];
+                if (name != null && !name.startsWith("[")) {
+                    addReference(name, classReferences);
+                }
+            }
+            for (String value : utf8) {
+                if (value != null) {
+                    addDescriptorReferences(value, classReferences);
+                }
+            }
+        }
+    }
+
+    /**
+     * A Utf8 entry may be a descriptor or signature, or anything else such as a string constant. Only
+     * those that parse entirely as a descriptor or signature are used.
+     */
+    static void addDescriptorReferences(String value, Set<String> classReferences) {
+        List<String> classes = new SignatureScanner(value).scan();
+        if (classes == null) {
+            return;
+        }
+        for (String internalName : classes) {
+            addReference(internalName, classReferences);
+        }
+    }
+
+    /**
+     * Walks the grammar of field and method descriptors and of class, method and field signatures,
+     * collecting the class types named in them
+     */
+    private static class SignatureScanner {
+        private final String       value;
+        private final List<String> classes  = new ArrayList<>();
+        private int                position;
+
+        private SignatureScanner(String value) {
+            this.value = value;
+        }
+
+        /**
+         * @return the internal names of the class types, or null if the value is not a descriptor or signature
+         */
+        private List<String> scan() {
+            if (!(peek('(') || peek('<') || peek('[') || peek('L'))) {
+                return null;
+            }
+
+            if (peek('<') && !typeParameters()) {
+                return null;
+            }
+            if (peek('(')) {
+                if (!method()) {
+                    return null;
+                }
+            } else {
+                // *** A field type, or the superclass and interfaces of a class signature
+                do {
+                    if (!referenceType()) {
+                        return null;
+                    }
+                } while (position < value.length());
+            }
+            return position == value.length() ? classes : null;
+        }
+
+        private boolean method() {
+            position++;
+            while (!peek(')')) {
+                if (!javaType()) {
+                    return false;
+                }
+            }
+            position++;
+
+            if (peek('V')) {
+                position++;
+            } else if (!javaType()) {
+                return false;
+            }
+
+            while (peek('^')) {
+                position++;
+                if (!referenceType()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean typeParameters() {
+            position++;
+            do {
+                if (!identifier() || !peek(':')) {
+                    return false;
+                }
+                // *** The class bound may be empty, the interface bounds may not
+                position++;
+                if (!peek(':') && !peek('>') && !referenceType()) {
+                    return false;
+                }
+                while (peek(':')) {
+                    position++;
+                    if (!referenceType()) {
+                        return false;
+                    }
+                }
+            } while (!peek('>'));
+            position++;
+            return true;
+        }
+
+        private boolean javaType() {
+            if (position < value.length() && "BCDFIJSZ".indexOf(value.charAt(position)) >= 0) {
+                position++;
+                return true;
+            }
+            return referenceType();
+        }
+
+        private boolean referenceType() {
+            if (peek('L')) {
+                return classType();
+            }
+            if (peek('T')) {
+                position++;
+                return identifier() && expect(';');
+            }
+            if (peek('[')) {
+                position++;
+                return javaType();
+            }
+            return false;
+        }
+
+        private boolean classType() {
+            position++;
+            int start = position;
+            if (!identifier()) {
+                return false;
+            }
+            while (peek('/')) {
+                position++;
+                if (!identifier()) {
+                    return false;
+                }
+            }
+            classes.add(value.substring(start, position));
+
+            // *** Nested classes of a parameterised class follow a '.', and fold into the outer class anyway
+            if (peek('<') && !typeArguments()) {
+                return false;
+            }
+            while (peek('.')) {
+                position++;
+                if (!identifier() || (peek('<') && !typeArguments())) {
+                    return false;
+                }
+            }
+            return expect(';');
+        }
+
+        private boolean typeArguments() {
+            position++;
+            do {
+                if (peek('*')) {
+                    position++;
+                    continue;
+                }
+                if (peek('+') || peek('-')) {
+                    position++;
+                }
+                if (!referenceType()) {
+                    return false;
+                }
+            } while (!peek('>'));
+            position++;
+            return true;
+        }
+
+        private boolean identifier() {
+            int start = position;
+            while (position < value.length()) {
+                char c = value.charAt(position);
+                if (".;[/<>:".indexOf(c) >= 0 || Character.isWhitespace(c)) {
+                    break;
+                }
+                position++;
+            }
+            return position > start;
+        }
+
+        private boolean peek(char c) {
+            return position < value.length() && value.charAt(position) == c;
+        }
+
+        private boolean expect(char c) {
+            if (!peek(c)) {
+                return false;
+            }
+            position++;
+            return true;
+        }
+    }
+
+    private static void addReference(String internalName, Set<String> classReferences) {
+        if (internalName.startsWith("java/")) {
+            return;
+        }
+        classReferences.add(topLevel(internalName));
+    }
+
+    private static String topLevel(String internalName) {
+        int lastSlash = internalName.lastIndexOf('/');
+        // *** A $ starting the simple name, as in $Proxy, is part of the name rather than a nested class
+        int dollar = internalName.indexOf('$', lastSlash + 2);
+        return dollar > lastSlash + 1 ? internalName.substring(0, dollar) : internalName;
+    }
+
+}
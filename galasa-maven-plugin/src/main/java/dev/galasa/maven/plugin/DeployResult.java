@@ -0,0 +1,72 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * The outcome of deploying a test catalog to one test stream, kept so that all the outcomes can be
+ * reported together once every deploy has been tried
+ */
+class DeployResult {
+    private final String                  name;
+    private final long                    elapsedMillis;
+    private final boolean                 deployed;
+    private final MojoExecutionException  failure;
+
+    private DeployResult(String name, long elapsedMillis, boolean deployed, MojoExecutionException failure) {
+        this.name = name;
+        this.elapsedMillis = elapsedMillis;
+        this.deployed = deployed;
+        this.failure = failure;
+    }
+
+    /**
+     * Deploy, timing it and catching the failure
+     */
+    static DeployResult deploy(TestCatalogPublisher publisher, String name, DeployTarget target, TestCatalogArtifactMavenImpl testCatalog) {
+        long start = System.nanoTime();
+        try {
+            boolean deployed = publisher.publish(target.getBootstrap(), target.getStream(), target.getToken(), testCatalog);
+            return new DeployResult(name, (System.nanoTime() - start) / 1_000_000, deployed, null);
+        } catch (MojoExecutionException e) {
+            return new DeployResult(name, (System.nanoTime() - start) / 1_000_000, false, e);
+        }
+    }
+
+    boolean isDeployed() {
+        return deployed;
+    }
+
+    /**
+     * Log each result
+     *
+     * @throws MojoExecutionException listing the deploys that failed
+     */
+    static void report(Log log, List<DeployResult> results) throws MojoExecutionException {
+        List<String> failed = new ArrayList<>();
+        log.info("Test catalog deploy results:-");
+        for (DeployResult result : results) {
+            if (result.failure != null) {
+                failed.add(result.name);
+                log.error("     " + result.name + " failed after " + result.elapsedMillis + "ms - " + result.failure.getMessage());
+            } else if (result.deployed) {
+                log.info("     " + result.name + " deployed in " + result.elapsedMillis + "ms");
+            } else {
+                log.info("     " + result.name + " unchanged, checked in " + result.elapsedMillis + "ms");
+            }
+        }
+
+        if (!failed.isEmpty()) {
+            throw new MojoExecutionException("Failed to deploy the test catalog to " + failed.size() + " of "
+                    + results.size() + " test streams: " + String.join(", ", failed));
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * A test stream of a Galasa ecosystem that a test catalog is deployed to, configured in the pom as
+ *
+ * <pre>
+ * &lt;targets&gt;
+ *     &lt;target&gt;
+ *         &lt;stream&gt;mystream&lt;/stream&gt;
+ *         &lt;bootstrap&gt;https://myecosystem/api/bootstrap&lt;/bootstrap&gt;
+ *         &lt;token&gt;optional, galasa.token is used if missing&lt;/token&gt;
+ *     &lt;/target&gt;
+ * &lt;/targets&gt;
+ * </pre>
+ */
+public class DeployTarget {
+
+    private String stream;
+    private URL    bootstrap;
+    private String token;
+
+    public DeployTarget() {
+    }
+
+    public DeployTarget(String stream, URL bootstrap, String token) {
+        this.stream = stream;
+        this.bootstrap = bootstrap;
+        this.token = token;
+    }
+
+    /**
+     * @param targets a comma separated list of stream@bootstrap, as set in the galasa.testcatalog.deploy.targets property
+     */
+    public static List<DeployTarget> parse(String targets) throws MojoExecutionException {
+        List<DeployTarget> parsed = new ArrayList<>();
+        for (String target : targets.split(",")) {
+            target = target.trim();
+            if (target.isEmpty()) {
+                continue;
+            }
+
+            int at = target.indexOf('@');
+            if (at < 1 || at == target.length() - 1) {
+                throw new MojoExecutionException("Invalid test catalog deploy target '" + target + "', expected stream@bootstrap");
+            }
+            try {
+                parsed.add(new DeployTarget(target.substring(0, at), new URL(target.substring(at + 1)), null));
+            } catch (MalformedURLException e) {
+                throw new MojoExecutionException("Invalid bootstrap URL in test catalog deploy target '" + target + "'", e);
+            }
+        }
+        return parsed;
+    }
+
+    public String getStream() {
+        return stream;
+    }
+
+    public void setStream(String stream) {
+        this.stream = stream;
+    }
+
+    public URL getBootstrap() {
+        return bootstrap;
+    }
+
+    public void setBootstrap(URL bootstrap) {
+        this.bootstrap = bootstrap;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public void setToken(String token) {
+        this.token = token;
+    }
+
+    @Override
+    public String toString() {
+        return stream + " at " + bootstrap;
+    }
+}
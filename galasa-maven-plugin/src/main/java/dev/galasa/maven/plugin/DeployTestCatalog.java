@@ -5,9 +5,20 @@
  */
 package dev.galasa.maven.plugin;
 
+import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -18,17 +29,18 @@ import org.apache.maven.project.MavenProject;
 import dev.galasa.plugin.common.PluginCommonFactory;
 import dev.galasa.plugin.common.impl.*;
 import dev.galasa.plugin.common.ErrorRaiser;
-import dev.galasa.plugin.common.TestCatalogArtifact;
-import dev.galasa.plugin.common.WrappedLog;
 
 /**
  * Merge all the test catalogs on the dependency list
  */
 @Mojo(name = "deploytestcat", defaultPhase = LifecyclePhase.DEPLOY, threadSafe = true)
-public class DeployTestCatalog extends AbstractMojo {
+public class DeployTestCatalog extends AbstractGalasaMojo {
     @Parameter(defaultValue = "${project}", readonly = true)
     public MavenProject project;
 
+    @Parameter(defaultValue = "${session}", readonly = true)
+    public MavenSession session;
+
     @Parameter(defaultValue = "${galasa.test.stream}", readonly = true, required = false)
     public String       testStream;
 
@@ -53,7 +65,62 @@ public class DeployTestCatalog extends AbstractMojo {
     @Parameter(defaultValue = "${galasa.skip.deploytestcatalog}", readonly = true, required = false)
     public boolean      skipDeployTestCatalog;
 
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    // Send the test catalog gzip compressed, the server must accept a gzip Content-Encoding
+    @Parameter(defaultValue = "false", property = "galasa.testcatalog.deploy.gzip", required = false)
+    public boolean      compress;
+
+    // Fetch the catalog the server holds first, and do not deploy the same catalog again, worth it when the
+    // catalog is large and mostly unchanged from one deploy to the next
+    @Parameter(defaultValue = "false", property = "galasa.testcatalog.deploy.skipUnchanged", required = false)
+    public boolean      skipUnchanged;
+
+    // More test streams to deploy the catalog to, each with a stream, a bootstrap and optionally a token
+    @Parameter(required = false)
+    public List<DeployTarget> targets;
+
+    // More test streams to deploy the catalog to, as a comma separated list of stream@bootstrap
+    @Parameter(property = "galasa.testcatalog.deploy.targets", required = false)
+    public String       targetList;
+
+    // Number of test streams to deploy to at once, 0 is all of them
+    @Parameter(defaultValue = "0", property = "galasa.testcatalog.deploy.threads", required = false)
+    public int          threads;
+
+    // Deploy on a background thread and let the build carry on, the build waits for it when it ends
+    @Parameter(defaultValue = "false", property = "galasa.testcatalog.deploy.async", required = false)
+    public boolean      async;
+
+    // Deploy the test catalogs of all the galasa-obr modules in the reactor together when the build ends
+    @Parameter(defaultValue = "false", property = "galasa.testcatalog.deploy.batch", required = false)
+    public boolean      batch;
+
+    // Milliseconds to wait for a connection to a Galasa server
+    @Parameter(defaultValue = "30000", property = "galasa.testcatalog.deploy.connectTimeout", required = false)
+    public int          connectTimeout = 30000;
+
+    // Milliseconds to wait for a Galasa server to reply
+    @Parameter(defaultValue = "120000", property = "galasa.testcatalog.deploy.readTimeout", required = false)
+    public int          readTimeout = 120000;
+
+    // Times to retry an upload that timed out, lost its connection or had a 5xx reply
+    @Parameter(defaultValue = "3", property = "galasa.testcatalog.deploy.retries", required = false)
+    public int          retries = 3;
+
+    // Milliseconds to wait before the first retry, doubled for each retry after it, with jitter
+    @Parameter(defaultValue = "1000", property = "galasa.testcatalog.deploy.retryBackoff", required = false)
+    public long         retryBackoff = 1000;
+
+    public DeployTestCatalog() {
+        super("deploytestcat");
+    }
+
+    @Override
+    protected MavenProject getProject() {
+        return project;
+    }
+
+    @Override
+    protected void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException {
 
 
         boolean skip = (skipBundleTestCatalog || skipBundleTestCatalogOldSpelling);
@@ -68,14 +135,18 @@ public class DeployTestCatalog extends AbstractMojo {
             return;
         }
 
-        if (testStream == null) {
-            getLog().warn("Skipping Deploy Test Catalog - test stream name is missing");
-            return;
-        }
+        List<DeployTarget> allTargets = getTargets();
+        if (allTargets.isEmpty()) {
+            if (testStream == null) {
+                getLog().warn("Skipping Deploy Test Catalog - test stream name is missing");
+                return;
+            }
 
-        if (bootstrapUrl == null) {
-            getLog().warn("Skipping Deploy Test Catalog - Bootstrap URL is missing");
-            return;
+            if (bootstrapUrl == null) {
+                getLog().warn("Skipping Deploy Test Catalog - Bootstrap URL is missing");
+                return;
+            }
+            allTargets.add(new DeployTarget(testStream, bootstrapUrl, galasaAccessToken));
         }
 
         if (!"galasa-obr".equals(project.getPackaging())) {
@@ -91,15 +162,152 @@ public class DeployTestCatalog extends AbstractMojo {
         }
 
         // Instantiate maven-specific versions of the interfaces.
-        WrappedLog wrappedLog = new WrappedLogMaven(getLog());
         PluginCommonFactory<MojoExecutionException> factory = new PluginCommonFactoryImpl<MojoExecutionException>();
         ErrorRaiser<MojoExecutionException> errorRaiser = new ErrorRaiserMavenImpl(getLog());
-        TestCatalogArtifact<MojoExecutionException> wrappedTestCatalogArtifact = new TestCatalogArtifactMavenImpl(testCatalogArtifact, errorRaiser);
-        TestCatalogArtifactDeployer<MojoExecutionException> deployer = new TestCatalogArtifactDeployer<MojoExecutionException>(
-            wrappedLog, errorRaiser, factory);
+        TestCatalogArtifactMavenImpl wrappedTestCatalogArtifact = new TestCatalogArtifactMavenImpl(testCatalogArtifact, errorRaiser, compress);
+
+        TestCatalogPublisher.logDeprecation(getLog());
+
+        if (batch) {
+            if (BackgroundDeploys.isEnabled(session)) {
+                getLog().info("The test catalog will be deployed with those of the other modules when the build ends");
+                TestCatalogBatch.get(session, getLog(), errorRaiser, factory, getOptions())
+                    .add(project.getArtifactId(), allTargets, wrappedTestCatalogArtifact);
+                return;
+            }
+            getLog().warn("Deploying the test catalog now, galasa.testcatalog.deploy.batch needs the galasa-maven-plugin to be declared with <extensions>true</extensions>");
+        } else if (async) {
+            if (BackgroundDeploys.isEnabled(session)) {
+                getLog().info("Deploying the test catalog in the background, the build will wait for it when it ends");
+                BackgroundDeploys.start(session, project.getGroupId() + ":" + project.getArtifactId(), () -> {
+                    deploy(allTargets, wrappedTestCatalogArtifact, factory, errorRaiser);
+                    return null;
+                });
+                return;
+            }
+            getLog().warn("Deploying the test catalog now, galasa.testcatalog.deploy.async needs the galasa-maven-plugin to be declared with <extensions>true</extensions>");
+        }
+
+        // *** Only a deploy made now is counted, those in the background end after the metrics are written
+        try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.UPLOAD)) {
+            int deployed = deploy(allTargets, wrappedTestCatalogArtifact, factory, errorRaiser);
+            timer.items(deployed).bytesRead(wrappedTestCatalogArtifact.getFile().length());
+            long transferLength = wrappedTestCatalogArtifact.getTransferLength();
+            if (transferLength > 0) {
+                timer.bytesWritten(deployed * transferLength);
+            }
+        }
+    }
 
+    /**
+     * @return the number of test streams the catalog was sent to, those already holding it are not counted
+     */
+    private int deploy(List<DeployTarget> allTargets, TestCatalogArtifactMavenImpl wrappedTestCatalogArtifact,
+            PluginCommonFactory<MojoExecutionException> factory, ErrorRaiser<MojoExecutionException> errorRaiser) throws MojoExecutionException {
         // Deploy the test catalog to the Galasa server.
-        deployer.deployToServer(bootstrapUrl, testStream, galasaAccessToken, wrappedTestCatalogArtifact);
+        if (allTargets.size() == 1) {
+            DeployTarget target = allTargets.get(0);
+            DeployOptions options = getOptions();
+            try (CloseableHttpClient httpClient = options.createHttpClient(1)) {
+                TestCatalogPublisher publisher = new TestCatalogPublisher(getLog(), errorRaiser, factory, httpClient);
+                publisher.setOptions(options);
+                boolean deployed = publisher.publish(target.getBootstrap(), target.getStream(), target.getToken(), wrappedTestCatalogArtifact);
+                return deployed ? 1 : 0;
+            } catch (IOException e) {
+                throw new MojoExecutionException("Problem closing the connection to the Galasa server", e);
+            }
+        }
+
+        return deployToAll(allTargets, wrappedTestCatalogArtifact, factory, errorRaiser);
+    }
+
+    /**
+     * The targets from the pom and the galasa.testcatalog.deploy.targets property, plus the
+     * galasa.test.stream and galasa.bootstrap if both are set
+     */
+    private List<DeployTarget> getTargets() throws MojoExecutionException {
+        List<DeployTarget> configured = new ArrayList<>();
+        if (targets != null) {
+            configured.addAll(targets);
+        }
+        if (targetList != null) {
+            configured.addAll(DeployTarget.parse(targetList));
+        }
+        if (!configured.isEmpty() && testStream != null && bootstrapUrl != null) {
+            configured.add(0, new DeployTarget(testStream, bootstrapUrl, galasaAccessToken));
+        }
+
+        List<DeployTarget> allTargets = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (DeployTarget target : configured) {
+            if (target.getStream() == null || target.getBootstrap() == null) {
+                throw new MojoExecutionException("Test catalog deploy target " + target + " needs both a stream and a bootstrap");
+            }
+            if (seen.add(target.toString())) {
+                String token = target.getToken() != null ? target.getToken() : galasaAccessToken;
+                allTargets.add(new DeployTarget(target.getStream(), target.getBootstrap(), token));
+            }
+        }
+        return allTargets;
+    }
+
+    /**
+     * Read the catalog once, then deploy it to all the targets at once over pooled connections, so a
+     * slow or failing ecosystem does not hold up the others. Failures are reported once all are done.
+     */
+    private int deployToAll(List<DeployTarget> allTargets, TestCatalogArtifactMavenImpl testCatalog,
+            PluginCommonFactory<MojoExecutionException> factory, ErrorRaiser<MojoExecutionException> errorRaiser) throws MojoExecutionException {
+        testCatalog.load();
+
+        int poolSize = threads > 0 ? Math.min(threads, allTargets.size()) : allTargets.size();
+        getLog().info("Deploying the test catalog to " + allTargets.size() + " test streams, " + poolSize + " at a time");
+
+        List<DeployResult> results = new ArrayList<>();
+        DeployOptions options = getOptions();
+        try (CloseableHttpClient httpClient = options.createHttpClient(poolSize)) {
+            TestCatalogPublisher publisher = new TestCatalogPublisher(getLog(), errorRaiser, factory, httpClient);
+            publisher.setOptions(options);
+
+            ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+            try {
+                List<Future<DeployResult>> futures = new ArrayList<>();
+                for (DeployTarget target : allTargets) {
+                    futures.add(executor.submit(() -> DeployResult.deploy(publisher, target.toString(), target, testCatalog)));
+                }
+                for (Future<DeployResult> future : futures) {
+                    results.add(future.get());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted deploying the test catalog", e);
+        } catch (ExecutionException e) {
+            throw new MojoExecutionException("Problem deploying the test catalog", e.getCause());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Problem closing the connections to the Galasa servers", e);
+        }
+
+        DeployResult.report(getLog(), results);
+
+        int deployed = 0;
+        for (DeployResult result : results) {
+            if (result.isDeployed()) {
+                deployed++;
+            }
+        }
+        return deployed;
+    }
+
+    private DeployOptions getOptions() {
+        DeployOptions options = new DeployOptions();
+        options.setSkipUnchanged(skipUnchanged);
+        options.setConnectTimeoutMillis(connectTimeout);
+        options.setReadTimeoutMillis(readTimeout);
+        options.setRetries(retries);
+        options.setRetryBackoffMillis(retryBackoff);
+        return options;
     }
 
     private Artifact getTestCatalogArtifact() {
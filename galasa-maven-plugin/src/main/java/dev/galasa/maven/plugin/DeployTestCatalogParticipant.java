@@ -0,0 +1,44 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import org.apache.maven.AbstractMavenLifecycleParticipant;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.logging.LogEnabled;
+import org.codehaus.plexus.logging.Logger;
+
+/**
+ * Waits at the end of the build for the test catalogs being deployed in the background, see
+ * galasa.testcatalog.deploy.async. Only active when the plugin is declared with extensions.
+ */
+public class DeployTestCatalogParticipant extends AbstractMavenLifecycleParticipant implements LogEnabled {
+
+    private Logger logger;
+
+    @Override
+    public void enableLogging(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void afterProjectsRead(MavenSession session) throws MavenExecutionException {
+        BackgroundDeploys.enable(session);
+    }
+
+    @Override
+    public void afterSessionEnd(MavenSession session) throws MavenExecutionException {
+        Log log = new DefaultLog(logger);
+        try {
+            BackgroundDeploys.join(session, log);
+        } catch (MojoExecutionException e) {
+            throw new MavenExecutionException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.nio.file.Path;
+
+/**
+ * A bundle accepted into an embedded repository, with the digest and size of its content
+ */
+public class EmbeddedBundle {
+
+    private final String artifactId;
+    private final String fileName;
+    private final Path   source;
+    private final String sha256;
+    private final long   size;
+    private final String previousSha256;
+
+    /**
+     * @param previousSha256 the digest recorded for this file name by the previous build, null if not known
+     */
+    public EmbeddedBundle(String fileName, Path source, String sha256, long size, String previousSha256) {
+        this(null, fileName, source, sha256, size, previousSha256);
+    }
+
+    /**
+     * @param artifactId     the artifact the bundle came from, only used to name it in flight recordings
+     * @param previousSha256 the digest recorded for this file name by the previous build, null if not known
+     */
+    public EmbeddedBundle(String artifactId, String fileName, Path source, String sha256, long size, String previousSha256) {
+        this.artifactId = artifactId;
+        this.fileName = fileName;
+        this.source = source;
+        this.sha256 = sha256;
+        this.size = size;
+        this.previousSha256 = previousSha256;
+    }
+
+    /**
+     * @return the artifact ID, or the file name if it is not known
+     */
+    public String getArtifactId() {
+        return artifactId != null ? artifactId : fileName;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Path getSource() {
+        return source;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public String getPreviousSha256() {
+        return previousSha256;
+    }
+
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.maven.plugin.logging.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+/**
+ * The feature files found by a {@link FeatureFileScanner}, with their sizes, last modified times and
+ * digests, written under the build directory so later Gherkin goals in the same or a later build can
+ * reuse the scan.
+ *
+ * The manifest is reused only while it is fresh: the scan settings are the same and no walked
+ * directory or listed feature file has changed its last modified time or size. Adding or removing a
+ * file changes the last modified time of its directory, so this is found without listing anything.
+ */
+public class FeatureFileManifest {
+
+    public static final String FILE_NAME   = "gherkin-features.json";
+
+    // *** Anything changed this close to the scan may have changed again within the same timestamp,
+    // *** so it is not trusted to be unchanged
+    private static final long  RACY_MILLIS = 2000;
+
+    private String                   baseDirectory;
+    private List<String>             includes;
+    private List<String>             excludes;
+    private long                     scanTime;
+    private TreeMap<String, Long>    directories = new TreeMap<>();
+    private TreeMap<String, Feature> features    = new TreeMap<>();
+
+    private transient Path           base;
+
+    public static class Feature {
+        private long   size;
+        private long   lastModified;
+        private String sha256;
+
+        public long getSize() {
+            return size;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+    }
+
+    /**
+     * Reuse the manifest in the output directory if it is fresh, otherwise scan the base directory and
+     * write a new manifest. Digests are carried over for feature files that have not changed.
+     */
+    public static FeatureFileManifest scan(Log log, Path baseDirectory, File outputDirectory, List<String> includes,
+            List<String> excludes, int threads, boolean reuse) throws IOException {
+        File manifestFile = new File(outputDirectory, FILE_NAME);
+        FeatureFileManifest previous = reuse ? read(log, manifestFile, baseDirectory) : null;
+
+        if (previous != null && previous.isFresh(includes, excludes)) {
+            log.info("Reusing the feature file scan in " + manifestFile + " for " + previous.features.size() + " feature(s)");
+            return previous;
+        }
+
+        FeatureFileManifest manifest = new FeatureFileManifest();
+        manifest.base = baseDirectory;
+        manifest.baseDirectory = baseDirectory.toAbsolutePath().toString();
+        manifest.includes = includes;
+        manifest.excludes = excludes;
+        manifest.scanTime = System.currentTimeMillis();
+
+        FeatureFileScanner scanner = new FeatureFileScanner(baseDirectory, includes, excludes, threads);
+        List<Path> files = scanner.scan();
+        for (Map.Entry<Path, Long> directory : scanner.getDirectories().entrySet()) {
+            manifest.directories.put(manifest.relative(directory.getKey()), directory.getValue());
+        }
+
+        Map<String, Feature> previousFeatures = previous == null ? new HashMap<>() : previous.features;
+        for (Path file : files) {
+            String relative = manifest.relative(file);
+
+            Feature feature = new Feature();
+            feature.size = Files.size(file);
+            feature.lastModified = Files.getLastModifiedTime(file).toMillis();
+
+            Feature previousFeature = previousFeatures.get(relative);
+            if (previousFeature != null && previousFeature.size == feature.size
+                    && previousFeature.lastModified == feature.lastModified
+                    && !previous.isRacy(feature.lastModified)) {
+                feature.sha256 = previousFeature.sha256;
+            } else {
+                try (InputStream is = Files.newInputStream(file)) {
+                    feature.sha256 = DigestUtils.sha256Hex(is);
+                }
+            }
+            manifest.features.put(relative, feature);
+        }
+
+        if (!outputDirectory.exists()) {
+            outputDirectory.mkdirs();
+        }
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        Files.write(manifestFile.toPath(), gson.toJson(manifest).getBytes(StandardCharsets.UTF_8));
+
+        log.info("Scanned " + baseDirectory + " for feature files, found " + manifest.features.size());
+        return manifest;
+    }
+
+    private static FeatureFileManifest read(Log log, File manifestFile, Path baseDirectory) {
+        if (!manifestFile.exists()) {
+            return null;
+        }
+
+        try {
+            String content = new String(Files.readAllBytes(manifestFile.toPath()), StandardCharsets.UTF_8);
+            FeatureFileManifest manifest = new Gson().fromJson(content, FeatureFileManifest.class);
+            if (manifest == null || manifest.directories == null || manifest.features == null
+                    || !baseDirectory.toAbsolutePath().toString().equals(manifest.baseDirectory)) {
+                return null;
+            }
+            manifest.base = baseDirectory;
+            return manifest;
+        } catch (IOException | JsonParseException e) {
+            log.warn("Unable to read the previous feature file scan, scanning again - " + e.getMessage());
+            return null;
+        }
+    }
+
+    private boolean isFresh(List<String> includes, List<String> excludes) throws IOException {
+        if (!Objects.equals(this.includes, includes) || !Objects.equals(this.excludes, excludes)) {
+            return false;
+        }
+
+        for (Map.Entry<String, Long> directory : directories.entrySet()) {
+            Path path = base.resolve(directory.getKey());
+            if (!Files.isDirectory(path) || isRacy(directory.getValue())
+                    || Files.getLastModifiedTime(path).toMillis() != directory.getValue()) {
+                return false;
+            }
+        }
+
+        for (Map.Entry<String, Feature> feature : features.entrySet()) {
+            Path path = base.resolve(feature.getKey());
+            if (!Files.isRegularFile(path) || isRacy(feature.getValue().lastModified)
+                    || Files.size(path) != feature.getValue().size
+                    || Files.getLastModifiedTime(path).toMillis() != feature.getValue().lastModified) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isRacy(long lastModified) {
+        return lastModified >= scanTime - RACY_MILLIS;
+    }
+
+    private String relative(Path path) {
+        return base.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * @return the feature files, sorted
+     */
+    public List<Path> getFiles() {
+        List<Path> files = new ArrayList<>();
+        for (String relative : features.keySet()) {
+            files.add(base.resolve(relative));
+        }
+        return files;
+    }
+
+    public Feature getFeature(Path file) {
+        return features.get(relative(file));
+    }
+
+}
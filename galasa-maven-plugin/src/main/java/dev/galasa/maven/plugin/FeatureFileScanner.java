@@ -0,0 +1,174 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds the Gherkin feature files under a base directory.
+ *
+ * Directories matching an exclude pattern are pruned before they are descended into, so build
+ * output and VCS metadata are never walked. Patterns are globs relative to the base directory, where
+ * "**" can also match no directories at all. Subdirectories are walked in parallel on a fork join
+ * pool, and the files found are returned sorted so the result does not depend on the walk order.
+ */
+public class FeatureFileScanner {
+
+    public static final List<String> DEFAULT_INCLUDES = Collections.unmodifiableList(Arrays.asList("**/*.feature"));
+    public static final List<String> DEFAULT_EXCLUDES = Collections.unmodifiableList(Arrays.asList("**/target/**", "**/.*/**"));
+
+    private final Path              baseDirectory;
+    private final List<PathMatcher> includes;
+    private final List<PathMatcher> excludes;
+    private final List<PathMatcher> excludedDirectories;
+    private final int               threads;
+
+    private final Map<Path, Long>   directories = new ConcurrentHashMap<>();
+
+    /**
+     * @param includes globs of the files to return, defaults to all .feature files if null or empty
+     * @param excludes globs of the files and directories to skip, defaults to target and hidden directories if null
+     * @param threads  the number of threads walking the tree, 0 is the number of processors
+     */
+    public FeatureFileScanner(Path baseDirectory, List<String> includes, List<String> excludes, int threads) {
+        this.baseDirectory = baseDirectory;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+
+        if (includes == null || includes.isEmpty()) {
+            includes = DEFAULT_INCLUDES;
+        }
+        if (excludes == null) {
+            excludes = DEFAULT_EXCLUDES;
+        }
+
+        FileSystem fileSystem = baseDirectory.getFileSystem();
+        this.includes = compile(fileSystem, includes);
+        this.excludes = compile(fileSystem, excludes);
+
+        // *** "dir/**" excludes the directory itself, so it can be pruned without listing it
+        List<String> directoryGlobs = new ArrayList<>();
+        for (String exclude : excludes) {
+            if (exclude.endsWith("/**")) {
+                directoryGlobs.add(exclude.substring(0, exclude.length() - 3));
+            } else {
+                directoryGlobs.add(exclude);
+            }
+        }
+        this.excludedDirectories = compile(fileSystem, directoryGlobs);
+    }
+
+    private static List<PathMatcher> compile(FileSystem fileSystem, List<String> globs) {
+        List<PathMatcher> matchers = new ArrayList<>();
+        for (String glob : globs) {
+            glob = glob.trim();
+            if (glob.isEmpty()) {
+                continue;
+            }
+            matchers.add(fileSystem.getPathMatcher("glob:" + glob));
+            // *** As with Ant, "**" also matches no directories at all
+            if (glob.startsWith("**/")) {
+                matchers.add(fileSystem.getPathMatcher("glob:" + glob.substring(3)));
+            }
+            if (glob.contains("/**/")) {
+                matchers.add(fileSystem.getPathMatcher("glob:" + glob.replace("/**/", "/")));
+            }
+        }
+        return matchers;
+    }
+
+    /**
+     * @return the matching files, sorted
+     */
+    public List<Path> scan() throws IOException {
+        Queue<Path> found = new ConcurrentLinkedQueue<>();
+        directories.clear();
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new ScanDirectory(baseDirectory, found));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+
+        List<Path> files = new ArrayList<>(found);
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * @return the directories walked by the last scan with their last modified times from before they
+     *         were listed, so a later change of their content can be detected without listing them again
+     */
+    public Map<Path, Long> getDirectories() {
+        return new TreeMap<>(directories);
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, Path relative) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relative)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class ScanDirectory extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Path        directory;
+        private final Queue<Path> found;
+
+        private ScanDirectory(Path directory, Queue<Path> found) {
+            this.directory = directory;
+            this.found = found;
+        }
+
+        @Override
+        protected void compute() {
+            List<ScanDirectory> subdirectories = new ArrayList<>();
+            try {
+                directories.put(directory, Files.getLastModifiedTime(directory).toMillis());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to scan directory " + directory, e);
+            }
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path path : stream) {
+                    Path relative = baseDirectory.relativize(path);
+                    if (Files.isDirectory(path)) {
+                        if (!matches(excludedDirectories, relative)) {
+                            subdirectories.add(new ScanDirectory(path, found));
+                        }
+                    } else if (matches(includes, relative) && !matches(excludes, relative)) {
+                        found.add(path);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to scan directory " + directory, e);
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+}
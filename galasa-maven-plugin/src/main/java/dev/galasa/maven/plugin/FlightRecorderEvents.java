@@ -0,0 +1,163 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The jdk.jfr side of {@link PluginEvents}, only loaded once the jdk.jfr API is known to be there
+ */
+final class FlightRecorderEvents {
+
+    @Category({ "Galasa", "Maven Plugin" })
+    abstract static class GalasaEvent extends jdk.jfr.Event {
+        @Label("Artifact ID")
+        String artifactId;
+
+        @Label("Bytes")
+        @DataAmount
+        long   bytes;
+
+        @Label("Items")
+        long   items;
+
+        @Label("Detail")
+        String detail;
+    }
+
+    @Name("dev.galasa.maven.plugin.Discovery")
+    @Label("Discovery")
+    @Description("A scan of a classpath for test classes, or of a project for feature files")
+    static class DiscoveryEvent extends GalasaEvent {
+    }
+
+    @Name("dev.galasa.maven.plugin.BundleAnalysis")
+    @Label("Bundle Analysis")
+    @Description("The analysis of one bundle for an OBR")
+    static class BundleAnalysisEvent extends GalasaEvent {
+    }
+
+    @Name("dev.galasa.maven.plugin.TestCatalogMerge")
+    @Label("Test Catalog Merge")
+    @Description("Reading the test catalog of one dependency and merging it")
+    static class TestCatalogMergeEvent extends GalasaEvent {
+    }
+
+    @Name("dev.galasa.maven.plugin.FileCopy")
+    @Label("File Copy")
+    @Description("Copying one bundle into an embedded repository")
+    static class FileCopyEvent extends GalasaEvent {
+    }
+
+    @Name("dev.galasa.maven.plugin.Deploy")
+    @Label("Test Catalog Deploy")
+    @Description("One HTTP request deploying a test catalog to a Galasa server")
+    static class DeployEvent extends GalasaEvent {
+        @Label("Status Code")
+        int statusCode;
+    }
+
+    private static class RecordedEvent implements PluginEvents.Event {
+        private final GalasaEvent event;
+
+        private RecordedEvent(GalasaEvent event) {
+            this.event = event;
+        }
+
+        @Override
+        public PluginEvents.Event bytes(long bytes) {
+            event.bytes += bytes;
+            return this;
+        }
+
+        @Override
+        public PluginEvents.Event items(long items) {
+            event.items += items;
+            return this;
+        }
+
+        @Override
+        public PluginEvents.Event detail(String detail) {
+            event.detail = detail;
+            return this;
+        }
+
+        @Override
+        public PluginEvents.Event statusCode(int statusCode) {
+            if (event instanceof DeployEvent) {
+                ((DeployEvent) event).statusCode = statusCode;
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            event.commit();
+        }
+    }
+
+    /**
+     * The registered type of each event, only looked up once a recording has been started
+     */
+    private static final class EventTypes {
+        private static final Map<PluginEvents.Type, EventType> TYPES = new EnumMap<>(PluginEvents.Type.class);
+
+        static {
+            for (PluginEvents.Type type : PluginEvents.Type.values()) {
+                TYPES.put(type, EventType.getEventType(create(type).getClass()));
+            }
+        }
+    }
+
+    private FlightRecorderEvents() {
+    }
+
+    static boolean isAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    static PluginEvents.Event begin(PluginEvents.Type type, String artifactId) {
+        // *** Nothing is created until a recording has been started in this JVM
+        if (!FlightRecorder.isInitialized()) {
+            return PluginEvents.NONE;
+        }
+
+        // *** Nor for an event that no recording is taking
+        if (!EventTypes.TYPES.get(type).isEnabled()) {
+            return PluginEvents.NONE;
+        }
+
+        GalasaEvent event = create(type);
+        event.artifactId = artifactId;
+        event.begin();
+        return new RecordedEvent(event);
+    }
+
+    private static GalasaEvent create(PluginEvents.Type type) {
+        switch (type) {
+            case DISCOVERY:
+                return new DiscoveryEvent();
+            case BUNDLE_ANALYSIS:
+                return new BundleAnalysisEvent();
+            case TEST_CATALOG_MERGE:
+                return new TestCatalogMergeEvent();
+            case FILE_COPY:
+                return new FileCopyEvent();
+            case DEPLOY:
+            default:
+                return new DeployEvent();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the outline of a Gherkin feature file a line at a time: the feature title and tags, and each
+ * scenario with its tags and, for a scenario outline, the number of example rows.
+ *
+ * Only the structure needed for the test catalog is kept, steps are skipped over without being
+ * parsed and doc strings are skipped entirely, so keywords inside them are not mistaken for structure.
+ */
+public class GherkinFeatureReader {
+
+    public static class Feature {
+        private String               title;
+        private final List<String>   tags      = new ArrayList<>();
+        private final List<Scenario> scenarios = new ArrayList<>();
+
+        public String getTitle() {
+            return title;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public List<Scenario> getScenarios() {
+            return scenarios;
+        }
+    }
+
+    public static class Scenario {
+        private final String       name;
+        private final boolean      outline;
+        private final List<String> tags;
+        private int                examples;
+
+        private Scenario(String name, boolean outline, List<String> tags) {
+            this.name = name;
+            this.outline = outline;
+            this.tags = tags;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isOutline() {
+            return outline;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        /**
+         * @return the number of example rows for a scenario outline, not counting the header rows
+         */
+        public int getExamples() {
+            return examples;
+        }
+    }
+
+    public static Feature read(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    public static Feature read(Reader input) throws IOException {
+        BufferedReader reader = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+
+        Feature feature = new Feature();
+        List<String> pendingTags = new ArrayList<>();
+        Scenario current = null;
+        boolean inExamples = false;
+        boolean examplesHeaderSeen = false;
+        String docStringDelimiter = null;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+
+            if (docStringDelimiter != null) {
+                if (line.startsWith(docStringDelimiter)) {
+                    docStringDelimiter = null;
+                }
+                continue;
+            }
+
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            if (line.startsWith("\"\"\"") || line.startsWith("```")) {
+                docStringDelimiter = line.substring(0, 3);
+                continue;
+            }
+
+            char first = line.charAt(0);
+            if (first == '@') {
+                addTags(line, pendingTags);
+                continue;
+            }
+
+            if (first == '|') {
+                if (inExamples && current != null) {
+                    if (examplesHeaderSeen) {
+                        current.examples++;
+                    } else {
+                        examplesHeaderSeen = true;
+                    }
+                }
+                continue;
+            }
+
+            String title;
+            if ((title = keyword(line, "Feature:")) != null) {
+                feature.title = title;
+                feature.tags.addAll(pendingTags);
+            } else if ((title = keyword(line, "Scenario Outline:")) != null
+                    || (title = keyword(line, "Scenario Template:")) != null) {
+                current = new Scenario(title, true, new ArrayList<>(pendingTags));
+                feature.scenarios.add(current);
+                inExamples = false;
+            } else if ((title = keyword(line, "Scenario:")) != null || (title = keyword(line, "Example:")) != null) {
+                current = new Scenario(title, false, new ArrayList<>(pendingTags));
+                feature.scenarios.add(current);
+                inExamples = false;
+            } else if (keyword(line, "Examples:") != null || keyword(line, "Scenarios:") != null) {
+                inExamples = true;
+                examplesHeaderSeen = false;
+            } else if (keyword(line, "Background:") != null || keyword(line, "Rule:") != null) {
+                current = null;
+                inExamples = false;
+            } else {
+                // *** A step or free text
+                continue;
+            }
+            pendingTags.clear();
+        }
+
+        return feature;
+    }
+
+    private static String keyword(String line, String keyword) {
+        if (line.startsWith(keyword)) {
+            return line.substring(keyword.length()).trim();
+        }
+        return null;
+    }
+
+    private static void addTags(String line, List<String> tags) {
+        int start = -1;
+        for (int i = 0; i <= line.length(); i++) {
+            char c = i < line.length() ? line.charAt(i) : ' ';
+            if (Character.isWhitespace(c)) {
+                if (start >= 0) {
+                    tags.add(line.substring(start, i));
+                    start = -1;
+                }
+            } else if (c == '#' && start < 0) {
+                // *** The rest of the line is a comment
+                return;
+            } else if (start < 0) {
+                start = i;
+            }
+        }
+    }
+
+}
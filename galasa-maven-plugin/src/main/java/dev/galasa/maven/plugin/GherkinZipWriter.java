@@ -0,0 +1,249 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipFile;
+
+/**
+ * Writes a zip of feature files, compressing the entries in parallel into separate buffers and then
+ * assembling the archive in entry name order.
+ *
+ * Every entry has the same fixed timestamp, so the same files always produce the same bytes. The
+ * archive comment holds a fingerprint of the content, which lets the caller find out whether an
+ * existing zip already holds the files without rebuilding it.
+ */
+public class GherkinZipWriter {
+
+    private static final int  LOCAL_HEADER     = 0x04034b50;
+    private static final int  CENTRAL_HEADER   = 0x02014b50;
+    private static final int  END_OF_CENTRAL   = 0x06054b50;
+    private static final int  VERSION          = 20;
+    private static final int  FLAG_UTF8        = 0x0800;
+    private static final int  METHOD_DEFLATED  = 8;
+    // *** 1980-01-01 00:00 in DOS date and time format, the same in every timezone
+    private static final int  DOS_TIME         = 0;
+    private static final int  DOS_DATE         = (1 << 5) | 1;
+
+    private final int         threads;
+
+    public GherkinZipWriter(int threads) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * @param entries the files to zip by entry name, written in the order of the map
+     * @param comment the archive comment, usually the fingerprint of the entries
+     */
+    public void write(Path zipFile, SortedMap<String, Path> entries, String comment) throws IOException {
+        if (entries.size() > 0xFFFF) {
+            throw new IOException("Too many feature files for a zip without zip64 support - " + entries.size());
+        }
+
+        List<String> names = new ArrayList<>(entries.keySet());
+        List<Compressed> compressed = compress(names, entries);
+
+        Path tempFile = zipFile.resolveSibling(zipFile.getFileName() + ".tmp");
+        try (LittleEndianOutputStream out = new LittleEndianOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            long[] offsets = new long[names.size()];
+            for (int i = 0; i < names.size(); i++) {
+                offsets[i] = out.count;
+                byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+                Compressed entry = compressed.get(i);
+
+                out.writeInt(LOCAL_HEADER);
+                out.writeShort(VERSION);
+                out.writeShort(FLAG_UTF8);
+                out.writeShort(METHOD_DEFLATED);
+                out.writeShort(DOS_TIME);
+                out.writeShort(DOS_DATE);
+                out.writeInt((int) entry.crc);
+                out.writeInt(entry.data.length);
+                out.writeInt((int) entry.size);
+                out.writeShort(name.length);
+                out.writeShort(0);
+                out.write(name);
+                out.write(entry.data);
+            }
+
+            long centralOffset = out.count;
+            for (int i = 0; i < names.size(); i++) {
+                byte[] name = names.get(i).getBytes(StandardCharsets.UTF_8);
+                Compressed entry = compressed.get(i);
+
+                out.writeInt(CENTRAL_HEADER);
+                out.writeShort(VERSION);
+                out.writeShort(VERSION);
+                out.writeShort(FLAG_UTF8);
+                out.writeShort(METHOD_DEFLATED);
+                out.writeShort(DOS_TIME);
+                out.writeShort(DOS_DATE);
+                out.writeInt((int) entry.crc);
+                out.writeInt(entry.data.length);
+                out.writeInt((int) entry.size);
+                out.writeShort(name.length);
+                out.writeShort(0);
+                out.writeShort(0);
+                out.writeShort(0);
+                out.writeShort(0);
+                out.writeInt(0);
+                out.writeInt((int) offsets[i]);
+                out.write(name);
+            }
+            long centralSize = out.count - centralOffset;
+            if (out.count > 0xFFFFFFFFL) {
+                throw new IOException("Feature files too large for a zip without zip64 support");
+            }
+
+            byte[] commentBytes = comment == null ? new byte[0] : comment.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(END_OF_CENTRAL);
+            out.writeShort(0);
+            out.writeShort(0);
+            out.writeShort(names.size());
+            out.writeShort(names.size());
+            out.writeInt((int) centralSize);
+            out.writeInt((int) centralOffset);
+            out.writeShort(commentBytes.length);
+            out.write(commentBytes);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+
+        Files.move(tempFile, zipFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @return the comment of an existing zip, or null if there is no readable zip
+     */
+    public static String readComment(Path zipFile) {
+        if (!Files.isRegularFile(zipFile)) {
+            return null;
+        }
+        try (ZipFile zip = new ZipFile(zipFile.toFile(), StandardCharsets.UTF_8)) {
+            return zip.getComment();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private List<Compressed> compress(List<String> names, Map<String, Path> entries) throws IOException {
+        List<Compressed> compressed = new ArrayList<>();
+        if (names.isEmpty()) {
+            return compressed;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, names.size()));
+        try {
+            List<Future<Compressed>> futures = new ArrayList<>();
+            for (String name : names) {
+                Path file = entries.get(name);
+                futures.add(executor.submit(() -> compress(file)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    compressed.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    throw new IOException("Problem compressing " + entries.get(names.get(i)), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted compressing feature files", e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return compressed;
+    }
+
+    private Compressed compress(Path file) throws IOException {
+        Compressed compressed = new Compressed();
+        CRC32 crc = new CRC32();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream is = Files.newInputStream(file);
+                DeflaterOutputStream dos = new DeflaterOutputStream(buffer, deflater)) {
+            byte[] bytes = new byte[8192];
+            int read;
+            while ((read = is.read(bytes)) != -1) {
+                crc.update(bytes, 0, read);
+                dos.write(bytes, 0, read);
+                compressed.size += read;
+            }
+        } finally {
+            deflater.end();
+        }
+        if (compressed.size > 0xFFFFFFFFL) {
+            throw new IOException("Feature file too large for a zip without zip64 support - " + file);
+        }
+        compressed.crc = crc.getValue();
+        compressed.data = buffer.toByteArray();
+        return compressed;
+    }
+
+    private static class Compressed {
+        private long   crc;
+        private long   size;
+        private byte[] data;
+    }
+
+    private static class LittleEndianOutputStream extends OutputStream {
+        private final OutputStream out;
+        private long               count;
+
+        private LittleEndianOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        private void writeShort(int value) throws IOException {
+            write(value & 0xFF);
+            write((value >>> 8) & 0xFF);
+        }
+
+        private void writeInt(int value) throws IOException {
+            writeShort(value & 0xFFFF);
+            writeShort((value >>> 16) & 0xFFFF);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+}
@@ -16,9 +16,9 @@ import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Dependency;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.Component;
@@ -45,7 +45,7 @@ import dev.galasa.plugin.common.impl.GsonFactory;
  * Merge all the test catalogs on the dependency list
  */
 @Mojo(name = "mergetestcat", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true, requiresDependencyCollection = ResolutionScope.COMPILE_PLUS_RUNTIME, requiresDependencyResolution = ResolutionScope.COMPILE_PLUS_RUNTIME)
-public class MergeTestCatalogs extends AbstractMojo {
+public class MergeTestCatalogs extends AbstractGalasaMojo {
     @Parameter(defaultValue = "${project}", readonly = true)
     private MavenProject            project;
 
@@ -75,7 +75,17 @@ public class MergeTestCatalogs extends AbstractMojo {
 
     protected GsonFactory gsonFactory = new GsonFactory();
 
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    public MergeTestCatalogs() {
+        super("mergetestcat");
+    }
+
+    @Override
+    protected MavenProject getProject() {
+        return project;
+    }
+
+    @Override
+    protected void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException {
 
         if (skip) {
             getLog().info("Skipping Bundle Test Catalog build");
@@ -130,131 +140,150 @@ public class MergeTestCatalogs extends AbstractMojo {
                     continue;
                 }
 
-                JsonObject testCatalogRoot = null;
-
-                // *** First check if the jar is new format with testcatalog embedded
-                for(Artifact artifact : project.getArtifacts()) {
-                    if (dependency.getGroupId().equals(artifact.getGroupId())
-                            && dependency.getArtifactId().equals(artifact.getArtifactId())
-                            && dependency.getType().equals(artifact.getType())) {
-                        testCatalogRoot = getEmbeddedTestCatalog(artifact, gson);
-                        break;
-                    }
-                }
-
-                if (testCatalogRoot == null) {
-                    // *** Try and see if the dependency has a sister test catalog
-                    DefaultArtifact artifactTestCatalog = new DefaultArtifact(dependency.getGroupId(),
-                            dependency.getArtifactId(), "testcatalog", "json", dependency.getVersion());
+                try (PluginEvents.Event event = PluginEvents.begin(PluginEvents.Type.TEST_CATALOG_MERGE, dependency.getArtifactId())) {
+                    JsonObject testCatalogRoot = null;
+                    try (BuildMetrics.Timer parse = metrics.start(BuildMetrics.Phase.PARSE)) {
+
+                        // *** First check if the jar is new format with testcatalog embedded
+                        for(Artifact artifact : project.getArtifacts()) {
+                            if (dependency.getGroupId().equals(artifact.getGroupId())
+                                    && dependency.getArtifactId().equals(artifact.getArtifactId())
+                                    && dependency.getType().equals(artifact.getType())) {
+                                testCatalogRoot = getEmbeddedTestCatalog(artifact, gson, parse);
+                                event.detail("embedded");
+                                break;
+                            }
+                        }
 
-                    ArtifactRequest request = new ArtifactRequest();
-                    request.setArtifact(artifactTestCatalog);
+                        if (testCatalogRoot == null) {
+                            // *** Try and see if the dependency has a sister test catalog
+                            DefaultArtifact artifactTestCatalog = new DefaultArtifact(dependency.getGroupId(),
+                                    dependency.getArtifactId(), "testcatalog", "json", dependency.getVersion());
+
+                            ArtifactRequest request = new ArtifactRequest();
+                            request.setArtifact(artifactTestCatalog);
+
+                            ArtifactResult result = null;
+                            try {
+                                result = repoSystem.resolveArtifact(repoSession, request);
+                            } catch (Exception e) {
+                                getLog().warn(e.getMessage());
+                            }
+
+                            if (result != null) {
+                                getLog().info("Merging bundle test catalog " + result.getArtifact().toString());
+
+                                String subTestCatalog = FileUtils.readFileToString(result.getArtifact().getFile(), "utf-8");
+                                testCatalogRoot = gson.fromJson(subTestCatalog, JsonObject.class);
+                                parse.bytesRead(result.getArtifact().getFile().length());
+                                event.detail("sister");
+                            }
+                        }
 
-                    ArtifactResult result = null;
-                    try {
-                        result = repoSystem.resolveArtifact(repoSession, request);
-                    } catch (Exception e) {
-                        getLog().warn(e.getMessage());
+                        event.bytes(parse.getBytesRead());
+                        if (testCatalogRoot != null) {
+                            parse.items(1);
+                        }
                     }
-
-                    if (result != null) {
-                        getLog().info("Merging bundle test catalog " + result.getArtifact().toString());
-
-                        String subTestCatalog = FileUtils.readFileToString(result.getArtifact().getFile(), "utf-8");
-                        testCatalogRoot = gson.fromJson(subTestCatalog, JsonObject.class);
+                    if (testCatalogRoot == null) {
+                        event.detail(null);
+                        continue;
                     }
-                }
-                
-                if (testCatalogRoot == null) {
-                    continue;
-                }
 
-                // *** Append/replace all the test classes
-                JsonObject subTestClasses = testCatalogRoot.getAsJsonObject("classes");
-                if(subTestClasses != null) {
-                    for (Entry<String, JsonElement> testClassEntry : subTestClasses.entrySet()) {
-                        String name = testClassEntry.getKey();
-                        JsonElement tc = testClassEntry.getValue();
+                    JsonObject subTestClasses;
+                    try (BuildMetrics.Timer merge = metrics.start(BuildMetrics.Phase.MERGE)) {
+                        merge.items(1);
 
-                        jsonClasses.add(name, tc);
-                    }
-                }
+                        // *** Append/replace all the test classes
+                        subTestClasses = testCatalogRoot.getAsJsonObject("classes");
+                        if(subTestClasses != null) {
+                            for (Entry<String, JsonElement> testClassEntry : subTestClasses.entrySet()) {
+                                String name = testClassEntry.getKey();
+                                JsonElement tc = testClassEntry.getValue();
 
-                // *** Append to the packages
-                JsonObject subPackages = testCatalogRoot.getAsJsonObject("packages");
-                if(subPackages != null) {
-                    for (Entry<String, JsonElement> packageEntry : subPackages.entrySet()) {
-                        String name = packageEntry.getKey();
-                        JsonArray list = (JsonArray) packageEntry.getValue();
-
-                        JsonArray mergedPackage = jsonPackages.getAsJsonArray(name);
-                        if (mergedPackage == null) {
-                            mergedPackage = new JsonArray();
-                            jsonPackages.add(name, mergedPackage);
+                                jsonClasses.add(name, tc);
+                            }
                         }
 
-                        for (int i = 0; i < list.size(); i++) {
-                            String className = list.get(i).getAsString();
-                            mergedPackage.add(className);
+                        // *** Append to the packages
+                        JsonObject subPackages = testCatalogRoot.getAsJsonObject("packages");
+                        if(subPackages != null) {
+                            for (Entry<String, JsonElement> packageEntry : subPackages.entrySet()) {
+                                String name = packageEntry.getKey();
+                                JsonArray list = (JsonArray) packageEntry.getValue();
+
+                                JsonArray mergedPackage = jsonPackages.getAsJsonArray(name);
+                                if (mergedPackage == null) {
+                                    mergedPackage = new JsonArray();
+                                    jsonPackages.add(name, mergedPackage);
+                                }
+
+                                for (int i = 0; i < list.size(); i++) {
+                                    String className = list.get(i).getAsString();
+                                    mergedPackage.add(className);
+                                }
+                            }
                         }
-                    }
-                }
 
-                // *** Append/replace all the bundles
-                JsonObject subBundles = testCatalogRoot.getAsJsonObject("bundles");
-                if(subBundles != null) {
-                    for (Entry<String, JsonElement> bundleEntry : subBundles.entrySet()) {
-                        String name = bundleEntry.getKey();
-                        JsonElement tc = bundleEntry.getValue();
+                        // *** Append/replace all the bundles
+                        JsonObject subBundles = testCatalogRoot.getAsJsonObject("bundles");
+                        if(subBundles != null) {
+                            for (Entry<String, JsonElement> bundleEntry : subBundles.entrySet()) {
+                                String name = bundleEntry.getKey();
+                                JsonElement tc = bundleEntry.getValue();
 
-                        jsonBundles.add(name, tc);
-                    }
-                }
+                                jsonBundles.add(name, tc);
+                            }
+                        }
 
-                // *** Append/replace all the Shared Environments
-                JsonObject subSenv = testCatalogRoot.getAsJsonObject("sharedEnvironments");
-                if(subSenv != null) {
-                    for (Entry<String, JsonElement> senvEntry : subSenv.entrySet()) {
-                        String name = senvEntry.getKey();
-                        JsonElement tc = senvEntry.getValue();
+                        // *** Append/replace all the Shared Environments
+                        JsonObject subSenv = testCatalogRoot.getAsJsonObject("sharedEnvironments");
+                        if(subSenv != null) {
+                            for (Entry<String, JsonElement> senvEntry : subSenv.entrySet()) {
+                                String name = senvEntry.getKey();
+                                JsonElement tc = senvEntry.getValue();
 
-                        jsonSenv.add(name, tc);
-                    }
-                }
+                                jsonSenv.add(name, tc);
+                            }
+                        }
 
-                // *** Append/replace all the Gherkin
-                JsonObject subGherkin = testCatalogRoot.getAsJsonObject("gherkin");
-                if(subGherkin != null) {
-                    for (Entry<String, JsonElement> gherkinEntry : subGherkin.entrySet()) {
-                        String name = gherkinEntry.getKey();
-                        JsonElement tc = gherkinEntry.getValue();
+                        // *** Append/replace all the Gherkin
+                        JsonObject subGherkin = testCatalogRoot.getAsJsonObject("gherkin");
+                        if(subGherkin != null) {
+                            for (Entry<String, JsonElement> gherkinEntry : subGherkin.entrySet()) {
+                                String name = gherkinEntry.getKey();
+                                JsonElement tc = gherkinEntry.getValue();
 
-                        jsonGherkin.add(name, tc);
-                    }
-                }
+                                jsonGherkin.add(name, tc);
+                            }
+                        }
                 
-                // Adhoc entries
+                        // Adhoc entries
                 
-                for(Entry<String, JsonElement> toplevelCategory : testCatalogRoot.entrySet()) {
-                	String name = toplevelCategory.getKey();
-                	if (name.equals("classes")
-                			|| name.equals("packages")
-                			|| name.equals("bundles")
-                			|| name.equals("sharedEnvironments")
-                			|| name.equals("gherkin")
-                			|| name.equals("metadata")) {
-                		continue;
-                	}
-                	mergeObject(name, toplevelCategory.getValue(), jsonRoot);
+                        for(Entry<String, JsonElement> toplevelCategory : testCatalogRoot.entrySet()) {
+                        	String name = toplevelCategory.getKey();
+                        	if (name.equals("classes")
+                        			|| name.equals("packages")
+                        			|| name.equals("bundles")
+                        			|| name.equals("sharedEnvironments")
+                        			|| name.equals("gherkin")
+                        			|| name.equals("metadata")) {
+                        		continue;
+                        	}
+                        	mergeObject(name, toplevelCategory.getValue(), jsonRoot);
+                        }
+                    }
+                    event.items(subTestClasses == null ? 0 : subTestClasses.size());
                 }
-                
-                
             }
             // *** Write the new Main test catalog
-            String testCatlog = gson.toJson(jsonRoot);
-
             File fileTestCatalog = new File(outputDirectory, "testcatalog.json");
-            FileUtils.writeStringToFile(fileTestCatalog, testCatlog, "utf-8");
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(1)) {
+                String testCatlog = gson.toJson(jsonRoot);
+
+                FileUtils.writeStringToFile(fileTestCatalog, testCatlog, "utf-8");
+                timer.bytesWritten(fileTestCatalog.length());
+            }
 
             projectHelper.attachArtifact(project, "json", "testcatalog", fileTestCatalog);
         } catch (Throwable t) {
@@ -297,9 +326,10 @@ public class MergeTestCatalogs extends AbstractMojo {
 		}
 	}
 
-	private JsonObject getEmbeddedTestCatalog(Artifact artifact, Gson gson) {
+	private JsonObject getEmbeddedTestCatalog(Artifact artifact, Gson gson, BuildMetrics.Timer parse) {
 
-        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(artifact.getFile())))) {
+        CountingInputStream counting = null;
+        try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(counting = new CountingInputStream(new FileInputStream(artifact.getFile()))))) {
             ZipEntry entry = null;
 
             while((entry = zis.getNextEntry()) != null) {
@@ -318,6 +348,10 @@ public class MergeTestCatalogs extends AbstractMojo {
             }
         } catch(Exception e) {
             getLog().warn(e.getMessage());
+        } finally {
+            if (counting != null) {
+                parse.bytesRead(counting.getByteCount());
+            }
         }
 
         return null;
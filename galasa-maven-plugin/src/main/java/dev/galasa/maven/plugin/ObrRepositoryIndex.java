@@ -0,0 +1,198 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Requirement;
+import org.apache.felix.bundlerepository.Resource;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * An index of the packages and capabilities provided by the resources in an OBR, and of the
+ * requirements that cannot be satisfied from within the OBR itself.
+ *
+ * The runtime can use the index to find the provider of an Import-Package directly rather than
+ * scanning every resource in the repository.
+ *
+ * Requirements on the packages of the JVM, the OSGi framework and Galasa itself, and on the execution
+ * environment, are expected to be met by the runtime rather than the OBR, so are not reported as
+ * unresolved. A package pattern ending in ".*" matches that package and all those below it.
+ */
+public class ObrRepositoryIndex {
+
+    public static final List<String> DEFAULT_IGNORED_PACKAGES   = Collections.unmodifiableList(Arrays.asList(
+            "java.*", "javax.*", "org.osgi.*", "org.w3c.*", "org.xml.*", "org.ietf.*", "sun.*", "com.sun.*",
+            "dev.galasa.*"));
+    public static final List<String> DEFAULT_IGNORED_NAMESPACES = Collections.unmodifiableList(Arrays.asList(
+            "ee", "osgi.ee"));
+
+    private static final Pattern PACKAGE_FILTER = Pattern.compile("\\(package=([^)]*)\\)");
+
+    private final JsonObject   jsonRoot   = new JsonObject();
+    private final List<String> unresolved = new ArrayList<>();
+
+    public ObrRepositoryIndex(String repositoryName, Resource[] resources) {
+        this(repositoryName, resources, DEFAULT_IGNORED_PACKAGES, DEFAULT_IGNORED_NAMESPACES);
+    }
+
+    /**
+     * @param ignoredPackages    packages not to report as unresolved
+     * @param ignoredNamespaces  requirement namespaces not to report as unresolved
+     */
+    public ObrRepositoryIndex(String repositoryName, Resource[] resources, List<String> ignoredPackages,
+            List<String> ignoredNamespaces) {
+        jsonRoot.addProperty("name", repositoryName);
+
+        JsonObject jsonResources = new JsonObject();
+        jsonRoot.add("resources", jsonResources);
+        TreeMap<String, JsonArray> packages = new TreeMap<>();
+        TreeMap<String, JsonArray> capabilities = new TreeMap<>();
+        JsonArray jsonUnresolved = new JsonArray();
+
+        // *** Providers by capability name, with packages further split by package name
+        HashMap<String, List<Capability>> providersByName = new HashMap<>();
+        HashMap<String, List<Capability>> providersByPackage = new HashMap<>();
+
+        for (Resource resource : resources) {
+            JsonObject jsonResource = new JsonObject();
+            jsonResource.addProperty("symbolicName", resource.getSymbolicName());
+            jsonResource.addProperty("version", String.valueOf(resource.getVersion()));
+            jsonResource.addProperty("uri", resource.getURI());
+            jsonResources.add(resource.getId(), jsonResource);
+
+            for (Capability capability : resource.getCapabilities()) {
+                providersByName.computeIfAbsent(capability.getName(), k -> new ArrayList<>()).add(capability);
+
+                if (Capability.PACKAGE.equals(capability.getName())) {
+                    Map<String, Object> properties = capability.getPropertiesAsMap();
+                    String packageName = String.valueOf(properties.get(Capability.PACKAGE));
+                    providersByPackage.computeIfAbsent(packageName, k -> new ArrayList<>()).add(capability);
+
+                    JsonObject jsonPackage = new JsonObject();
+                    jsonPackage.addProperty("version", String.valueOf(properties.get("version")));
+                    jsonPackage.addProperty("resource", resource.getId());
+                    packages.computeIfAbsent(packageName, k -> new JsonArray()).add(jsonPackage);
+                } else {
+                    JsonObject jsonCapability = new JsonObject();
+                    jsonCapability.addProperty("resource", resource.getId());
+                    JsonObject jsonProperties = new JsonObject();
+                    for (Entry<String, Object> property : new TreeMap<>(capability.getPropertiesAsMap()).entrySet()) {
+                        jsonProperties.addProperty(property.getKey(), String.valueOf(property.getValue()));
+                    }
+                    jsonCapability.add("properties", jsonProperties);
+                    capabilities.computeIfAbsent(capability.getName(), k -> new JsonArray()).add(jsonCapability);
+                }
+            }
+        }
+
+        // *** Check every mandatory requirement can be satisfied by something in this OBR
+        for (Resource resource : resources) {
+            for (Requirement requirement : resource.getRequirements()) {
+                if (requirement.isOptional() || ignoredNamespaces.contains(requirement.getName())) {
+                    continue;
+                }
+
+                if (!isSatisfied(requirement, providersByName, providersByPackage)
+                        && !isIgnoredPackage(requirement, ignoredPackages)) {
+                    JsonObject jsonRequirement = new JsonObject();
+                    jsonRequirement.addProperty("resource", resource.getId());
+                    jsonRequirement.addProperty("name", requirement.getName());
+                    jsonRequirement.addProperty("filter", requirement.getFilter());
+                    jsonUnresolved.add(jsonRequirement);
+
+                    unresolved.add(resource.getId() + " requires " + requirement.getName() + " " + requirement.getFilter());
+                }
+            }
+        }
+
+        JsonObject jsonPackages = new JsonObject();
+        for (Entry<String, JsonArray> entry : packages.entrySet()) {
+            jsonPackages.add(entry.getKey(), entry.getValue());
+        }
+        jsonRoot.add("packages", jsonPackages);
+
+        JsonObject jsonCapabilities = new JsonObject();
+        for (Entry<String, JsonArray> entry : capabilities.entrySet()) {
+            jsonCapabilities.add(entry.getKey(), entry.getValue());
+        }
+        jsonRoot.add("capabilities", jsonCapabilities);
+
+        jsonRoot.add("unresolved", jsonUnresolved);
+    }
+
+    private boolean isSatisfied(Requirement requirement, Map<String, List<Capability>> providersByName,
+            Map<String, List<Capability>> providersByPackage) {
+
+        List<Capability> candidates = null;
+        if (Capability.PACKAGE.equals(requirement.getName()) && requirement.getFilter() != null) {
+            Matcher matcher = PACKAGE_FILTER.matcher(requirement.getFilter());
+            if (matcher.find()) {
+                candidates = providersByPackage.get(matcher.group(1));
+                if (candidates == null) {
+                    return false;
+                }
+            }
+        }
+        if (candidates == null) {
+            candidates = providersByName.get(requirement.getName());
+        }
+        if (candidates == null) {
+            return false;
+        }
+
+        for (Capability capability : candidates) {
+            if (requirement.isSatisfied(capability)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isIgnoredPackage(Requirement requirement, List<String> ignoredPackages) {
+        if (!Capability.PACKAGE.equals(requirement.getName()) || requirement.getFilter() == null) {
+            return false;
+        }
+        Matcher matcher = PACKAGE_FILTER.matcher(requirement.getFilter());
+        if (!matcher.find()) {
+            return false;
+        }
+
+        String packageName = matcher.group(1);
+        for (String ignored : ignoredPackages) {
+            if (ignored.endsWith(".*")) {
+                String parent = ignored.substring(0, ignored.length() - 2);
+                if (packageName.equals(parent) || packageName.startsWith(parent + ".")) {
+                    return true;
+                }
+            } else if (packageName.equals(ignored)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public JsonObject getJson() {
+        return jsonRoot;
+    }
+
+    public List<String> getUnresolved() {
+        return unresolved;
+    }
+
+}
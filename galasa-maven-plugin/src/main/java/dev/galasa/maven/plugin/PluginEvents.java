@@ -0,0 +1,101 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+/**
+ * Java Flight Recorder events for the work of the goals, so that a recording of a slow build can put the
+ * time down to the bundles and test catalogs involved rather than to anonymous Gson, Felix and zip frames.
+ *
+ * The events are named dev.galasa.maven.plugin.* and are in the Galasa category. They need the jdk.jfr
+ * API of Java 11, or Java 8 from update 262, so it is only touched once it is known to be there. On other
+ * JVMs, and until a recording is started, {@link #begin(Type, String)} returns {@link #NONE} without
+ * allocating anything.
+ */
+public final class PluginEvents {
+
+    public enum Type {
+        DISCOVERY,
+        BUNDLE_ANALYSIS,
+        TEST_CATALOG_MERGE,
+        FILE_COPY,
+        DEPLOY
+    }
+
+    /**
+     * An event in progress, committed to the recording when closed
+     */
+    public interface Event extends AutoCloseable {
+
+        Event bytes(long bytes);
+
+        Event items(long items);
+
+        Event detail(String detail);
+
+        Event statusCode(int statusCode);
+
+        @Override
+        void close();
+    }
+
+    public static final Event NONE = new Event() {
+        @Override
+        public Event bytes(long bytes) {
+            return this;
+        }
+
+        @Override
+        public Event items(long items) {
+            return this;
+        }
+
+        @Override
+        public Event detail(String detail) {
+            return this;
+        }
+
+        @Override
+        public Event statusCode(int statusCode) {
+            return this;
+        }
+
+        @Override
+        public void close() {
+        }
+    };
+
+    private static final boolean AVAILABLE = isFlightRecorderAvailable();
+
+    private PluginEvents() {
+    }
+
+    /**
+     * @param artifactId the artifact the work is for, null if it is not for one artifact
+     * @return the event, or {@link #NONE} if no recording is taking it
+     */
+    public static Event begin(Type type, String artifactId) {
+        if (!AVAILABLE) {
+            return NONE;
+        }
+        return FlightRecorderEvents.begin(type, artifactId);
+    }
+
+    /**
+     * @return true if this JVM can record the events
+     */
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            return FlightRecorderEvents.isAvailable();
+        } catch (LinkageError | SecurityException e) {
+            // *** No jdk.jfr API in this JVM
+            return false;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.felix.bundlerepository.Capability;
+import org.apache.felix.bundlerepository.Property;
+import org.apache.felix.bundlerepository.Requirement;
+import org.apache.felix.bundlerepository.Resource;
+
+/**
+ * Writes the resources of an OBR as a gzipped OSGi R5 repository index (repository.xml.gz).
+ *
+ * The Felix capability and requirement names are translated to the R5 namespaces, each resource
+ * lists its capabilities and requirements grouped by namespace, and the XML is written without
+ * any whitespace so it stays small and can be read by a streaming parser.
+ */
+public class R5RepositoryWriter {
+
+    public static final String XMLNS               = "http://www.osgi.org/xmlns/repository/v1.0.0";
+
+    public static final String IDENTITY_NAMESPACE  = "osgi.identity";
+    public static final String CONTENT_NAMESPACE   = "osgi.content";
+    public static final String BUNDLE_NAMESPACE    = "osgi.wiring.bundle";
+    public static final String PACKAGE_NAMESPACE   = "osgi.wiring.package";
+    public static final String SERVICE_NAMESPACE   = "osgi.service";
+
+    private final String       name;
+    private final long         increment;
+
+    /**
+     * @param increment the value of the repository increment attribute, the OBR last modified time
+     */
+    public R5RepositoryWriter(String name, long increment) {
+        this.name = name;
+        this.increment = increment;
+    }
+
+    /**
+     * @return the increment attribute of an index written before, or 0 if there is no readable index
+     */
+    public static long readIncrement(File file) {
+        if (!file.exists()) {
+            return 0;
+        }
+        try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in, "UTF-8");
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        String increment = reader.getAttributeValue(null, "increment");
+                        return increment == null ? 0 : Long.parseLong(increment);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException | XMLStreamException | NumberFormatException e) {
+            // *** Treated as no previous index
+        }
+        return 0;
+    }
+
+    /**
+     * Write the index, leaving the file alone if it already holds the same content
+     *
+     * @return true if the file was written
+     */
+    public boolean write(Resource[] resources, File file) throws IOException {
+        byte[] content = toGzip(resources);
+        if (file.exists() && Arrays.equals(content, Files.readAllBytes(file.toPath()))) {
+            return false;
+        }
+        Files.write(file.toPath(), content);
+        return true;
+    }
+
+    public byte[] toGzip(Resource[] resources) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(baos)) {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(gzip, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("repository");
+            writer.writeDefaultNamespace(XMLNS);
+            writer.writeAttribute("name", name);
+            writer.writeAttribute("increment", Long.toString(increment));
+            for (Resource resource : resources) {
+                writeResource(writer, resource);
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to write the R5 repository index", e);
+        }
+        return baos.toByteArray();
+    }
+
+    private void writeResource(XMLStreamWriter writer, Resource resource) throws XMLStreamException {
+        List<Entry> capabilities = new ArrayList<>();
+        List<Entry> requirements = new ArrayList<>();
+
+        boolean fragment = false;
+        for (Capability capability : resource.getCapabilities()) {
+            if (Capability.FRAGMENT.equals(capability.getName())) {
+                fragment = true;
+            }
+            Entry entry = translateCapability(resource, capability);
+            if (entry != null) {
+                capabilities.add(entry);
+            }
+        }
+
+        Entry identity = new Entry(IDENTITY_NAMESPACE);
+        identity.attributes.put(IDENTITY_NAMESPACE, new String[] { null, resource.getSymbolicName() });
+        identity.attributes.put("type", new String[] { null, fragment ? "osgi.fragment" : "osgi.bundle" });
+        identity.attributes.put("version", new String[] { "Version", String.valueOf(resource.getVersion()) });
+        capabilities.add(identity);
+
+        for (Requirement requirement : resource.getRequirements()) {
+            Entry entry = translateRequirement(requirement);
+            if (entry != null) {
+                requirements.add(entry);
+            }
+        }
+
+        // *** Sorting is stable, so entries keep their manifest order within a namespace
+        Comparator<Entry> byNamespace = Comparator.comparing(e -> e.namespace);
+        capabilities.sort(byNamespace);
+        requirements.sort(byNamespace);
+
+        writer.writeStartElement("resource");
+        for (Entry capability : capabilities) {
+            capability.write(writer, "capability");
+        }
+        for (Entry requirement : requirements) {
+            requirement.write(writer, "requirement");
+        }
+        writer.writeEndElement();
+    }
+
+    private Entry translateCapability(Resource resource, Capability capability) {
+        Map<String, Object> properties = capability.getPropertiesAsMap();
+        Entry entry;
+        switch (capability.getName()) {
+            case Capability.BUNDLE:
+                entry = new Entry(BUNDLE_NAMESPACE);
+                entry.attributes.put(BUNDLE_NAMESPACE, new String[] { null, resource.getSymbolicName() });
+                entry.attributes.put("bundle-version", new String[] { "Version", String.valueOf(resource.getVersion()) });
+                return entry;
+            case Capability.PACKAGE:
+                entry = new Entry(PACKAGE_NAMESPACE);
+                entry.attributes.put(PACKAGE_NAMESPACE, new String[] { null, String.valueOf(properties.get(Capability.PACKAGE)) });
+                entry.attributes.put("bundle-symbolic-name", new String[] { null, resource.getSymbolicName() });
+                entry.attributes.put("bundle-version", new String[] { "Version", String.valueOf(resource.getVersion()) });
+                for (Property property : capability.getProperties()) {
+                    if (Capability.PACKAGE.equals(property.getName())) {
+                        continue;
+                    } else if ("uses".equals(property.getName())) {
+                        entry.directives.put("uses", property.getValue());
+                    } else {
+                        entry.attributes.put(property.getName(), typedValue(property));
+                    }
+                }
+                return entry;
+            case Capability.SERVICE:
+                entry = new Entry(SERVICE_NAMESPACE);
+                entry.attributes.put("objectClass", new String[] { "List<String>", String.valueOf(properties.get(Capability.SERVICE)) });
+                return entry;
+            case BundleContent.CAPABILITY:
+                entry = new Entry(CONTENT_NAMESPACE);
+                for (Property property : capability.getProperties()) {
+                    entry.attributes.put(property.getName(), typedValue(property));
+                }
+                entry.attributes.put("url", new String[] { null, resource.getURI() });
+                return entry;
+            case Capability.FRAGMENT:
+                // *** Covered by the identity type
+                return null;
+            default:
+                entry = new Entry(capability.getName());
+                for (Property property : capability.getProperties()) {
+                    entry.attributes.put(property.getName(), typedValue(property));
+                }
+                return entry;
+        }
+    }
+
+    private Entry translateRequirement(Requirement requirement) {
+        String filter = requirement.getFilter();
+        Entry entry;
+        switch (requirement.getName()) {
+            case Capability.PACKAGE:
+                entry = new Entry(PACKAGE_NAMESPACE);
+                filter = filter == null ? null : filter.replace("(package", "(" + PACKAGE_NAMESPACE);
+                break;
+            case Capability.BUNDLE:
+                entry = new Entry(BUNDLE_NAMESPACE);
+                filter = filter == null ? null
+                        : filter.replace("(symbolicname", "(" + BUNDLE_NAMESPACE).replace("(version", "(bundle-version");
+                break;
+            case Capability.SERVICE:
+                entry = new Entry(SERVICE_NAMESPACE);
+                filter = filter == null ? null : filter.replace("(service", "(objectClass");
+                break;
+            case Capability.EXECUTIONENVIRONMENT:
+                // *** The Felix ee filters have no direct osgi.ee equivalent, and BuildOBRResources drops them anyway
+                return null;
+            default:
+                entry = new Entry(requirement.getName());
+                break;
+        }
+
+        if (filter != null) {
+            entry.directives.put("filter", filter);
+        }
+        if (requirement.isOptional()) {
+            entry.directives.put("resolution", "optional");
+        }
+        if (requirement.isMultiple()) {
+            entry.directives.put("cardinality", "multiple");
+        }
+        return entry;
+    }
+
+    private String[] typedValue(Property property) {
+        String type = null;
+        if (Property.VERSION.equals(property.getType())) {
+            type = "Version";
+        } else if (Property.LONG.equals(property.getType())) {
+            type = "Long";
+        } else if (Property.DOUBLE.equals(property.getType())) {
+            type = "Double";
+        } else if (Property.SET.equals(property.getType())) {
+            type = "List<String>";
+        }
+        return new String[] { type, property.getValue() };
+    }
+
+    private static class Entry {
+        private final String                   namespace;
+        // *** attribute name to type (null for String) and value
+        private final TreeMap<String, String[]> attributes = new TreeMap<>();
+        private final TreeMap<String, String>   directives = new TreeMap<>();
+
+        private Entry(String namespace) {
+            this.namespace = namespace;
+        }
+
+        private void write(XMLStreamWriter writer, String element) throws XMLStreamException {
+            writer.writeStartElement(element);
+            writer.writeAttribute("namespace", namespace);
+            for (Map.Entry<String, String[]> attribute : attributes.entrySet()) {
+                writer.writeEmptyElement("attribute");
+                writer.writeAttribute("name", attribute.getKey());
+                if (attribute.getValue()[0] != null) {
+                    writer.writeAttribute("type", attribute.getValue()[0]);
+                }
+                writer.writeAttribute("value", String.valueOf(attribute.getValue()[1]));
+            }
+            for (Map.Entry<String, String> directive : directives.entrySet()) {
+                writer.writeEmptyElement("directive");
+                writer.writeAttribute("name", directive.getKey());
+                writer.writeAttribute("value", directive.getValue());
+            }
+            writer.writeEndElement();
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Splits groups of tests across a number of shards so the shards take about the same time to run,
+ * using the longest processing time first heuristic: the groups are placed longest first, each on
+ * the shard with the least work so far.
+ *
+ * A group is never split, so tests that must run together, such as those using the same shared
+ * environment, always land on the same shard. The longest shard is at most 4/3 of the best
+ * possible, and in practice is usually within a few percent of the lower bound.
+ */
+public class ShardPlanner {
+
+    public static class Group {
+        private final String       name;
+        private final List<String> tests;
+        private final long         duration;
+
+        /**
+         * @param name     a name for the group, used to break ties so plans are repeatable
+         * @param tests    the tests in the group
+         * @param duration the expected duration of all the tests in the group
+         */
+        public Group(String name, List<String> tests, long duration) {
+            this.name = name;
+            this.tests = tests;
+            this.duration = duration;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<String> getTests() {
+            return tests;
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+    }
+
+    public static class Shard {
+        private final int         index;
+        private final List<Group> groups   = new ArrayList<>();
+        private long              duration;
+
+        private Shard(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public List<Group> getGroups() {
+            return groups;
+        }
+
+        public long getDuration() {
+            return duration;
+        }
+    }
+
+    private ShardPlanner() {
+    }
+
+    /**
+     * @return the shards in index order, some may be empty if there are fewer groups than shards
+     */
+    public static List<Shard> plan(List<Group> groups, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("The number of shards must be at least 1 - " + shardCount);
+        }
+
+        List<Group> sorted = new ArrayList<>(groups);
+        sorted.sort(Comparator.comparingLong(Group::getDuration).reversed().thenComparing(Group::getName));
+
+        List<Shard> shards = new ArrayList<>(shardCount);
+        PriorityQueue<Shard> queue = new PriorityQueue<>(shardCount,
+                Comparator.comparingLong(Shard::getDuration).thenComparingInt(Shard::getIndex));
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = new Shard(i);
+            shards.add(shard);
+            queue.add(shard);
+        }
+
+        for (Group group : sorted) {
+            Shard shard = queue.poll();
+            shard.groups.add(group);
+            shard.duration += group.duration;
+            queue.add(shard);
+        }
+        return shards;
+    }
+
+    /**
+     * @return the least time the longest shard could take, the larger of the average shard and the
+     *         longest group
+     */
+    public static long lowerBound(List<Group> groups, int shardCount) {
+        long total = 0;
+        long longest = 0;
+        for (Group group : groups) {
+            total += group.duration;
+            longest = Math.max(longest, group.duration);
+        }
+        return Math.max((total + shardCount - 1) / shardCount, longest);
+    }
+
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+/**
+ * Split the tests of the merged test catalog into shards of about the same duration, so they can be
+ * run on parallel runners
+ */
+@Mojo(name = "shardtestcat", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true)
+public class ShardTestCatalog extends AbstractGalasaMojo {
+
+    public static final String SHARDS_FILE = "testshards.json";
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject       project;
+
+    @Component
+    private MavenProjectHelper projectHelper;
+
+    @Parameter(defaultValue = "${project.build.directory}", property = "outputDir", required = true)
+    private File               outputDirectory;
+
+    // Number of shards to split the tests into, the goal does nothing unless this is set
+    @Parameter(defaultValue = "0", property = "galasa.shard.count", required = false)
+    private int                shardCount;
+
+    // JSON file of previous test durations in seconds, keyed by test class name or bundle/class
+    @Parameter(property = "galasa.shard.durations", required = false)
+    private File               durationsFile;
+
+    // Seconds assumed for a test with no previous duration, 0 is the median of the known durations
+    @Parameter(defaultValue = "0", property = "galasa.shard.default.duration", required = false)
+    private double             defaultDuration;
+
+    // This spelling of the property is old/wrong/deprecated.
+    @Parameter(defaultValue = "${galasa.skip.bundletestcatatlog}", readonly = true, required = false)
+    private boolean            skipBundleTestCatalogOldSpelling;
+
+    @Parameter(defaultValue = "${galasa.skip.bundletestcatalog}", readonly = true, required = false)
+    private boolean            skipBundleTestCatalog;
+
+    // *** Used when there are no previous durations at all
+    private static final long  FALLBACK_MILLIS = 60_000;
+
+    public ShardTestCatalog() {
+        super("shardtestcat");
+    }
+
+    @Override
+    protected MavenProject getProject() {
+        return project;
+    }
+
+    @Override
+    protected void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException {
+
+        if (skipBundleTestCatalog || skipBundleTestCatalogOldSpelling) {
+            getLog().info("Skipping Test Catalog sharding");
+            return;
+        }
+
+        if (!"galasa-obr".equals(project.getPackaging())) {
+            getLog().info("Skipping Test Catalog sharding, not a galasa-obr project");
+            return;
+        }
+
+        if (shardCount < 1) {
+            getLog().info("Skipping Test Catalog sharding, galasa.shard.count is not set");
+            return;
+        }
+
+        File fileTestCatalog = new File(outputDirectory, "testcatalog.json");
+        if (!fileTestCatalog.exists()) {
+            getLog().warn("Skipping Test Catalog sharding, no merged test catalog at " + fileTestCatalog);
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+
+            Gson gson = new Gson();
+            JsonObject catalog;
+            Map<String, Long> durations;
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.PARSE).items(1).bytesRead(fileTestCatalog.length())) {
+                catalog = gson.fromJson(FileUtils.readFileToString(fileTestCatalog, "utf-8"), JsonObject.class);
+                durations = readDurations(gson);
+                if (durationsFile != null && durationsFile.exists()) {
+                    timer.items(1).bytesRead(durationsFile.length());
+                }
+            }
+
+            JsonObject jsonClasses = getObject(catalog, "classes");
+            JsonObject jsonSenv = getObject(catalog, "sharedEnvironments");
+
+            // *** Look up each test's duration, keeping count of those without history
+            TreeMap<String, Long> testDurations = new TreeMap<>();
+            List<String> unknown = new ArrayList<>();
+            List<Long> known = new ArrayList<>();
+            for (Entry<String, JsonElement> testClass : jsonClasses.entrySet()) {
+                Long duration = durations.get(testClass.getKey());
+                if (duration == null) {
+                    duration = durations.get(getClassName(testClass.getKey(), testClass.getValue()));
+                }
+                if (duration == null) {
+                    unknown.add(testClass.getKey());
+                } else {
+                    testDurations.put(testClass.getKey(), duration);
+                    known.add(duration);
+                }
+            }
+            long assumed = getDefaultDuration(known);
+            for (String test : unknown) {
+                testDurations.put(test, assumed);
+            }
+
+            // *** Group the tests that share an environment, so they run on the same shard
+            Map<String, String> senvNames = new HashMap<>();
+            for (Entry<String, JsonElement> senv : jsonSenv.entrySet()) {
+                senvNames.put(senv.getKey(), senv.getKey());
+                senvNames.put(getClassName(senv.getKey(), senv.getValue()), senv.getKey());
+            }
+            SharedEnvironmentGroups senvGroups = new SharedEnvironmentGroups();
+            Map<String, String> testSenv = new HashMap<>();
+            for (Entry<String, JsonElement> testClass : jsonClasses.entrySet()) {
+                TreeSet<String> used = new TreeSet<>();
+                findSharedEnvironments(testClass.getValue(), senvNames, used);
+                if (!used.isEmpty()) {
+                    String first = used.first();
+                    for (String senv : used) {
+                        senvGroups.join(first, senv);
+                    }
+                    testSenv.put(testClass.getKey(), first);
+                }
+            }
+
+            TreeMap<String, List<String>> groupTests = new TreeMap<>();
+            for (String test : testDurations.keySet()) {
+                String senv = testSenv.get(test);
+                String groupName = senv == null ? test : senvGroups.find(senv);
+                groupTests.computeIfAbsent(groupName, k -> new ArrayList<>()).add(test);
+            }
+
+            List<ShardPlanner.Group> groups = new ArrayList<>();
+            for (Entry<String, List<String>> group : groupTests.entrySet()) {
+                long duration = 0;
+                for (String test : group.getValue()) {
+                    duration += testDurations.get(test);
+                }
+                groups.add(new ShardPlanner.Group(group.getKey(), group.getValue(), duration));
+            }
+
+            List<ShardPlanner.Shard> shards = ShardPlanner.plan(groups, shardCount);
+            long lowerBound = ShardPlanner.lowerBound(groups, shardCount);
+
+            // *** Write the plan
+            JsonObject jsonRoot = new JsonObject();
+            jsonRoot.addProperty("shards", shardCount);
+            jsonRoot.addProperty("tests", testDurations.size());
+            jsonRoot.addProperty("estimatedTests", unknown.size());
+            jsonRoot.addProperty("assumedDuration", toSeconds(assumed));
+
+            long longest = 0;
+            JsonArray jsonShards = new JsonArray();
+            for (ShardPlanner.Shard shard : shards) {
+                longest = Math.max(longest, shard.getDuration());
+
+                TreeSet<String> classes = new TreeSet<>();
+                TreeSet<String> senvs = new TreeSet<>();
+                for (ShardPlanner.Group group : shard.getGroups()) {
+                    classes.addAll(group.getTests());
+                    for (String test : group.getTests()) {
+                        String senv = testSenv.get(test);
+                        if (senv != null) {
+                            senvs.add(senv);
+                        }
+                    }
+                }
+
+                JsonObject jsonShard = new JsonObject();
+                jsonShard.addProperty("index", shard.getIndex());
+                jsonShard.addProperty("duration", toSeconds(shard.getDuration()));
+                jsonShard.add("classes", toJsonArray(classes));
+                jsonShard.add("sharedEnvironments", toJsonArray(senvs));
+                jsonShards.add(jsonShard);
+            }
+            jsonRoot.addProperty("duration", toSeconds(longest));
+            jsonRoot.addProperty("lowerBound", toSeconds(lowerBound));
+            jsonRoot.add("plan", jsonShards);
+
+            File fileShards = new File(outputDirectory, SHARDS_FILE);
+            try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(1)) {
+                Gson prettyGson = new GsonBuilder().setPrettyPrinting().create();
+                FileUtils.writeStringToFile(fileShards, prettyGson.toJson(jsonRoot), "utf-8");
+                timer.bytesWritten(fileShards.length());
+            }
+
+            projectHelper.attachArtifact(project, "json", "testshards", fileShards);
+
+            getLog().info("Planned " + testDurations.size() + " test(s) in " + groups.size() + " group(s) across "
+                    + shardCount + " shard(s) in " + ((System.nanoTime() - start) / 1_000_000) + "ms, longest shard "
+                    + toSeconds(longest) + "s, lower bound " + toSeconds(lowerBound) + "s");
+            if (!unknown.isEmpty()) {
+                getLog().info(unknown.size() + " test(s) have no previous duration, assumed " + toSeconds(assumed) + "s");
+            }
+        } catch (IOException | JsonParseException e) {
+            throw new MojoExecutionException("Problem sharding the test catalog", e);
+        }
+    }
+
+    private Map<String, Long> readDurations(Gson gson) throws IOException, MojoExecutionException {
+        Map<String, Long> durations = new HashMap<>();
+        if (durationsFile == null) {
+            return durations;
+        }
+        if (!durationsFile.exists()) {
+            getLog().warn("Test durations file " + durationsFile + " does not exist, all durations will be estimated");
+            return durations;
+        }
+
+        String content = new String(Files.readAllBytes(durationsFile.toPath()), StandardCharsets.UTF_8);
+        JsonObject jsonDurations = gson.fromJson(content, JsonObject.class);
+        if (jsonDurations == null) {
+            return durations;
+        }
+        for (Entry<String, JsonElement> duration : jsonDurations.entrySet()) {
+            if (!duration.getValue().isJsonPrimitive() || !duration.getValue().getAsJsonPrimitive().isNumber()) {
+                throw new MojoExecutionException("Duration of " + duration.getKey() + " in " + durationsFile
+                        + " is not a number of seconds");
+            }
+            durations.put(duration.getKey(), Math.max(0, Math.round(duration.getValue().getAsDouble() * 1000)));
+        }
+        return durations;
+    }
+
+    private long getDefaultDuration(List<Long> known) {
+        if (defaultDuration > 0) {
+            return Math.round(defaultDuration * 1000);
+        }
+        if (known.isEmpty()) {
+            return FALLBACK_MILLIS;
+        }
+        List<Long> sorted = new ArrayList<>(known);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+
+    /**
+     * Anything a manager or the dependency map records in a test class entry that names a shared
+     * environment counts as using it
+     */
+    private void findSharedEnvironments(JsonElement element, Map<String, String> senvNames, TreeSet<String> used) {
+        if (element.isJsonObject()) {
+            for (Entry<String, JsonElement> child : element.getAsJsonObject().entrySet()) {
+                findSharedEnvironments(child.getValue(), senvNames, used);
+            }
+        } else if (element.isJsonArray()) {
+            for (JsonElement child : element.getAsJsonArray()) {
+                findSharedEnvironments(child, senvNames, used);
+            }
+        } else if (element.isJsonPrimitive() && element.getAsJsonPrimitive().isString()) {
+            String senv = senvNames.get(element.getAsString());
+            if (senv != null) {
+                used.add(senv);
+            }
+        }
+    }
+
+    private static String getClassName(String key, JsonElement entry) {
+        if (entry.isJsonObject() && entry.getAsJsonObject().has("name")) {
+            return entry.getAsJsonObject().get("name").getAsString();
+        }
+        return key.substring(key.indexOf('/') + 1);
+    }
+
+    private static JsonObject getObject(JsonObject parent, String name) {
+        JsonObject object = parent.getAsJsonObject(name);
+        return object == null ? new JsonObject() : object;
+    }
+
+    private static JsonArray toJsonArray(Iterable<String> values) {
+        JsonArray array = new JsonArray();
+        for (String value : values) {
+            array.add(value);
+        }
+        return array;
+    }
+
+    private static double toSeconds(long millis) {
+        return millis / 1000.0;
+    }
+
+    /**
+     * Shared environments used together by any one test must all be on the same shard
+     */
+    private static class SharedEnvironmentGroups {
+        private final Map<String, String> parents = new HashMap<>();
+
+        private String find(String senv) {
+            String parent = parents.getOrDefault(senv, senv);
+            if (parent.equals(senv)) {
+                return senv;
+            }
+            String root = find(parent);
+            parents.put(senv, root);
+            return root;
+        }
+
+        private void join(String a, String b) {
+            String rootA = find(a);
+            String rootB = find(b);
+            if (!rootA.equals(rootB)) {
+                // *** The lowest name is the root, so the group names are repeatable
+                if (rootA.compareTo(rootB) < 0) {
+                    parents.put(rootB, rootA);
+                } else {
+                    parents.put(rootA, rootB);
+                }
+            }
+        }
+    }
+}
@@ -10,7 +10,6 @@ import java.io.IOException;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.model.Resource;
-import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
@@ -25,7 +24,7 @@ import org.apache.maven.project.MavenProject;
  *
  */
 @Mojo(name = "gitcommithash", defaultPhase = LifecyclePhase.PROCESS_RESOURCES, threadSafe = true, requiresProject = true)
-public class StoreGitCommitHash extends AbstractMojo {
+public class StoreGitCommitHash extends AbstractGalasaMojo {
     @Parameter(defaultValue = "${project}", readonly = true)
     private MavenProject project;
 
@@ -35,7 +34,17 @@ public class StoreGitCommitHash extends AbstractMojo {
     @Parameter(defaultValue = "${env.GIT_COMMIT}", property = "gitCommitHash", required = false)
     private String       hash;
 
-    public void execute() throws MojoExecutionException, MojoFailureException {
+    public StoreGitCommitHash() {
+        super("gitcommithash");
+    }
+
+    @Override
+    protected MavenProject getProject() {
+        return project;
+    }
+
+    @Override
+    protected void execute(BuildMetrics metrics) throws MojoExecutionException, MojoFailureException {
 
         if (!"bundle".equals(project.getPackaging()) && !"jar".equals(project.getPackaging())
                 && !"eclipse-plugin".equals(project.getPackaging())) {
@@ -55,8 +64,9 @@ public class StoreGitCommitHash extends AbstractMojo {
             metaInf.mkdirs();
         }
 
-        try {
+        try (BuildMetrics.Timer timer = metrics.start(BuildMetrics.Phase.WRITE).items(1)) {
             FileUtils.write(hashFile, hash, "UTF-8");
+            timer.bytesWritten(hashFile.length());
             getLog().info("Written git hash " + hash + " to META-INF/git.hash");
         } catch (IOException e) {
             throw new MojoExecutionException("Unable to write hash", e);
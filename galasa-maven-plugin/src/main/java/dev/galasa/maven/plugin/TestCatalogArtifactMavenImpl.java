@@ -5,10 +5,18 @@
  */
 package dev.galasa.maven.plugin;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 
@@ -17,18 +25,126 @@ import dev.galasa.plugin.common.TestCatalogArtifact;
 
 public class TestCatalogArtifactMavenImpl implements TestCatalogArtifact<MojoExecutionException> {
 
+    // *** The compressor works through a buffer of this size. Only transferTo before a load() streams the
+    // *** catalog from its file, load() holds the whole catalog, and a compressed copy, in memory
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private Artifact testCatalogArtifact;
     private ErrorRaiser<MojoExecutionException> errorRaiser;
+    private boolean compress;
+
+    // *** Once loaded, the bytes to transfer, already compressed if need be
+    private volatile byte[] content;
+    private volatile byte[] digest;
 
     public TestCatalogArtifactMavenImpl(Artifact testCatalogArtifact, ErrorRaiser<MojoExecutionException> errorRaiser ) {
+        this(testCatalogArtifact, errorRaiser, false);
+    }
+
+    /**
+     * @param compress gzip the catalog as it is transferred, the receiver must be told the content encoding is gzip
+     */
+    public TestCatalogArtifactMavenImpl(Artifact testCatalogArtifact, ErrorRaiser<MojoExecutionException> errorRaiser, boolean compress) {
         this.errorRaiser = errorRaiser;
         this.testCatalogArtifact = testCatalogArtifact ;
+        this.compress = compress;
+    }
+
+    public String getArtifactId() {
+        return this.testCatalogArtifact.getArtifactId();
+    }
+
+    public File getFile() {
+        return this.testCatalogArtifact.getFile();
+    }
+
+    public boolean isCompressed() {
+        return this.compress;
+    }
+
+    /**
+     * Read the catalog into memory, compressing it if need be, so it can be transferred many times,
+     * from many threads, without going back to the file
+     */
+    public synchronized void load() throws MojoExecutionException {
+        if (content != null) {
+            return;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(getFile().toPath());
+            if (compress) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 1);
+                try (GZIPOutputStream gzipStream = new GZIPOutputStream(compressed, BUFFER_SIZE)) {
+                    gzipStream.write(bytes);
+                }
+                content = compressed.toByteArray();
+            } else {
+                content = bytes;
+            }
+        } catch( IOException ex ) {
+            errorRaiser.raiseError(ex,ex.toString());
+        }
+    }
+
+    /**
+     * @return the sha256 of the catalog before any compression
+     */
+    public synchronized byte[] getDigest() throws MojoExecutionException {
+        if (digest == null) {
+            try (InputStream is = Files.newInputStream(getFile().toPath())) {
+                digest = DigestUtils.sha256(is);
+            } catch( IOException ex ) {
+                errorRaiser.raiseError(ex, "Problem reading the test catalog {0}", getFile());
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * @return the number of bytes transferTo writes, or -1 if it is not known until the catalog is compressed
+     */
+    public long getTransferLength() {
+        byte[] loaded = content;
+        if (loaded != null) {
+            return loaded.length;
+        }
+        return compress ? -1 : getFile().length();
+    }
+
+    /**
+     * @return a new stream of the bytes transferTo writes. A compressed catalog is loaded first, as
+     *         compressing it as it is read would need another thread writing the far end of a pipe
+     */
+    public InputStream openStream() throws MojoExecutionException {
+        if (compress) {
+            load();
+        }
+        byte[] loaded = content;
+        if (loaded != null) {
+            return new ByteArrayInputStream(loaded);
+        }
+        try {
+            return Files.newInputStream(getFile().toPath());
+        } catch( IOException ex ) {
+            errorRaiser.raiseError(ex, "Problem reading the test catalog {0}", getFile());
+        }
+        return null;
     }
 
     @Override
     public void transferTo(OutputStream outputStream) throws MojoExecutionException {
         try {
-            FileUtils.copyFile(this.testCatalogArtifact.getFile(), outputStream);
+            byte[] loaded = content;
+            if (loaded != null) {
+                outputStream.write(loaded);
+            } else if (compress) {
+                // *** The caller owns the output stream, so it is shielded from the close
+                try (GZIPOutputStream gzipStream = new GZIPOutputStream(CloseShieldOutputStream.wrap(outputStream), BUFFER_SIZE)) {
+                    FileUtils.copyFile(this.testCatalogArtifact.getFile(), gzipStream);
+                }
+            } else {
+                FileUtils.copyFile(this.testCatalogArtifact.getFile(), outputStream);
+            }
         } catch( IOException ex ) {
             errorRaiser.raiseError(ex,ex.toString());
         }
@@ -0,0 +1,104 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import dev.galasa.plugin.common.ErrorRaiser;
+import dev.galasa.plugin.common.PluginCommonFactory;
+
+/**
+ * The test catalogs of all the galasa-obr modules in the reactor, deployed together when the build
+ * ends, over one connection and with one bootstrap load and token exchange per ecosystem.
+ */
+public class TestCatalogBatch implements Callable<Void> {
+
+    // *** Only a batch loaded by the same class realm can be added to, so the realm is part of the key
+    private static final String KEY = TestCatalogBatch.class.getName() + "@" + System.identityHashCode(TestCatalogBatch.class);
+
+    private static class Entry {
+        private final String                       module;
+        private final List<DeployTarget>           targets;
+        private final TestCatalogArtifactMavenImpl testCatalog;
+
+        private Entry(String module, List<DeployTarget> targets, TestCatalogArtifactMavenImpl testCatalog) {
+            this.module = module;
+            this.targets = targets;
+            this.testCatalog = testCatalog;
+        }
+    }
+
+    private final Log                                         log;
+    private final ErrorRaiser<MojoExecutionException>         errorRaiser;
+    private final PluginCommonFactory<MojoExecutionException> factory;
+    private final DeployOptions                               options;
+
+    private final List<Entry>                                 entries = new ArrayList<>();
+
+    private TestCatalogBatch(Log log, ErrorRaiser<MojoExecutionException> errorRaiser,
+            PluginCommonFactory<MojoExecutionException> factory, DeployOptions options) {
+        this.log = log;
+        this.errorRaiser = errorRaiser;
+        this.factory = factory;
+        this.options = options;
+    }
+
+    /**
+     * @return the batch of the session, the first module to ask creates it with its settings
+     */
+    public static TestCatalogBatch get(MavenSession session, Log log, ErrorRaiser<MojoExecutionException> errorRaiser,
+            PluginCommonFactory<MojoExecutionException> factory, DeployOptions options) {
+        return (TestCatalogBatch) BackgroundDeploys.atSessionEnd(session, KEY,
+                () -> new TestCatalogBatch(log, errorRaiser, factory, options));
+    }
+
+    public synchronized void add(String module, List<DeployTarget> targets, TestCatalogArtifactMavenImpl testCatalog) {
+        entries.add(new Entry(module, targets, testCatalog));
+    }
+
+    @Override
+    public Void call() throws MojoExecutionException {
+        List<Entry> toDeploy;
+        synchronized (this) {
+            toDeploy = new ArrayList<>(entries);
+        }
+        log.info("Deploying the test catalogs of " + toDeploy.size() + " module(s)");
+
+        List<DeployResult> results = new ArrayList<>();
+        try (CloseableHttpClient httpClient = options.createHttpClient(1)) {
+            TestCatalogPublisher publisher = new TestCatalogPublisher(log, errorRaiser, factory, httpClient);
+            publisher.setOptions(options);
+
+            for (Entry entry : toDeploy) {
+                for (DeployTarget target : entry.targets) {
+                    results.add(DeployResult.deploy(publisher, entry.module + " to " + target, target, entry.testCatalog));
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Problem closing the connection to the Galasa server", e);
+        }
+
+        DeployResult.report(log, results);
+        return null;
+    }
+
+    @Override
+    public synchronized String toString() {
+        List<String> modules = new ArrayList<>();
+        for (Entry entry : entries) {
+            modules.add(entry.module);
+        }
+        return String.join(", ", modules);
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import dev.galasa.plugin.common.AuthenticationService;
+import dev.galasa.plugin.common.ErrorRaiser;
+import dev.galasa.plugin.common.PluginCommonFactory;
+import dev.galasa.plugin.common.UrlCalculator;
+import dev.galasa.plugin.common.impl.GalasaRestApiMetadataImpl;
+
+/**
+ * Publishes a test catalog to the test catalog store of a Galasa server, in the same way as the
+ * TestCatalogArtifactDeployer of the plugin common library, but through an Apache HttpClient so the
+ * request headers can describe the body, for example when the catalog is sent gzip compressed.
+ *
+ * The API server and test catalog URLs and the JWT are worked out by the components of the plugin
+ * common library. An http bootstrap is fetched through the same client as the catalog. The
+ * bootstrap properties and the JWTs are kept for the life of the publisher, so publishing to several
+ * test streams of the same ecosystem only loads the bootstrap and exchanges the token once.
+ */
+public class TestCatalogPublisher {
+
+    private final Log                                         log;
+    private final ErrorRaiser<MojoExecutionException>         errorRaiser;
+    private final PluginCommonFactory<MojoExecutionException> factory;
+    private final CloseableHttpClient                         httpClient;
+    private final GalasaRestApiMetadataImpl                   restApiMetadata = new GalasaRestApiMetadataImpl();
+
+    // *** Keyed by the URL as a string, URL.equals() resolves host names
+    private final Map<String, Properties>                     bootstraps = new ConcurrentHashMap<>();
+    private final Map<String, String>                         jwts = new ConcurrentHashMap<>();
+
+    private DeployOptions                                     options = new DeployOptions();
+
+    public TestCatalogPublisher(Log log, ErrorRaiser<MojoExecutionException> errorRaiser,
+            PluginCommonFactory<MojoExecutionException> factory, CloseableHttpClient httpClient) {
+        this.log = log;
+        this.errorRaiser = errorRaiser;
+        this.factory = factory;
+        this.httpClient = httpClient;
+    }
+
+    /**
+     * @param options whether to skip an unchanged catalog, and how to retry a failed upload
+     */
+    public void setOptions(DeployOptions options) {
+        this.options = options;
+    }
+
+    public static void logDeprecation(Log log) {
+        log.warn("This task/goal is deprecated and will be removed in future versions of Galasa. Consider using the galasactl tool to set your test stream 'location' URL to refer to the location of your test catalog where it is located in your published maven repository.");
+    }
+
+    /**
+     * May be called from several threads at once, if the http client is pooling connections
+     *
+     * @return false if the catalog was not deployed as the server already has it
+     */
+    public boolean publish(URL bootstrapUrl, String testStream, String galasaAccessToken,
+            TestCatalogArtifactMavenImpl testCatalog) throws MojoExecutionException {
+        Properties bootstrapProperties = bootstraps.get(bootstrapUrl.toString());
+        if (bootstrapProperties == null) {
+            bootstrapProperties = loadBootstrap(bootstrapUrl);
+            bootstraps.put(bootstrapUrl.toString(), bootstrapProperties);
+        }
+
+        UrlCalculator<MojoExecutionException> urlCalculator = factory.newUrlCalculator(errorRaiser);
+        String apiServerUrl = urlCalculator.calculateApiServerUrl(bootstrapProperties, bootstrapUrl);
+        URL testCatalogUrl = urlCalculator.calculateTestCatalogUrl(apiServerUrl, testStream);
+
+        String jwt = null;
+        if (galasaAccessToken != null && !galasaAccessToken.isEmpty()) {
+            String jwtKey = apiServerUrl + " " + galasaAccessToken;
+            jwt = jwts.get(jwtKey);
+            if (jwt == null) {
+                jwt = getAuthenticatedJwt(galasaAccessToken, apiServerUrl);
+                jwts.put(jwtKey, jwt);
+            }
+        }
+
+        if (options.isSkipUnchanged()) {
+            // *** Only digested when it is to be compared, otherwise the catalog is read once, as it is sent
+            byte[] digest = testCatalog.getDigest();
+            if (isUnchanged(testCatalogUrl, jwt, digest)) {
+                log.info("Test Catalog at " + testCatalogUrl + " is unchanged (sha256 " + Hex.encodeHexString(digest)
+                        + "), not deploying it again");
+                return false;
+            }
+        }
+
+        put(testCatalogUrl, jwt, testCatalog);
+        log.info("Test Catalog successfully deployed to " + testCatalogUrl);
+        return true;
+    }
+
+    /**
+     * Fetch the catalog the server holds for the test stream and compare its digest with this one, as the
+     * server offers no digest of its own. The stored catalog is digested as it streams in rather than
+     * held. Anything but the same bytes, including no catalog or a failed request, means it is deployed.
+     */
+    private boolean isUnchanged(URL testCatalogUrl, String jwt, byte[] digest) {
+        HttpGet request = new HttpGet(testCatalogUrl.toString());
+        addHeaders(request, jwt);
+
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            HttpEntity responseEntity = response.getEntity();
+            if (response.getStatusLine().getStatusCode() != 200 || responseEntity == null) {
+                EntityUtils.consume(responseEntity);
+                return false;
+            }
+            try (InputStream is = responseEntity.getContent()) {
+                return Arrays.equals(digest, DigestUtils.sha256(is));
+            }
+        } catch (IOException e) {
+            log.warn("Unable to check whether the test catalog has changed, deploying it - " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * An http or https bootstrap is fetched through the pooled client, so the same timeouts and retries
+     * apply as to the upload. Any other bootstrap, such as a file, is left to the plugin common library.
+     */
+    private Properties loadBootstrap(URL bootstrapUrl) throws MojoExecutionException {
+        String protocol = bootstrapUrl.getProtocol();
+        if (!"http".equalsIgnoreCase(protocol) && !"https".equalsIgnoreCase(protocol)) {
+            return factory.newBootstrapLoader(new WrappedLogMaven(log), errorRaiser).getBootstrapProperties(bootstrapUrl);
+        }
+
+        HttpGet request = new HttpGet(bootstrapUrl.toString());
+        int attempts = options.getRetries() + 1;
+        for (int attempt = 1; ; attempt++) {
+            int statusCode = 0;
+            String reason = "";
+            long retryAfterMillis = 0;
+            IOException failure = null;
+            Properties properties = new Properties();
+
+            try (CloseableHttpResponse response = httpClient.execute(request)) {
+                statusCode = response.getStatusLine().getStatusCode();
+                reason = response.getStatusLine().getReasonPhrase();
+                retryAfterMillis = getRetryAfterMillis(response);
+                HttpEntity responseEntity = response.getEntity();
+                if (statusCode == 200 && responseEntity != null) {
+                    try (InputStream is = responseEntity.getContent()) {
+                        properties.load(is);
+                    }
+                } else {
+                    EntityUtils.consume(responseEntity);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            if (failure == null && statusCode == 200) {
+                log.info("Bootstrap properties loaded from " + bootstrapUrl);
+                return properties;
+            }
+
+            String outcome = (failure != null) ? failure.toString() : statusCode + " " + reason;
+            boolean retryable = (failure != null) || isRetryable(statusCode);
+            if (!retryable || attempt >= attempts) {
+                if (failure != null) {
+                    errorRaiser.raiseError(failure, "Unable to load bootstrap properties from {0}, Reason: {1}", bootstrapUrl, outcome);
+                }
+                errorRaiser.raiseError("Unable to load bootstrap properties from {0}, Reason: {1}", bootstrapUrl, outcome);
+            }
+
+            log.warn("Bootstrap load attempt " + attempt + " of " + attempts + " from " + bootstrapUrl + " - " + outcome);
+            waitToRetry("the bootstrap load from " + bootstrapUrl, attempt, retryAfterMillis);
+        }
+    }
+
+    private void addHeaders(HttpRequestBase request, String jwt) {
+        request.addHeader("Accept", "application/json");
+        if (jwt != null) {
+            request.addHeader("Authorization", "Bearer " + jwt);
+        }
+        request.addHeader("ClientApiVersion", restApiMetadata.getGalasaRestApiVersion());
+    }
+
+    private String getAuthenticatedJwt(String galasaAccessToken, String apiServerUrl) throws MojoExecutionException {
+        String jwt = null;
+        try {
+            AuthenticationService authService = factory.newAuthenticationService(new URL(apiServerUrl), galasaAccessToken, httpClient);
+            log.info("Turning the galasa access token into a JWT");
+            jwt = authService.getJWT();
+            log.info("Java Web Token (JWT) obtained from the galasa ecosystem OK.");
+        } catch (Exception e) {
+            errorRaiser.raiseError(e, "Failure when exchanging the galasa access token with a JWT");
+        }
+        return jwt;
+    }
+
+    private void put(URL testCatalogUrl, String jwt, TestCatalogArtifactMavenImpl testCatalog) throws MojoExecutionException {
+        HttpPut request = new HttpPut(testCatalogUrl.toString());
+        if (jwt == null) {
+            log.info("Not sending a JWT bearer token to the server, as the galasa.token property was not supplied.");
+        }
+        addHeaders(request, jwt);
+        request.setEntity(new TestCatalogEntity(testCatalog));
+
+        int attempts = options.getRetries() + 1;
+        for (int attempt = 1; ; attempt++) {
+            int statusCode = 0;
+            String reason = "";
+            String body = "";
+            long retryAfterMillis = 0;
+            IOException failure = null;
+
+            long start = System.nanoTime();
+            try (PluginEvents.Event event = PluginEvents.begin(PluginEvents.Type.DEPLOY, testCatalog.getArtifactId())
+                    .detail(testCatalogUrl.toString());
+                    CloseableHttpResponse response = httpClient.execute(request)) {
+                statusCode = response.getStatusLine().getStatusCode();
+                event.statusCode(statusCode).bytes(Math.max(0, testCatalog.getTransferLength()));
+                reason = response.getStatusLine().getReasonPhrase();
+                retryAfterMillis = getRetryAfterMillis(response);
+                HttpEntity responseEntity = response.getEntity();
+                if (responseEntity != null) {
+                    body = EntityUtils.toString(responseEntity, "utf-8");
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            String outcome = (failure != null) ? failure.toString() : statusCode + " " + reason;
+            log.info("Test catalog deploy attempt " + attempt + " of " + attempts + " to " + testCatalogUrl + " - "
+                    + outcome + " in " + elapsedMillis + "ms");
+
+            if (failure == null && statusCode == 200) {
+                return;
+            }
+
+            boolean retryable = (failure != null) || isRetryable(statusCode);
+            if (!retryable || attempt >= attempts) {
+                if (failure != null) {
+                    errorRaiser.raiseError(failure, "Problem publishing the test catalog. Problem dealing with response from Galasa server.");
+                }
+                log.error("Deploy to Test Catalog Store failed:-");
+                log.error(Integer.toString(statusCode) + " - " + reason);
+                if (!body.isEmpty()) {
+                    log.error(body);
+                }
+                errorRaiser.raiseError("Failed to deploy the test catalog. The server did not reply with OK (200)");
+            }
+
+            waitToRetry("the test catalog deploy to " + testCatalogUrl, attempt, retryAfterMillis);
+        }
+    }
+
+    private void waitToRetry(String what, int attempt, long retryAfterMillis) throws MojoExecutionException {
+        long backoffMillis = Math.max(retryAfterMillis,
+                backoffMillis(attempt, options.getRetryBackoffMillis(), options.getMaxBackoffMillis(), ThreadLocalRandom.current()));
+        backoffMillis = Math.max(0, Math.min(backoffMillis, options.getMaxBackoffMillis()));
+        log.warn("Retrying " + what + " in " + backoffMillis + "ms");
+        try {
+            Thread.sleep(backoffMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            errorRaiser.raiseError(e, "Interrupted waiting to retry {0}", what);
+        }
+    }
+
+    // *** A PUT can be repeated safely, so any server error, or a reply asking us to slow down, is retried
+    private static boolean isRetryable(int statusCode) {
+        return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+    }
+
+    private static long getRetryAfterMillis(CloseableHttpResponse response) {
+        Header retryAfter = response.getFirstHeader("Retry-After");
+        if (retryAfter != null) {
+            try {
+                return Long.parseLong(retryAfter.getValue().trim()) * 1000;
+            } catch (NumberFormatException e) {
+                // *** An HTTP date, the backoff is used instead
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": the wait doubles with each attempt up to the maximum, and
+     * a random half of it is added, so clients that failed together do not all retry together.
+     *
+     * @param attempt the attempt that failed, from 1
+     * @return between half and all of min(maxBackoff, initialBackoff * 2^(attempt-1))
+     */
+    static long backoffMillis(int attempt, long initialBackoffMillis, long maxBackoffMillis, Random random) {
+        long backoff = maxBackoffMillis;
+        if (attempt - 1 < 62 && initialBackoffMillis <= (maxBackoffMillis >> (attempt - 1))) {
+            backoff = initialBackoffMillis << (attempt - 1);
+        }
+        long half = backoff / 2;
+        return half + (long) (random.nextDouble() * (backoff - half));
+    }
+
+    /**
+     * Writes the catalog afresh each time, from its file or the loaded copy, so the request can be replayed
+     */
+    static class TestCatalogEntity extends AbstractHttpEntity {
+        private final TestCatalogArtifactMavenImpl testCatalog;
+
+        TestCatalogEntity(TestCatalogArtifactMavenImpl testCatalog) {
+            this.testCatalog = testCatalog;
+            setContentType("application/json");
+            if (testCatalog.isCompressed()) {
+                setContentEncoding("gzip");
+            }
+            setChunked(testCatalog.getTransferLength() < 0);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return testCatalog.getTransferLength();
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            try {
+                return testCatalog.openStream();
+            } catch (MojoExecutionException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public void writeTo(OutputStream outputStream) throws IOException {
+            try {
+                testCatalog.transferTo(outputStream);
+            } catch (MojoExecutionException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
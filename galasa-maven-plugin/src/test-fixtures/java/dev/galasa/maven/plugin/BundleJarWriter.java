@@ -0,0 +1,59 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+
+/**
+ * Writes a minimal OSGi bundle jar for the tests, a manifest naming the bundle and whatever
+ * entries have been added to it
+ */
+public class BundleJarWriter {
+
+    private final Manifest            manifest = new Manifest();
+    private final Map<String, byte[]> entries  = new LinkedHashMap<>();
+
+    public BundleJarWriter(String symbolicName) {
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Bundle-ManifestVersion", "2");
+        manifest.getMainAttributes().putValue("Bundle-SymbolicName", symbolicName);
+        manifest.getMainAttributes().putValue("Bundle-Version", "1.0.0");
+    }
+
+    public BundleJarWriter setHeader(String name, String value) {
+        if (value != null) {
+            manifest.getMainAttributes().putValue(name, value);
+        }
+        return this;
+    }
+
+    /**
+     * @param size the number of zero bytes in the entry
+     */
+    public BundleJarWriter addEntry(String name, int size) {
+        entries.put(name, new byte[size]);
+        return this;
+    }
+
+    public File write(File jar) throws IOException {
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                jos.putNextEntry(new ZipEntry(entry.getKey()));
+                jos.write(entry.getValue());
+                jos.closeEntry();
+            }
+        }
+        return jar;
+    }
+}
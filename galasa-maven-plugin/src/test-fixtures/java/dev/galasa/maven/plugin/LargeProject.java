@@ -0,0 +1,212 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+import org.eclipse.aether.resolution.ArtifactResult;
+
+/**
+ * A project made by the {@link LargeProjectGenerator}, with the Maven projects and artifacts to give
+ * the goals. The Maven projects are new on each call, as the goals add to them.
+ */
+public class LargeProject {
+
+    private final Path         base;
+    private final Path         repository;
+    private final Path         framework;
+    private final List<String> symbolicNames;
+    private final List<File>   bundles;
+    private final List<File>   obrs;
+    private final Path         featureProject;
+
+    LargeProject(Path base, Path repository, Path framework, List<String> symbolicNames, List<File> bundles,
+            List<File> obrs, Path featureProject) {
+        this.base = base;
+        this.repository = repository;
+        this.framework = framework;
+        this.symbolicNames = symbolicNames;
+        this.bundles = bundles;
+        this.obrs = obrs;
+        this.featureProject = featureProject;
+    }
+
+    public Path getBase() {
+        return base;
+    }
+
+    /**
+     * @return the Maven repository layout holding the bundles, OBRs and sister test catalogs
+     */
+    public Path getRepository() {
+        return repository;
+    }
+
+    /**
+     * @return the directory holding the compiled stub of the framework
+     */
+    public Path getFramework() {
+        return framework;
+    }
+
+    public List<String> getSymbolicNames() {
+        return symbolicNames;
+    }
+
+    public List<File> getBundles() {
+        return bundles;
+    }
+
+    /**
+     * @return the OBRs, the top one first
+     */
+    public List<File> getObrs() {
+        return obrs;
+    }
+
+    /**
+     * @return the base directory of the feature files, null if none were generated
+     */
+    public Path getFeatureProject() {
+        return featureProject;
+    }
+
+    public static Artifact createArtifact(File file, String artifactId, String type) {
+        DefaultArtifactHandler handler = new DefaultArtifactHandler(type);
+        handler.setAddedToClasspath(true);
+        DefaultArtifact artifact = new DefaultArtifact(LargeProjectGenerator.GROUP_ID, artifactId,
+                LargeProjectGenerator.VERSION, Artifact.SCOPE_COMPILE, type, null, handler);
+        artifact.setFile(file);
+        artifact.setResolved(true);
+        return artifact;
+    }
+
+    private static Dependency createDependency(String artifactId, String type) {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId(LargeProjectGenerator.GROUP_ID);
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion(LargeProjectGenerator.VERSION);
+        dependency.setScope(Artifact.SCOPE_COMPILE);
+        dependency.setType(type);
+        return dependency;
+    }
+
+    private static String getArtifactId(File file) {
+        String name = file.getName();
+        return name.substring(0, name.length() - ("-" + LargeProjectGenerator.VERSION + ".xxx").length());
+    }
+
+    /**
+     * The project of one of the bundles, with its classes compiled, for the bundletestcat and reactortestcat goals
+     */
+    public MavenProject createBundleProject(int bundle) {
+        String symbolicName = symbolicNames.get(bundle);
+        Path target = base.resolve("bundles").resolve(symbolicName).resolve("target");
+
+        MavenProject project = new MavenProject();
+        project.setGroupId(LargeProjectGenerator.GROUP_ID);
+        project.setArtifactId(symbolicName);
+        project.setVersion(LargeProjectGenerator.VERSION);
+        project.setPackaging("bundle");
+        project.getBuild().setDirectory(target.toString());
+        project.getBuild().setOutputDirectory(target.resolve("classes").toString());
+        project.setArtifacts(Collections.singleton(createArtifact(framework.toFile(), "dev.galasa.framework", "jar")));
+        project.getDependencies().add(createDependency("dev.galasa.framework", "jar"));
+        return project;
+    }
+
+    /**
+     * @return the classpath of one of the bundles, its classes and the framework
+     */
+    public List<String> getClasspathElements(int bundle) {
+        List<String> elements = new ArrayList<>();
+        elements.add(base.resolve("bundles").resolve(symbolicNames.get(bundle)).resolve("target").resolve("classes").toString());
+        elements.add(framework.toString());
+        return elements;
+    }
+
+    /**
+     * A galasa-obr project depending on all the bundles and OBRs, for the obrresources, obrembedded and
+     * mergetestcat goals
+     */
+    @SuppressWarnings("deprecation")
+    public MavenProject createObrProject() {
+        MavenProject project = new MavenProject();
+        project.setGroupId(LargeProjectGenerator.GROUP_ID);
+        project.setArtifactId(LargeProjectGenerator.GROUP_ID + ".project");
+        project.setVersion(LargeProjectGenerator.VERSION);
+        project.setName("Generated OBR");
+        project.setPackaging("galasa-obr");
+        project.setArtifact(createArtifact(null, project.getArtifactId(), "obr"));
+
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        for (File obr : obrs) {
+            artifacts.add(createArtifact(obr, getArtifactId(obr), "obr"));
+            project.getDependencies().add(createDependency(getArtifactId(obr), "obr"));
+        }
+        for (File bundle : bundles) {
+            artifacts.add(createArtifact(bundle, getArtifactId(bundle), "jar"));
+            project.getDependencies().add(createDependency(getArtifactId(bundle), "jar"));
+        }
+        project.setArtifacts(artifacts);
+        project.setDependencyArtifacts(new LinkedHashSet<>(artifacts));
+        return project;
+    }
+
+    /**
+     * The project holding the feature files, for the gherkin goals
+     */
+    public MavenProject createFeatureProject() {
+        MavenProject project = new MavenProject();
+        project.setGroupId(LargeProjectGenerator.GROUP_ID);
+        project.setArtifactId(LargeProjectGenerator.GROUP_ID + ".gherkin");
+        project.setVersion(LargeProjectGenerator.VERSION);
+        project.setFile(featureProject.resolve("pom.xml").toFile());
+        return project;
+    }
+
+    /**
+     * A repository system that resolves artifacts from the generated repository, such as the sister test
+     * catalogs wanted by the mergetestcat goal. Everything else is unsupported.
+     */
+    public RepositorySystem createRepositorySystem() {
+        return (RepositorySystem) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { RepositorySystem.class },
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("resolveArtifact")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    ArtifactRequest request = (ArtifactRequest) args[1];
+                    org.eclipse.aether.artifact.Artifact artifact = request.getArtifact();
+                    String classifier = artifact.getClassifier().isEmpty() ? "" : "-" + artifact.getClassifier();
+                    Path file = LargeProjectGenerator.getRepositoryDirectory(repository, artifact.getArtifactId())
+                            .resolve(artifact.getArtifactId() + "-" + artifact.getVersion() + classifier + "." + artifact.getExtension());
+
+                    ArtifactResult result = new ArtifactResult(request);
+                    if (!artifact.getGroupId().equals(LargeProjectGenerator.GROUP_ID) || !Files.exists(file)) {
+                        throw new ArtifactResolutionException(Collections.singletonList(result),
+                                "Could not find artifact " + artifact);
+                    }
+                    result.setArtifact(artifact.setFile(file.toFile()));
+                    return result;
+                });
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.jar.Attributes;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.felix.bundlerepository.DataModelHelper;
+import org.apache.felix.bundlerepository.impl.DataModelHelperImpl;
+import org.apache.felix.bundlerepository.impl.Referral;
+import org.apache.felix.bundlerepository.impl.RepositoryImpl;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Generates a Galasa project of a chosen size on local disk, to scale test and profile the goals
+ * offline. The defaults make a small project, set the sizes before calling generate.
+ *
+ * Everything is generated from a seed, so the same sizes always give the same bundles and features.
+ * The test classes are compiled with the system compiler, so a JDK is needed, and compiling tens of
+ * thousands of classes takes a while.
+ */
+public class LargeProjectGenerator {
+
+    public static final String GROUP_ID = "dev.galasa.generated";
+    public static final String VERSION  = "0.0.1";
+
+    private static final long  ENTRY_TIME = 946684800000L;
+
+    private final Path base;
+
+    private long    seed                        = 42;
+
+    // *** Bundles, each a compiled bundle project and its jar in the repository
+    private int     bundles                     = 10;
+    private int     packagesPerBundle           = 5;
+    private int     testClassesPerBundle        = 10;
+    private int     otherClassesPerBundle       = 10;
+    private int     sharedEnvironmentsPerBundle = 0;
+    private int     methodsPerClass             = 5;
+    private int     bundlePadding               = 0;
+    private boolean embeddedTestCatalogs        = true;
+    private boolean sisterTestCatalogs          = false;
+
+    // *** OBRs, a tree with the bundles shared between them
+    private int     obrDepth                    = 1;
+    private int     obrChildren                 = 2;
+
+    // *** Feature files, in a tree of directories with other files alongside them
+    private int     features                    = 0;
+    private int     featureDirectoryDepth       = 3;
+    private int     scenariosPerFeature         = 5;
+
+    /**
+     * @param baseDirectory where to generate the project, usually a temporary folder
+     */
+    public LargeProjectGenerator(File baseDirectory) {
+        this.base = baseDirectory.toPath();
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setBundles(int bundles) {
+        this.bundles = bundles;
+    }
+
+    public void setPackagesPerBundle(int packagesPerBundle) {
+        this.packagesPerBundle = Math.max(1, packagesPerBundle);
+    }
+
+    public void setTestClassesPerBundle(int testClassesPerBundle) {
+        this.testClassesPerBundle = testClassesPerBundle;
+    }
+
+    public void setOtherClassesPerBundle(int otherClassesPerBundle) {
+        this.otherClassesPerBundle = otherClassesPerBundle;
+    }
+
+    public void setSharedEnvironmentsPerBundle(int sharedEnvironmentsPerBundle) {
+        this.sharedEnvironmentsPerBundle = sharedEnvironmentsPerBundle;
+    }
+
+    public void setMethodsPerClass(int methodsPerClass) {
+        this.methodsPerClass = methodsPerClass;
+    }
+
+    /**
+     * @param bundlePadding bytes of random content added to each bundle jar, to give it a realistic size
+     */
+    public void setBundlePadding(int bundlePadding) {
+        this.bundlePadding = bundlePadding;
+    }
+
+    /**
+     * @param embeddedTestCatalogs true to put the test catalog of each bundle in its jar
+     */
+    public void setEmbeddedTestCatalogs(boolean embeddedTestCatalogs) {
+        this.embeddedTestCatalogs = embeddedTestCatalogs;
+    }
+
+    /**
+     * @param sisterTestCatalogs true to put the test catalog of each bundle next to its jar in the repository
+     */
+    public void setSisterTestCatalogs(boolean sisterTestCatalogs) {
+        this.sisterTestCatalogs = sisterTestCatalogs;
+    }
+
+    /**
+     * @param obrDepth    levels of OBRs, 1 for a single OBR
+     * @param obrChildren OBRs referred to by each OBR above the lowest level
+     */
+    public void setObrs(int obrDepth, int obrChildren) {
+        this.obrDepth = Math.max(1, obrDepth);
+        this.obrChildren = Math.max(1, obrChildren);
+    }
+
+    public void setFeatures(int features) {
+        this.features = features;
+    }
+
+    public void setFeatureDirectoryDepth(int featureDirectoryDepth) {
+        this.featureDirectoryDepth = featureDirectoryDepth;
+    }
+
+    public void setScenariosPerFeature(int scenariosPerFeature) {
+        this.scenariosPerFeature = scenariosPerFeature;
+    }
+
+    public LargeProject generate() throws Exception {
+        Random random = new Random(seed);
+        Path repository = base.resolve("repository");
+
+        Path framework = createFramework(base.resolve("framework"));
+
+        List<String> symbolicNames = new ArrayList<>();
+        List<File> jars = new ArrayList<>();
+        for (int i = 0; i < bundles; i++) {
+            String symbolicName = GROUP_ID + ".bundle" + i;
+            Path classes = base.resolve("bundles").resolve(symbolicName).resolve("target").resolve("classes");
+            JsonObject catalog = createBundleClasses(framework, symbolicName, classes);
+
+            Path directory = getRepositoryDirectory(repository, symbolicName);
+            File jar = directory.resolve(symbolicName + "-" + VERSION + ".jar").toFile();
+            createBundleJar(jar, symbolicName, classes, embeddedTestCatalogs ? catalog : null, random);
+            if (sisterTestCatalogs) {
+                Files.write(directory.resolve(symbolicName + "-" + VERSION + "-testcatalog.json"),
+                        catalog.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            symbolicNames.add(symbolicName);
+            jars.add(jar);
+        }
+
+        List<File> obrs = createObrs(repository, jars);
+
+        Path featureProject = null;
+        if (features > 0) {
+            featureProject = createFeatureProject(base.resolve("features"), random);
+        }
+
+        return new LargeProject(base, repository, framework, symbolicNames, jars, obrs, featureProject);
+    }
+
+    static Path getRepositoryDirectory(Path repository, String artifactId) {
+        return repository.resolve(GROUP_ID.replace('.', '/')).resolve(artifactId).resolve(VERSION);
+    }
+
+    private void compile(Path sources, Path classes, String classpath, List<String> files) throws IOException {
+        Files.createDirectories(classes);
+        List<String> arguments = new ArrayList<>(Arrays.asList("-d", classes.toString(), "-classpath", classpath,
+                "-nowarn", "-proc:none"));
+        for (int i = 0; i < files.size(); i += 2) {
+            Path file = sources.resolve(files.get(i));
+            Files.createDirectories(file.getParent());
+            Files.write(file, files.get(i + 1).getBytes(StandardCharsets.UTF_8));
+            arguments.add(file.toString());
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IOException("Generating a project needs the system compiler of a JDK");
+        }
+        if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+            throw new IOException("Unable to compile the generated classes in " + sources);
+        }
+    }
+
+    // *** Just enough of the Galasa framework for the catalog, the annotations and a builder
+    private Path createFramework(Path framework) throws Exception {
+        String gson = Paths.get(JsonObject.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        String runtime = "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n";
+        compile(base.resolve("framework-src"), framework, gson, Arrays.asList(
+                "dev/galasa/Test.java", "package dev.galasa;\n" + runtime + "public @interface Test {}\n",
+                "dev/galasa/SharedEnvironment.java", "package dev.galasa;\n" + runtime + "public @interface SharedEnvironment {}\n",
+                "dev/galasa/framework/spi/TestCatalogBuilder.java",
+                "package dev.galasa.framework.spi;\n" + runtime + "public @interface TestCatalogBuilder {}\n",
+                "dev/galasa/framework/spi/ITestCatalogBuilder.java",
+                "package dev.galasa.framework.spi;\nimport com.google.gson.JsonObject;\n"
+                        + "public interface ITestCatalogBuilder {\n"
+                        + "    void appendTestCatalog(JsonObject root, JsonObject testClass, Class<?> klass);\n"
+                        + "    void appendTestCatalogForSharedEnvironment(JsonObject senv, Class<?> klass);\n}\n",
+                "dev/galasa/framework/spi/MethodsBuilder.java",
+                "package dev.galasa.framework.spi;\nimport com.google.gson.JsonObject;\n"
+                        + "@TestCatalogBuilder\npublic class MethodsBuilder implements ITestCatalogBuilder {\n"
+                        + "    public void appendTestCatalog(JsonObject root, JsonObject testClass, Class<?> klass) {\n"
+                        + "        testClass.addProperty(\"methods\", klass.getDeclaredMethods().length);\n    }\n"
+                        + "    public void appendTestCatalogForSharedEnvironment(JsonObject senv, Class<?> klass) {\n    }\n}\n"));
+        return framework;
+    }
+
+    /**
+     * Compile the classes of a bundle, each test using a helper in its own package and one in the next
+     *
+     * @return the test catalog of the bundle, as the bundletestcat goal would build it
+     */
+    private JsonObject createBundleClasses(Path framework, String symbolicName, Path classes) throws IOException {
+        JsonObject jsonClasses = new JsonObject();
+        JsonObject jsonPackages = new JsonObject();
+        JsonObject jsonBundlePackages = new JsonObject();
+        JsonObject jsonSenvs = new JsonObject();
+
+        List<String> files = new ArrayList<>();
+        int helpers = Math.max(1, otherClassesPerBundle);
+        for (int i = 0; i < otherClassesPerBundle; i++) {
+            String pkg = symbolicName + ".p" + (i % packagesPerBundle);
+            files.addAll(createClass(pkg, "Helper" + i, null, null));
+        }
+        for (int i = 0; i < sharedEnvironmentsPerBundle; i++) {
+            String pkg = symbolicName + ".p" + (i % packagesPerBundle);
+            files.addAll(createClass(pkg, "Environment" + i, "@dev.galasa.SharedEnvironment", null));
+            jsonSenvs.add(symbolicName + "/" + pkg + ".Environment" + i,
+                    createCatalogClass(symbolicName, pkg, "Environment" + i));
+        }
+        for (int i = 0; i < testClassesPerBundle; i++) {
+            int p = i % packagesPerBundle;
+            String pkg = symbolicName + ".p" + p;
+            List<String> uses = new ArrayList<>();
+            if (otherClassesPerBundle > 0) {
+                for (int helper : new int[] { p % helpers, (p + 1) % helpers }) {
+                    String helperName = symbolicName + ".p" + (helper % packagesPerBundle) + ".Helper" + helper;
+                    if (!uses.contains(helperName)) {
+                        uses.add(helperName);
+                    }
+                }
+            }
+            files.addAll(createClass(pkg, "Test" + i, "@dev.galasa.Test", uses));
+
+            String fullName = symbolicName + "/" + pkg + ".Test" + i;
+            jsonClasses.add(fullName, createCatalogClass(symbolicName, pkg, "Test" + i));
+            addToPackage(jsonPackages, pkg, fullName);
+            addToPackage(jsonBundlePackages, pkg, fullName);
+        }
+        compile(classes.getParent().getParent().resolve("src"), classes, framework.toString(), files);
+
+        Files.createDirectories(classes.resolve("META-INF"));
+        Files.write(classes.resolve("META-INF").resolve("MANIFEST.MF"),
+                ("Manifest-Version: 1.0\nBundle-SymbolicName: " + symbolicName + "\n").getBytes(StandardCharsets.UTF_8));
+
+        JsonObject catalog = new JsonObject();
+        catalog.add("classes", jsonClasses);
+        catalog.add("packages", jsonPackages);
+        JsonObject jsonBundles = new JsonObject();
+        JsonObject jsonBundle = new JsonObject();
+        jsonBundle.add("packages", jsonBundlePackages);
+        jsonBundles.add(symbolicName, jsonBundle);
+        catalog.add("bundles", jsonBundles);
+        catalog.add("sharedEnvironments", jsonSenvs);
+        return catalog;
+    }
+
+    private List<String> createClass(String pkg, String className, String annotation, List<String> uses) {
+        StringBuilder source = new StringBuilder("package ").append(pkg).append(";\n");
+        if (annotation != null) {
+            source.append(annotation).append('\n');
+        }
+        source.append("public class ").append(className).append(" {\n");
+        if (uses != null) {
+            for (int i = 0; i < uses.size(); i++) {
+                source.append("    private ").append(uses.get(i)).append(" used").append(i).append(";\n");
+            }
+        }
+        for (int m = 0; m < methodsPerClass; m++) {
+            if (annotation != null && annotation.equals("@dev.galasa.Test")) {
+                source.append("    @dev.galasa.Test\n");
+            }
+            source.append("    public void method").append(m).append("() { System.out.println(\"")
+                    .append(className).append('.').append(m).append("\"); }\n");
+        }
+        source.append("}\n");
+        return Arrays.asList(pkg.replace('.', '/') + "/" + className + ".java", source.toString());
+    }
+
+    private JsonObject createCatalogClass(String symbolicName, String pkg, String className) {
+        JsonObject jsonClass = new JsonObject();
+        jsonClass.addProperty("name", pkg + "." + className);
+        jsonClass.addProperty("bundle", symbolicName);
+        jsonClass.addProperty("shortName", className);
+        jsonClass.addProperty("package", pkg);
+        return jsonClass;
+    }
+
+    private void addToPackage(JsonObject packages, String pkg, String fullName) {
+        JsonArray classes = packages.getAsJsonArray(pkg);
+        if (classes == null) {
+            classes = new JsonArray();
+            packages.add(pkg, classes);
+        }
+        classes.add(fullName);
+    }
+
+    private void createBundleJar(File jar, String symbolicName, Path classes, JsonObject catalog, Random random)
+            throws IOException {
+        StringBuilder exports = new StringBuilder();
+        for (int p = 0; p < packagesPerBundle; p++) {
+            if (p > 0) {
+                exports.append(',');
+            }
+            exports.append(symbolicName).append(".p").append(p).append(";version=\"").append(VERSION).append('"');
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Bundle-ManifestVersion", "2");
+        manifest.getMainAttributes().putValue("Bundle-SymbolicName", symbolicName);
+        manifest.getMainAttributes().putValue("Bundle-Name", "Generated bundle " + symbolicName);
+        manifest.getMainAttributes().putValue("Bundle-Version", VERSION);
+        manifest.getMainAttributes().putValue("Export-Package", exports.toString());
+        manifest.getMainAttributes().putValue("Import-Package", "dev.galasa");
+
+        Files.createDirectories(jar.getParentFile().toPath());
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+            jos.putNextEntry(createEntry(JarFile.MANIFEST_NAME));
+            manifest.write(jos);
+            jos.closeEntry();
+
+            List<Path> files = new ArrayList<>();
+            try (Stream<Path> walk = Files.walk(classes)) {
+                walk.filter(Files::isRegularFile).filter(file -> file.toString().endsWith(".class")).sorted()
+                        .forEach(files::add);
+            }
+            for (Path file : files) {
+                jos.putNextEntry(createEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                jos.write(Files.readAllBytes(file));
+                jos.closeEntry();
+            }
+            if (catalog != null) {
+                jos.putNextEntry(createEntry("META-INF/testcatalog.json"));
+                jos.write(catalog.toString().getBytes(StandardCharsets.UTF_8));
+                jos.closeEntry();
+            }
+            if (bundlePadding > 0) {
+                byte[] padding = new byte[bundlePadding];
+                random.nextBytes(padding);
+                jos.putNextEntry(createEntry("padding.bin"));
+                jos.write(padding);
+                jos.closeEntry();
+            }
+        }
+    }
+
+    // *** A fixed time, so the same bundle always has the same digest
+    private ZipEntry createEntry(String name) {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTime(ENTRY_TIME);
+        return entry;
+    }
+
+    /**
+     * Create the tree of OBRs, each referring to the OBRs below it, with the bundles dealt out between them
+     *
+     * @return the OBRs, the top one first
+     */
+    private List<File> createObrs(Path repository, List<File> jars) throws Exception {
+        List<String> names = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        names.add(GROUP_ID + ".obr");
+        parents.add(-1);
+        int levelStart = 0;
+        for (int level = 1; level < obrDepth; level++) {
+            int levelEnd = names.size();
+            for (int parent = levelStart; parent < levelEnd; parent++) {
+                for (int child = 0; child < obrChildren; child++) {
+                    names.add(names.get(parent) + child);
+                    parents.add(parent);
+                }
+            }
+            levelStart = levelEnd;
+        }
+
+        List<File> obrs = new ArrayList<>();
+        List<RepositoryImpl> repositories = new ArrayList<>();
+        for (String name : names) {
+            obrs.add(getRepositoryDirectory(repository, name).resolve(name + "-" + VERSION + ".obr").toFile());
+            RepositoryImpl obr = new RepositoryImpl();
+            obr.setName(name);
+            repositories.add(obr);
+        }
+
+        DataModelHelper helper = new DataModelHelperImpl();
+        for (int i = 0; i < jars.size(); i++) {
+            repositories.get(i % repositories.size()).addResource(helper.createResource(jars.get(i).toURI().toURL()));
+        }
+        for (int i = 1; i < names.size(); i++) {
+            Referral referral = new Referral();
+            referral.setUrl(obrs.get(i).toURI().toString());
+            referral.setDepth("1");
+            repositories.get(parents.get(i)).addReferral(referral);
+        }
+
+        for (int i = 0; i < names.size(); i++) {
+            Files.createDirectories(obrs.get(i).getParentFile().toPath());
+            try (FileWriter writer = new FileWriter(obrs.get(i))) {
+                helper.writeRepository(repositories.get(i), writer);
+            }
+        }
+        return obrs;
+    }
+
+    private Path createFeatureProject(Path project, Random random) throws IOException {
+        Path features = project.resolve("src").resolve("test").resolve("resources").resolve("features");
+        for (int i = 0; i < this.features; i++) {
+            Path directory = features;
+            int remaining = i;
+            for (int level = 0; level < featureDirectoryDepth; level++) {
+                directory = directory.resolve("d" + level + "_" + (remaining % 10));
+                remaining /= 10;
+            }
+            Files.createDirectories(directory);
+
+            StringBuilder feature = new StringBuilder("@area").append(i % 10).append("\nFeature: Feature ").append(i)
+                    .append("\n  A generated feature\n\n  Background:\n    Given a terminal\n\n");
+            for (int s = 0; s < scenariosPerFeature; s++) {
+                feature.append("  @tag").append(random.nextInt(50)).append('\n');
+                if (s % 3 == 2) {
+                    feature.append("  Scenario Outline: Outline ").append(s).append('\n')
+                            .append("    When I enter <value>\n    Then I see <result>\n\n")
+                            .append("    Examples:\n      | value | result |\n");
+                    for (int e = 0; e < 3; e++) {
+                        feature.append("      | ").append(random.nextInt(1000)).append(" | ok |\n");
+                    }
+                } else {
+                    feature.append("  Scenario: Scenario ").append(s).append('\n')
+                            .append("    When I log on as user").append(random.nextInt(100)).append('\n')
+                            .append("    Then I see the menu\n");
+                }
+                feature.append('\n');
+            }
+            Files.write(directory.resolve("feature" + i + ".feature"), feature.toString().getBytes(StandardCharsets.UTF_8));
+            Files.write(directory.resolve("data" + i + ".txt"), ("data " + i + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        // *** A build output that the scan should prune
+        Path target = project.resolve("target").resolve("classes").resolve("features");
+        Files.createDirectories(target);
+        Files.write(target.resolve("copied.feature"), "Feature: Copied\n".getBytes(StandardCharsets.UTF_8));
+
+        Files.write(project.resolve("pom.xml"), "<project/>\n".getBytes(StandardCharsets.UTF_8));
+        return project;
+    }
+}
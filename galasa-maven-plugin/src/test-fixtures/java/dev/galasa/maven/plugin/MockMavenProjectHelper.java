@@ -0,0 +1,55 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.model.Resource;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+
+public class MockMavenProjectHelper implements MavenProjectHelper {
+
+    @Override
+    public void attachArtifact(MavenProject project, File artifactFile, String artifactClassifier) {
+        attachArtifact(project, "jar", artifactClassifier, artifactFile);
+    }
+
+    @Override
+    public void attachArtifact(MavenProject project, String artifactType, File artifactFile) {
+        attachArtifact(project, artifactType, null, artifactFile);
+    }
+
+    @Override
+    public void attachArtifact(MavenProject project, String artifactType, String artifactClassifier, File artifactFile) {
+        DefaultArtifact artifact = new DefaultArtifact(project.getGroupId(), project.getArtifactId(), project.getVersion(),
+                null, artifactType, artifactClassifier, new DefaultArtifactHandler(artifactType));
+        artifact.setFile(artifactFile);
+        project.addAttachedArtifact(artifact);
+    }
+
+    @Override
+    public void addResource(MavenProject project, String resourceDirectory, List<String> includes, List<String> excludes) {
+        project.addResource(createResource(resourceDirectory, includes, excludes));
+    }
+
+    @Override
+    public void addTestResource(MavenProject project, String resourceDirectory, List<String> includes, List<String> excludes) {
+        project.addTestResource(createResource(resourceDirectory, includes, excludes));
+    }
+
+    private Resource createResource(String resourceDirectory, List<String> includes, List<String> excludes) {
+        Resource resource = new Resource();
+        resource.setDirectory(resourceDirectory);
+        resource.setIncludes(includes);
+        resource.setExcludes(excludes);
+        return resource;
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+public class BuildGherkinTestCatalogTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private void createFile(Path base, String relative, String content) throws Exception {
+        Path file = base.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes("utf-8"));
+    }
+
+    private JsonObject buildCatalog(Path base, File output) throws Exception {
+        return buildCatalog(base, output, null);
+    }
+
+    private JsonObject buildCatalog(Path base, File output, List<String> includes) throws Exception {
+        MavenProject project = new MavenProject();
+        project.setGroupId("dev.galasa.example");
+        project.setArtifactId("dev.galasa.example.gherkin");
+        project.setVersion("0.0.1");
+        project.setFile(new File(base.toFile(), "pom.xml"));
+
+        BuildGherkinTestCatalog mojo = new BuildGherkinTestCatalog();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "scanThreads", 2);
+        ReflectionUtils.setVariableValueInObject(mojo, "reuseScan", true);
+        ReflectionUtils.setVariableValueInObject(mojo, "includes", includes);
+        mojo.execute();
+
+        String catalog = FileUtils.readFileToString(new File(output, "testcatalog.json"), "utf-8");
+        return new Gson().fromJson(catalog, JsonObject.class);
+    }
+
+    @Test
+    public void TestCatalogHoldsScenariosAndTagIndex() throws Exception {
+        Path base = temp.newFolder("project").toPath();
+        String logon = "@zos\nFeature: Logon\n  @smoke\n  Scenario: Valid\n    Given a user\n"
+                + "  Scenario Outline: Many\n    Given <x>\n    Examples:\n      | x |\n      | 1 |\n      | 2 |\n";
+        createFile(base, "features/logon.feature", logon);
+        createFile(base, "features/other.feature", "@smoke\nFeature: Other\n  Scenario: One\n");
+        File output = temp.newFolder("output");
+
+        JsonObject catalog = buildCatalog(base, output);
+
+        String logonName = "features" + File.separator + "logon.feature";
+        JsonObject feature = catalog.getAsJsonObject("gherkin").getAsJsonObject(logonName);
+        assertThat(feature.get("shortName").getAsString()).isEqualTo("logon");
+        assertThat(feature.get("title").getAsString()).isEqualTo("Logon");
+        assertThat(feature.get("sha256").getAsString()).isEqualTo(DigestUtils.sha256Hex(logon));
+
+        JsonArray scenarios = feature.getAsJsonArray("scenarios");
+        assertThat(scenarios).hasSize(2);
+        assertThat(scenarios.get(0).getAsJsonObject().get("type").getAsString()).isEqualTo("scenario");
+        assertThat(scenarios.get(1).getAsJsonObject().get("type").getAsString()).isEqualTo("outline");
+        assertThat(scenarios.get(1).getAsJsonObject().get("examples").getAsInt()).isEqualTo(2);
+
+        JsonObject tags = catalog.getAsJsonObject("gherkinTags");
+        assertThat(tags.getAsJsonArray("@smoke")).hasSize(2);
+        assertThat(tags.getAsJsonArray("@zos")).hasSize(1);
+        assertThat(tags.getAsJsonArray("@zos").get(0).getAsString()).isEqualTo(logonName);
+    }
+
+    @Test
+    public void TestShortNameDropsWhateverExtensionTheIncludesMatch() throws Exception {
+        Path base = temp.newFolder("project").toPath();
+        createFile(base, "stories/logon.story", "Feature: Logon\n  Scenario: Valid\n");
+        createFile(base, "stories/a.f", "Feature: Short\n  Scenario: One\n");
+        createFile(base, "stories/README", "Feature: No extension\n  Scenario: One\n");
+        File output = temp.newFolder("output");
+
+        JsonObject gherkin = buildCatalog(base, output, Arrays.asList("**/*.story", "**/*.f", "**/README"))
+                .getAsJsonObject("gherkin");
+
+        assertThat(gherkin.getAsJsonObject("stories" + File.separator + "logon.story").get("shortName").getAsString()).isEqualTo("logon");
+        assertThat(gherkin.getAsJsonObject("stories" + File.separator + "a.f").get("shortName").getAsString()).isEqualTo("a");
+        assertThat(gherkin.getAsJsonObject("stories" + File.separator + "README").get("shortName").getAsString()).isEqualTo("README");
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BuildGherkinZipTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path createFile(Path base, String relative, String content) throws Exception {
+        Path file = base.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes("utf-8"));
+        return file;
+    }
+
+    private BuildGherkinZip createMojo(File baseDirectory, File output) throws Exception {
+        MavenProject project = new MavenProject();
+        project.setArtifactId("dev.galasa.example.gherkin");
+        project.setVersion("0.0.1");
+        project.setFile(new File(baseDirectory, "pom.xml"));
+
+        BuildGherkinZip mojo = new BuildGherkinZip();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "reuseScan", true);
+        ReflectionUtils.setVariableValueInObject(mojo, "zipThreads", 2);
+        return mojo;
+    }
+
+    private Path createFeatures() throws Exception {
+        Path base = temp.newFolder("project").toPath();
+        createFile(base, "features/zeta.feature", "Feature: zeta\n");
+        createFile(base, "features/nested/alpha.feature", "Feature: alpha\n  Scenario: one\n");
+        createFile(base, "beta.feature", "Feature: beta\n");
+        return base;
+    }
+
+    @Test
+    public void TestZipHoldsSortedFeatureFiles() throws Exception {
+        Path base = createFeatures();
+        File output = temp.newFolder("output");
+
+        createMojo(base.toFile(), output).execute();
+
+        List<String> names = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(new File(output, "dev.galasa.example.gherkin-0.0.1.zip"))) {
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                names.add(entry.getName());
+            }
+            String alpha = IOUtils.toString(zip.getInputStream(zip.getEntry("features/nested/alpha.feature")), "utf-8");
+            assertThat(alpha).isEqualTo("Feature: alpha\n  Scenario: one\n");
+        }
+        assertThat(names).containsExactly("beta.feature", "features/nested/alpha.feature", "features/zeta.feature");
+    }
+
+    @Test
+    public void TestZipIsReproducible() throws Exception {
+        Path base = createFeatures();
+        File output1 = temp.newFolder("output1");
+        File output2 = temp.newFolder("output2");
+
+        createMojo(base.toFile(), output1).execute();
+        Thread.sleep(1100);
+        BuildGherkinZip mojo = createMojo(base.toFile(), output2);
+        ReflectionUtils.setVariableValueInObject(mojo, "zipThreads", 1);
+        mojo.execute();
+
+        assertThat(new File(output2, "dev.galasa.example.gherkin-0.0.1.zip"))
+                .hasSameBinaryContentAs(new File(output1, "dev.galasa.example.gherkin-0.0.1.zip"));
+    }
+
+    @Test
+    public void TestZipIsOnlyRebuiltWhenAFeatureChanges() throws Exception {
+        Path base = createFeatures();
+        File output = temp.newFolder("output");
+        File zip = new File(output, "dev.galasa.example.gherkin-0.0.1.zip");
+
+        createMojo(base.toFile(), output).execute();
+        zip.setLastModified(1000L);
+
+        createMojo(base.toFile(), output).execute();
+        assertThat(zip.lastModified()).isEqualTo(1000L);
+
+        Files.write(base.resolve("beta.feature"), "Feature: beta changed\n".getBytes("utf-8"));
+        createMojo(base.toFile(), output).execute();
+        assertThat(zip.lastModified()).isNotEqualTo(1000L);
+        try (ZipFile zipFile = new ZipFile(zip)) {
+            assertThat(IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("beta.feature")), "utf-8"))
+                    .isEqualTo("Feature: beta changed\n");
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+public class BuildMetricsTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private MavenProject createProject(File buildDirectory) {
+        MavenProject project = new MavenProject();
+        project.setGroupId("dev.galasa");
+        project.setArtifactId("dev.galasa.example.obr");
+        project.setVersion("0.0.1");
+        project.getBuild().setDirectory(buildDirectory.getPath());
+        return project;
+    }
+
+    private JsonObject readMetrics(File buildDirectory) throws Exception {
+        String metrics = FileUtils.readFileToString(new File(buildDirectory, BuildMetrics.METRICS_FILE), "utf-8");
+        return new Gson().fromJson(metrics, JsonObject.class);
+    }
+
+    @Test
+    public void TestPhasesAreRecordedAndTheGoalsOfAProjectMerged() throws Exception {
+        File target = temp.newFolder("target");
+        MavenProject project = createProject(target);
+
+        BuildMetrics obr = new BuildMetrics("obrresources");
+        try (BuildMetrics.Timer timer = obr.start(BuildMetrics.Phase.SCAN).items(1).bytesRead(100)) {
+            timer.items(1).bytesRead(50);
+        }
+        try (BuildMetrics.Timer timer = obr.start(BuildMetrics.Phase.SCAN).items(1)) {
+            timer.bytesRead(25);
+        }
+        obr.add(BuildMetrics.Phase.WRITE, 1, 0, 10);
+        obr.write(new MockMavenLog(), project, true, false);
+
+        BuildMetrics merge = new BuildMetrics("mergetestcat");
+        merge.start(BuildMetrics.Phase.MERGE).items(3).close();
+        merge.write(new MockMavenLog(), project, true, false);
+
+        JsonObject metrics = readMetrics(target);
+        assertThat(metrics.get("project").getAsString()).isEqualTo("dev.galasa:dev.galasa.example.obr:0.0.1");
+        assertThat(metrics.getAsJsonObject("goals").keySet()).containsExactlyInAnyOrder("obrresources", "mergetestcat");
+
+        JsonObject phases = metrics.getAsJsonObject("goals").getAsJsonObject("obrresources").getAsJsonObject("phases");
+        assertThat(phases.keySet()).containsExactly("scan", "write");
+        JsonObject scan = phases.getAsJsonObject("scan");
+        assertThat(scan.get("count").getAsLong()).isEqualTo(2);
+        assertThat(scan.get("items").getAsLong()).isEqualTo(3);
+        assertThat(scan.get("bytesRead").getAsLong()).isEqualTo(175);
+        assertThat(scan.get("bytesWritten").getAsLong()).isEqualTo(0);
+        assertThat(phases.getAsJsonObject("write").get("bytesWritten").getAsLong()).isEqualTo(10);
+
+        assertThat(metrics.getAsJsonObject("goals").getAsJsonObject("mergetestcat").getAsJsonObject("phases")
+                .getAsJsonObject("merge").get("items").getAsLong()).isEqualTo(3);
+    }
+
+    @Test
+    public void TestPrometheusFileLabelsEachPhase() throws Exception {
+        File target = temp.newFolder("target");
+
+        BuildMetrics metrics = new BuildMetrics("gherkinzip");
+        metrics.start(BuildMetrics.Phase.SCAN).items(4).close();
+        metrics.start(BuildMetrics.Phase.WRITE).items(4).bytesWritten(2048).close();
+        metrics.write(new MockMavenLog(), createProject(target), false, true);
+
+        assertThat(new File(target, BuildMetrics.METRICS_FILE)).exists();
+        String prometheus = FileUtils.readFileToString(new File(target, BuildMetrics.PROMETHEUS_FILE), "utf-8");
+        assertThat(prometheus)
+                .contains("# TYPE galasa_plugin_goal_seconds gauge\n")
+                .contains("galasa_plugin_goal_seconds{project=\"dev.galasa:dev.galasa.example.obr\",goal=\"gherkinzip\"} ")
+                .contains("galasa_plugin_phase_items{project=\"dev.galasa:dev.galasa.example.obr\",goal=\"gherkinzip\",phase=\"scan\"} 4\n")
+                .contains("galasa_plugin_phase_bytes_written{project=\"dev.galasa:dev.galasa.example.obr\",goal=\"gherkinzip\",phase=\"write\"} 2048\n");
+    }
+
+    @Test
+    public void TestNothingIsWrittenWhenDisabledOrNothingWasDone() throws Exception {
+        File target = temp.newFolder("target");
+
+        BuildMetrics done = new BuildMetrics("obrembedded");
+        done.start(BuildMetrics.Phase.COPY).close();
+        done.write(new MockMavenLog(), createProject(target), false, false);
+
+        BuildMetrics skipped = new BuildMetrics("obrembedded");
+        skipped.write(new MockMavenLog(), createProject(target), true, true);
+
+        assertThat(target.list()).isEmpty();
+    }
+
+    @Test
+    public void TestGoalWritesItsMetricsWhenEnabled() throws Exception {
+        LargeProjectGenerator generator = new LargeProjectGenerator(temp.newFolder("project"));
+        generator.setBundles(2);
+        generator.setTestClassesPerBundle(3);
+        LargeProject largeProject = generator.generate();
+
+        File output = temp.newFolder("target");
+        MavenProject project = largeProject.createObrProject();
+        project.getBuild().setDirectory(output.getPath());
+
+        MergeTestCatalogs mojo = new MergeTestCatalogs();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "repoSystem", largeProject.createRepositorySystem());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "writeMetrics", true);
+        mojo.execute();
+
+        JsonObject phases = readMetrics(output).getAsJsonObject("goals").getAsJsonObject("mergetestcat")
+                .getAsJsonObject("phases");
+        assertThat(phases.keySet()).containsExactly("parse", "merge", "write");
+        assertThat(phases.getAsJsonObject("parse").get("items").getAsLong()).isEqualTo(2);
+        assertThat(phases.getAsJsonObject("parse").get("bytesRead").getAsLong()).isPositive();
+        assertThat(phases.getAsJsonObject("write").get("bytesWritten").getAsLong())
+                .isEqualTo(new File(output, "testcatalog.json").length());
+        assertThat(new File(output, BuildMetrics.PROMETHEUS_FILE)).doesNotExist();
+    }
+}
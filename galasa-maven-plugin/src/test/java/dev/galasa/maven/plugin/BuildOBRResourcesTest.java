@@ -0,0 +1,283 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.felix.bundlerepository.Repository;
+import org.apache.felix.bundlerepository.impl.DataModelHelperImpl;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+public class BuildOBRResourcesTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File createBundle(String symbolicName, String exportPackage, int padding) throws Exception {
+        return new BundleJarWriter(symbolicName).setHeader("Export-Package", exportPackage).addEntry("padding.bin", padding)
+                .write(new File(temp.getRoot(), symbolicName + ".jar"));
+    }
+
+    @SuppressWarnings("deprecation")
+    private MavenProject createProject(File... bundles) {
+        MavenProject project = new MavenProject();
+        project.setGroupId("dev.galasa.example");
+        project.setArtifactId("dev.galasa.example.obr");
+        project.setVersion("0.0.1-SNAPSHOT");
+        project.setPackaging("galasa-obr");
+        project.setArtifact(new DefaultArtifact("dev.galasa.example", "dev.galasa.example.obr", "0.0.1-SNAPSHOT",
+                Artifact.SCOPE_COMPILE, "obr", null, new DefaultArtifactHandler("obr")));
+
+        Set<Artifact> dependencies = new LinkedHashSet<>();
+        for (File bundle : bundles) {
+            String artifactId = bundle.getName().substring(0, bundle.getName().length() - 4);
+            DefaultArtifact artifact = new DefaultArtifact("dev.galasa.example", artifactId, "0.0.1",
+                    Artifact.SCOPE_COMPILE, "jar", null, new DefaultArtifactHandler("jar"));
+            artifact.setFile(bundle);
+            artifact.setResolved(true);
+            dependencies.add(artifact);
+        }
+        project.setDependencyArtifacts(dependencies);
+        return project;
+    }
+
+    private BuildOBRResources createMojo(MavenProject project, File outputDirectory) throws Exception {
+        BuildOBRResources mojo = new BuildOBRResources();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", outputDirectory);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectTargetDirectory", outputDirectory);
+        ReflectionUtils.setVariableValueInObject(mojo, "incremental", true);
+        ReflectionUtils.setVariableValueInObject(mojo, "buildIndex", true);
+        return mojo;
+    }
+
+    private Repository readRepository(File file) throws Exception {
+        try (FileReader reader = new FileReader(file)) {
+            return new DataModelHelperImpl().readRepository(reader);
+        }
+    }
+
+    @Test
+    public void TestBundlesAreWrittenWithContentDigests() throws Exception {
+        File bundle1 = createBundle("dev.galasa.example.one", "dev.galasa.example.one;version=\"1.0.0\"", 100);
+        File bundle2 = createBundle("dev.galasa.example.two", null, 200);
+        File output = temp.newFolder("target");
+
+        createMojo(createProject(bundle1, bundle2), output).execute();
+
+        Repository repository = readRepository(new File(output, "repository.obr"));
+        assertThat(repository.getResources()).hasSize(2);
+        assertThat(repository.getResources()[0].getURI()).isEqualTo("mvn:dev.galasa.example/dev.galasa.example.one/0.0.1/jar");
+        assertThat(BundleContent.getSha256(repository.getResources()[0])).isEqualTo(new BundleContent(bundle1).getSha256());
+        assertThat(repository.getResources()[1].getSize()).isEqualTo(bundle2.length());
+    }
+
+    @Test
+    public void TestRepositoryIsNotRewrittenWhenNothingChanged() throws Exception {
+        File bundle1 = createBundle("dev.galasa.example.one", "dev.galasa.example.one;version=\"1.0.0\"", 100);
+        File bundle2 = createBundle("dev.galasa.example.two", null, 200);
+        File output = temp.newFolder("target");
+
+        createMojo(createProject(bundle1, bundle2), output).execute();
+        File repositoryFile = new File(output, "repository.obr");
+        String firstContent = FileUtils.readFileToString(repositoryFile, "utf-8");
+        repositoryFile.setLastModified(1000L);
+
+        MockMavenLog log = new MockMavenLog();
+        BuildOBRResources mojo = createMojo(createProject(bundle1, bundle2), output);
+        mojo.setLog(log);
+        mojo.execute();
+
+        assertThat(repositoryFile.lastModified()).isEqualTo(1000L);
+        assertThat(FileUtils.readFileToString(repositoryFile, "utf-8")).isEqualTo(firstContent);
+        log.assertContainsRecord("INFO:BuildOBRResources: Reused unchanged bundle dev.galasa.example.one/1.0.0 - dev.galasa.example.one/1.0.0");
+    }
+
+    @Test
+    public void TestRepositoryIsRewrittenWhenABundleChanges() throws Exception {
+        File bundle1 = createBundle("dev.galasa.example.one", "dev.galasa.example.one;version=\"1.0.0\"", 100);
+        File bundle2 = createBundle("dev.galasa.example.two", null, 200);
+        File output = temp.newFolder("target");
+
+        createMojo(createProject(bundle1, bundle2), output).execute();
+        File repositoryFile = new File(output, "repository.obr");
+        repositoryFile.setLastModified(1000L);
+
+        bundle2 = createBundle("dev.galasa.example.two", null, 300);
+        createMojo(createProject(bundle1, bundle2), output).execute();
+
+        assertThat(repositoryFile.lastModified()).isNotEqualTo(1000L);
+        Repository repository = readRepository(repositoryFile);
+        assertThat(BundleContent.getSha256(repository.getResources()[1])).isEqualTo(new BundleContent(bundle2).getSha256());
+    }
+
+    @Test
+    public void TestIndexMapsPackagesAndFlagsUnresolvedRequirements() throws Exception {
+        File bundle1 = createBundle("dev.galasa.example.one", "dev.galasa.example.one;version=\"1.2.0\"", 100);
+        File bundle2 = createBundleImporting("dev.galasa.example.two",
+                "dev.galasa.example.one;version=\"[1.0,2)\",com.example.missing");
+        File output = temp.newFolder("target");
+
+        MavenProject project = createProject(bundle1, bundle2);
+        MockMavenLog log = new MockMavenLog();
+        BuildOBRResources mojo = createMojo(project, output);
+        mojo.setLog(log);
+        mojo.execute();
+
+        File indexFile = new File(output, "repository-index.json");
+        JsonObject index = new Gson().fromJson(FileUtils.readFileToString(indexFile, "utf-8"), JsonObject.class);
+
+        JsonArray providers = index.getAsJsonObject("packages").getAsJsonArray("dev.galasa.example.one");
+        assertThat(providers).hasSize(1);
+        assertThat(providers.get(0).getAsJsonObject().get("version").getAsString()).isEqualTo("1.2.0");
+        assertThat(providers.get(0).getAsJsonObject().get("resource").getAsString()).isEqualTo("dev.galasa.example.one/1.0.0");
+
+        JsonArray unresolved = index.getAsJsonArray("unresolved");
+        assertThat(unresolved).hasSize(1);
+        assertThat(unresolved.get(0).getAsJsonObject().get("filter").getAsString()).contains("com.example.missing");
+
+        assertThat(project.getAttachedArtifacts()).anyMatch(a -> "index".equals(a.getClassifier()));
+    }
+
+    @Test
+    public void TestIndexIgnoresPackagesProvidedByTheRuntime() throws Exception {
+        File bundle = createBundleImporting("dev.galasa.example.two",
+                "org.osgi.framework;version=\"[1.8,2)\",javax.xml.parsers,dev.galasa.framework.spi,dev.galasa.core.manager");
+        File output = temp.newFolder("target");
+
+        MockMavenLog log = new MockMavenLog();
+        BuildOBRResources mojo = createMojo(createProject(bundle), output);
+        mojo.setLog(log);
+        mojo.execute();
+
+        JsonObject index = new Gson().fromJson(FileUtils.readFileToString(new File(output, "repository-index.json"), "utf-8"),
+                JsonObject.class);
+        assertThat(index.getAsJsonArray("unresolved")).isEmpty();
+        log.assertDoesNotContainRecordStartingWith("WARN:");
+    }
+
+    @Test
+    public void TestIndexIgnoreListCanBeReplaced() throws Exception {
+        File bundle = createBundleImporting("dev.galasa.example.two", "org.osgi.framework,com.example.runtime.api");
+        File output = temp.newFolder("target");
+
+        BuildOBRResources mojo = createMojo(createProject(bundle), output);
+        ReflectionUtils.setVariableValueInObject(mojo, "ignorePackages", Arrays.asList("com.example.runtime.*"));
+        mojo.execute();
+
+        JsonObject index = new Gson().fromJson(FileUtils.readFileToString(new File(output, "repository-index.json"), "utf-8"),
+                JsonObject.class);
+        JsonArray unresolved = index.getAsJsonArray("unresolved");
+        assertThat(unresolved).hasSize(1);
+        assertThat(unresolved.get(0).getAsJsonObject().get("filter").getAsString()).contains("org.osgi.framework");
+    }
+
+    @Test
+    public void TestIndexIsNotBuiltByDefault() throws Exception {
+        File bundle = createBundle("dev.galasa.example.one", "dev.galasa.example.one", 100);
+        File output = temp.newFolder("target");
+
+        MavenProject project = createProject(bundle);
+        BuildOBRResources mojo = createMojo(project, output);
+        ReflectionUtils.setVariableValueInObject(mojo, "buildIndex", false);
+        mojo.execute();
+
+        assertThat(new File(output, "repository-index.json")).doesNotExist();
+        assertThat(project.getAttachedArtifacts()).noneMatch(a -> "index".equals(a.getClassifier()));
+    }
+
+    @Test
+    public void TestR5IndexGroupsCapabilitiesByNamespace() throws Exception {
+        File bundle1 = createBundle("dev.galasa.example.one", "dev.galasa.example.one;version=\"1.2.0\"", 100);
+        File bundle2 = createBundleImporting("dev.galasa.example.two", "dev.galasa.example.one;version=\"[1.0,2)\"");
+        File output = temp.newFolder("target");
+
+        MavenProject project = createProject(bundle1, bundle2);
+        BuildOBRResources mojo = createMojo(project, output);
+        ReflectionUtils.setVariableValueInObject(mojo, "buildR5Index", true);
+        mojo.execute();
+
+        // *** Read it back with a streaming parser, noting the namespaces in order per resource
+        List<List<String>> capabilities = new ArrayList<>();
+        List<String> requirementFilters = new ArrayList<>();
+        String contentUrl = null;
+        try (InputStream is = new GZIPInputStream(new FileInputStream(new File(output, "repository.xml.gz")))) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(is);
+            String namespace = null;
+            String element = null;
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                switch (reader.getLocalName()) {
+                    case "resource":
+                        capabilities.add(new ArrayList<>());
+                        break;
+                    case "capability":
+                    case "requirement":
+                        element = reader.getLocalName();
+                        namespace = reader.getAttributeValue(null, "namespace");
+                        if ("capability".equals(element)) {
+                            capabilities.get(capabilities.size() - 1).add(namespace);
+                        }
+                        break;
+                    case "attribute":
+                        if ("osgi.content".equals(namespace) && "url".equals(reader.getAttributeValue(null, "name"))) {
+                            contentUrl = reader.getAttributeValue(null, "value");
+                        }
+                        break;
+                    case "directive":
+                        if ("requirement".equals(element) && "filter".equals(reader.getAttributeValue(null, "name"))) {
+                            requirementFilters.add(reader.getAttributeValue(null, "value"));
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        assertThat(capabilities).hasSize(2);
+        assertThat(capabilities.get(0)).isSorted().contains("osgi.identity", "osgi.content", "osgi.wiring.bundle", "osgi.wiring.package");
+        assertThat(contentUrl).isEqualTo("mvn:dev.galasa.example/dev.galasa.example.two/0.0.1/jar");
+        assertThat(requirementFilters).anyMatch(f -> f.contains("(osgi.wiring.package=dev.galasa.example.one)"));
+        assertThat(project.getAttachedArtifacts()).anyMatch(a -> "r5".equals(a.getClassifier()));
+    }
+
+    private File createBundleImporting(String symbolicName, String importPackage) throws Exception {
+        return new BundleJarWriter(symbolicName).setHeader("Import-Package", importPackage)
+                .write(new File(temp.getRoot(), symbolicName + ".jar"));
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.felix.bundlerepository.DataModelHelper;
+import org.apache.felix.bundlerepository.Repository;
+import org.apache.felix.bundlerepository.impl.DataModelHelperImpl;
+import org.apache.felix.bundlerepository.impl.RepositoryImpl;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+public class BuildObrEmbeddedRepositoryTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File createBundle(File directory, String symbolicName, int padding) throws Exception {
+        return new BundleJarWriter(symbolicName).addEntry("padding.bin", padding)
+                .write(new File(directory, symbolicName + ".jar"));
+    }
+
+    private File createObr(File directory, File... bundles) throws Exception {
+        DataModelHelper helper = new DataModelHelperImpl();
+        RepositoryImpl repository = new RepositoryImpl();
+        for (File bundle : bundles) {
+            repository.addResource(helper.createResource(bundle.toURI().toURL()));
+        }
+        File obr = new File(directory, "example.obr");
+        try (FileWriter writer = new FileWriter(obr)) {
+            helper.writeRepository(repository, writer);
+        }
+        return obr;
+    }
+
+    private Artifact createArtifact(File file, String type) {
+        String artifactId = file.getName().substring(0, file.getName().lastIndexOf('.'));
+        DefaultArtifact artifact = new DefaultArtifact("dev.galasa.example", artifactId, "0.0.1",
+                Artifact.SCOPE_COMPILE, type, null, new DefaultArtifactHandler(type));
+        artifact.setFile(file);
+        artifact.setResolved(true);
+        return artifact;
+    }
+
+    private BuildObrEmbeddedRepository createMojo(File output, boolean hardLink, File obr, File... bundles) throws Exception {
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(createArtifact(obr, "obr"));
+        for (File bundle : bundles) {
+            artifacts.add(createArtifact(bundle, "jar"));
+        }
+        MavenProject project = new MavenProject();
+        project.setArtifacts(artifacts);
+
+        BuildObrEmbeddedRepository mojo = new BuildObrEmbeddedRepository();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project);
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "hardLink", hardLink);
+        ReflectionUtils.setVariableValueInObject(mojo, "copyThreads", 2);
+        return mojo;
+    }
+
+    @Test
+    public void TestOnlyBundlesInTheObrAreCopied() throws Exception {
+        File repo = temp.newFolder("repo");
+        File one = createBundle(repo, "dev.galasa.example.one", 100);
+        File two = createBundle(repo, "dev.galasa.example.two", 200);
+        File other = createBundle(repo, "dev.galasa.example.other", 300);
+        File obr = createObr(repo, one, two);
+        File output = temp.newFolder("target");
+
+        createMojo(output, false, obr, one, two, other).execute();
+
+        assertThat(new File(output, "dev.galasa.example.one.jar")).hasSameBinaryContentAs(one);
+        assertThat(new File(output, "dev.galasa.example.two.jar")).hasSameBinaryContentAs(two);
+        assertThat(new File(output, "dev.galasa.example.other.jar")).doesNotExist();
+
+        Repository repository;
+        try (FileReader reader = new FileReader(new File(output, "galasa.obr"))) {
+            repository = new DataModelHelperImpl().readRepository(reader);
+        }
+        assertThat(repository.getResources()).hasSize(2);
+        assertThat(repository.getResources()[0].getURI()).isEqualTo("file:dev.galasa.example.one.jar");
+        assertThat(BundleContent.getSha256(repository.getResources()[0])).isEqualTo(new BundleContent(one).getSha256());
+    }
+
+    @Test
+    public void TestUnchangedBundlesAreNotCopiedAgain() throws Exception {
+        File repo = temp.newFolder("repo");
+        File one = createBundle(repo, "dev.galasa.example.one", 100);
+        File obr = createObr(repo, one);
+        File output = temp.newFolder("target");
+
+        createMojo(output, false, obr, one).execute();
+        File target = new File(output, "dev.galasa.example.one.jar");
+        target.setLastModified(1000L);
+
+        createMojo(output, false, obr, one).execute();
+
+        assertThat(target.lastModified()).isEqualTo(1000L);
+    }
+
+    @Test
+    public void TestUnchangedRepositoryIsNotWrittenAgain() throws Exception {
+        File repo = temp.newFolder("repo");
+        File one = createBundle(repo, "dev.galasa.example.one", 100);
+        File obr = createObr(repo, one);
+        File output = temp.newFolder("target");
+
+        BuildObrEmbeddedRepository mojo = createMojo(output, false, obr, one);
+        ReflectionUtils.setVariableValueInObject(mojo, "buildR5Index", true);
+        mojo.execute();
+        File repositoryFile = new File(output, "galasa.obr");
+        File r5File = new File(output, "repository.xml.gz");
+        byte[] r5Content = Files.readAllBytes(r5File.toPath());
+        repositoryFile.setLastModified(1000L);
+        r5File.setLastModified(1000L);
+
+        Thread.sleep(10);
+        mojo = createMojo(output, false, obr, one);
+        ReflectionUtils.setVariableValueInObject(mojo, "buildR5Index", true);
+        mojo.execute();
+
+        assertThat(repositoryFile.lastModified()).isEqualTo(1000L);
+        assertThat(r5File.lastModified()).isEqualTo(1000L);
+        assertThat(Files.readAllBytes(r5File.toPath())).isEqualTo(r5Content);
+    }
+
+    @Test
+    public void TestChangedRepositoryIsWrittenWithANewIncrement() throws Exception {
+        File repo = temp.newFolder("repo");
+        File one = createBundle(repo, "dev.galasa.example.one", 100);
+        File two = createBundle(repo, "dev.galasa.example.two", 200);
+        File output = temp.newFolder("target");
+        File r5File = new File(output, "repository.xml.gz");
+
+        BuildObrEmbeddedRepository mojo = createMojo(output, false, createObr(repo, one, two), one);
+        ReflectionUtils.setVariableValueInObject(mojo, "buildR5Index", true);
+        mojo.execute();
+        long first = R5RepositoryWriter.readIncrement(r5File);
+
+        Thread.sleep(10);
+        mojo = createMojo(output, false, createObr(repo, one, two), one, two);
+        ReflectionUtils.setVariableValueInObject(mojo, "buildR5Index", true);
+        mojo.execute();
+
+        assertThat(first).isPositive();
+        assertThat(R5RepositoryWriter.readIncrement(r5File)).isGreaterThan(first);
+    }
+
+    @Test
+    public void TestBundlesAreHardLinkedWhenAllowed() throws Exception {
+        File repo = temp.newFolder("repo");
+        File one = createBundle(repo, "dev.galasa.example.one", 100);
+        File obr = createObr(repo, one);
+        File output = temp.newFolder("target");
+
+        createMojo(output, true, obr, one).execute();
+
+        assertThat(Files.isSameFile(one.toPath(), new File(output, "dev.galasa.example.one.jar").toPath())).isTrue();
+    }
+
+    @Test
+    public void TestArtifactWithoutAFileIsIgnored() throws Exception {
+        File repo = temp.newFolder("repo");
+        File one = createBundle(repo, "dev.galasa.example.one", 100);
+        File output = temp.newFolder("target");
+
+        BuildObrEmbeddedRepository mojo = createMojo(output, false, createObr(repo, one), one);
+        MockMavenLog log = new MockMavenLog();
+        mojo.setLog(log);
+        Artifact unresolved = createArtifact(new File(repo, "dev.galasa.example.unresolved.jar"), "jar");
+        unresolved.setFile(null);
+        ((MavenProject) ReflectionUtils.getValueIncludingSuperclasses("project", mojo)).getArtifacts().add(unresolved);
+
+        mojo.execute();
+
+        assertThat(new File(output, "dev.galasa.example.one.jar")).exists();
+        log.assertContainsRecord("WARN:Ignoring artifact " + unresolved + " as not a valid OSGi bundle");
+    }
+
+    @Test
+    public void TestStaleBundlesArePruned() throws Exception {
+        File repo = temp.newFolder("repo");
+        File one = createBundle(repo, "dev.galasa.example.one", 100);
+        File two = createBundle(repo, "dev.galasa.example.two", 200);
+        File output = temp.newFolder("target");
+        File unrelated = new File(output, "unrelated.jar");
+        Files.write(unrelated.toPath(), new byte[10]);
+
+        createMojo(output, false, createObr(repo, one, two), one, two).execute();
+        assertThat(new File(output, "dev.galasa.example.two.jar")).exists();
+
+        createMojo(output, false, createObr(repo, one), one).execute();
+
+        assertThat(new File(output, "dev.galasa.example.one.jar")).exists();
+        assertThat(new File(output, "dev.galasa.example.two.jar")).doesNotExist();
+        assertThat(unrelated).exists();
+    }
+
+    @Test
+    public void TestArchiveHoldsSortedStoredBundlesAtIndexedOffsets() throws Exception {
+        File repo = temp.newFolder("repo");
+        File two = createBundle(repo, "dev.galasa.example.two", 200);
+        File one = createBundle(repo, "dev.galasa.example.one", 100);
+        File output = temp.newFolder("target");
+
+        // *** Start from loose jars so switching to the archive prunes them
+        createMojo(output, false, createObr(repo, one, two), two, one).execute();
+        BuildObrEmbeddedRepository mojo = createMojo(output, false, createObr(repo, one, two), two, one);
+        ReflectionUtils.setVariableValueInObject(mojo, "archive", true);
+        mojo.execute();
+
+        File archive = new File(output, BuildObrEmbeddedRepository.ARCHIVE_NAME);
+        assertThat(new File(output, "dev.galasa.example.one.jar")).doesNotExist();
+        assertThat(new File(output, "dev.galasa.example.two.jar")).doesNotExist();
+
+        List<String> names = new ArrayList<>();
+        JsonObject index;
+        try (ZipFile zipFile = new ZipFile(archive)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                names.add(entry.getName());
+            }
+            assertThat(zipFile.getEntry("dev.galasa.example.one.jar").getMethod()).isEqualTo(ZipEntry.STORED);
+            try (InputStreamReader reader = new InputStreamReader(zipFile.getInputStream(zipFile.getEntry(BundleArchiveWriter.INDEX_ENTRY)), "utf-8")) {
+                index = new Gson().fromJson(reader, JsonObject.class);
+            }
+        }
+        assertThat(names).containsExactly("dev.galasa.example.one.jar", "dev.galasa.example.two.jar", BundleArchiveWriter.INDEX_ENTRY);
+
+        byte[] archiveBytes = Files.readAllBytes(archive.toPath());
+        JsonObject jsonTwo = index.getAsJsonObject("bundles").getAsJsonObject("dev.galasa.example.two.jar");
+        int offset = jsonTwo.get("offset").getAsInt();
+        int size = jsonTwo.get("size").getAsInt();
+        assertThat(Arrays.copyOfRange(archiveBytes, offset, offset + size)).isEqualTo(Files.readAllBytes(two.toPath()));
+        assertThat(jsonTwo.get("sha256").getAsString()).isEqualTo(new BundleContent(two).getSha256());
+
+        Repository repository;
+        try (FileReader reader = new FileReader(new File(output, "galasa.obr"))) {
+            repository = new DataModelHelperImpl().readRepository(reader);
+        }
+        assertThat(repository.getResources()).extracting(r -> r.getURI()).containsExactlyInAnyOrder(
+                "galasa-bundles.zip!/dev.galasa.example.one.jar",
+                "galasa-bundles.zip!/dev.galasa.example.two.jar");
+    }
+
+    @Test
+    public void TestArchivedBundleResolvesAgainstTheRepository() throws Exception {
+        File repo = temp.newFolder("repo");
+        File one = createBundle(repo, "dev.galasa.example.one", 100);
+        File output = temp.newFolder("target");
+
+        BuildObrEmbeddedRepository mojo = createMojo(output, false, createObr(repo, one), one);
+        ReflectionUtils.setVariableValueInObject(mojo, "archive", true);
+        mojo.execute();
+
+        // *** The working directory of the test is not the output directory
+        File repositoryFile = new File(output, "galasa.obr");
+        assertThat(new File(".").getCanonicalFile()).isNotEqualTo(output.getCanonicalFile());
+        Repository repository;
+        try (FileReader reader = new FileReader(repositoryFile)) {
+            repository = new DataModelHelperImpl().readRepository(reader);
+        }
+
+        URL bundleUrl = BuildObrEmbeddedRepository.resolveBundleUrl(repositoryFile.toURI().toURL(),
+                repository.getResources()[0].getURI());
+        URLConnection connection = bundleUrl.openConnection();
+        connection.setUseCaches(false);
+        try (InputStream in = connection.getInputStream(); InputStream expected = new FileInputStream(one)) {
+            assertThat(in).hasSameContentAs(expected);
+        }
+    }
+
+    @Test
+    public void TestLooseBundleResolvesAgainstTheRepository() throws Exception {
+        URL repositoryUrl = new File(temp.getRoot(), "galasa.obr").toURI().toURL();
+
+        assertThat(BuildObrEmbeddedRepository.resolveBundleUrl(repositoryUrl, "file:dev.galasa.example.one.jar"))
+                .isEqualTo(new File(temp.getRoot(), "dev.galasa.example.one.jar").toURI().toURL());
+    }
+
+    @Test
+    public void TestArchiveIsReproducible() throws Exception {
+        File repo = temp.newFolder("repo");
+        File one = createBundle(repo, "dev.galasa.example.one", 100);
+        File two = createBundle(repo, "dev.galasa.example.two", 200);
+        List<EmbeddedBundle> bundles = new ArrayList<>();
+        for (File bundle : new File[] { two, one }) {
+            BundleContent content = new BundleContent(bundle);
+            bundles.add(new EmbeddedBundle(bundle.getName(), bundle.toPath(), content.getSha256(), content.getSize(), null));
+        }
+
+        File first = new File(temp.newFolder("first"), BuildObrEmbeddedRepository.ARCHIVE_NAME);
+        new BundleArchiveWriter(2).write(first.toPath(), bundles);
+        Thread.sleep(2100);
+        Collections.reverse(bundles);
+        File second = new File(temp.newFolder("second"), BuildObrEmbeddedRepository.ARCHIVE_NAME);
+        new BundleArchiveWriter(1).write(second.toPath(), bundles);
+
+        assertThat(second).hasSameBinaryContentAs(first);
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.execution.ProjectDependencyGraph;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+public class BuildReactorTestCatalogsTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private void compile(Path sources, Path classes, String classpath, String... files) throws Exception {
+        Files.createDirectories(classes);
+        List<String> arguments = new ArrayList<>(Arrays.asList("-d", classes.toString(), "-classpath", classpath));
+        for (int i = 0; i < files.length; i += 2) {
+            Path file = sources.resolve(files[i]);
+            Files.createDirectories(file.getParent());
+            Files.write(file, files[i + 1].getBytes("utf-8"));
+            arguments.add(file.toString());
+        }
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assertThat(compiler.run(null, null, null, arguments.toArray(new String[0]))).isEqualTo(0);
+    }
+
+    // *** Just enough of the Galasa framework for the catalog, with a builder that records its own identity
+    // *** and how many threads were calling it at once
+    private Path createFramework() throws Exception {
+        Path framework = temp.getRoot().toPath().resolve("framework");
+        String gson = Paths.get(JsonObject.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        String runtime = "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n";
+        compile(temp.getRoot().toPath().resolve("framework-src"), framework, gson,
+                "dev/galasa/Test.java", "package dev.galasa;\n" + runtime + "public @interface Test {}\n",
+                "dev/galasa/SharedEnvironment.java", "package dev.galasa;\n" + runtime + "public @interface SharedEnvironment {}\n",
+                "dev/galasa/framework/spi/TestCatalogBuilder.java",
+                "package dev.galasa.framework.spi;\n" + runtime + "public @interface TestCatalogBuilder {}\n",
+                "dev/galasa/framework/spi/ITestCatalogBuilder.java",
+                "package dev.galasa.framework.spi;\nimport com.google.gson.JsonObject;\n"
+                        + "public interface ITestCatalogBuilder {\n"
+                        + "    void appendTestCatalog(JsonObject root, JsonObject testClass, Class<?> klass);\n"
+                        + "    void appendTestCatalogForSharedEnvironment(JsonObject senv, Class<?> klass);\n}\n",
+                "dev/galasa/framework/spi/IdentityBuilder.java",
+                "package dev.galasa.framework.spi;\nimport com.google.gson.JsonObject;\n"
+                        + "@TestCatalogBuilder\npublic class IdentityBuilder implements ITestCatalogBuilder {\n"
+                        + "    private final java.util.concurrent.atomic.AtomicInteger active = new java.util.concurrent.atomic.AtomicInteger();\n"
+                        + "    public void appendTestCatalog(JsonObject root, JsonObject testClass, Class<?> klass) {\n"
+                        + "        int callers = active.incrementAndGet();\n"
+                        + "        try { Thread.sleep(20); } catch (InterruptedException e) { }\n"
+                        + "        active.decrementAndGet();\n"
+                        + "        testClass.addProperty(\"callers\", callers);\n"
+                        + "        testClass.addProperty(\"builder\", System.identityHashCode(this));\n    }\n"
+                        + "    public void appendTestCatalogForSharedEnvironment(JsonObject senv, Class<?> klass) {\n"
+                        + "        senv.addProperty(\"builder\", System.identityHashCode(this));\n    }\n}\n");
+        return framework;
+    }
+
+    private MavenProject createBundle(Path framework, String name, String... files) throws Exception {
+        Path base = temp.getRoot().toPath().resolve(name);
+        Path classes = base.resolve("target").resolve("classes");
+        compile(base.resolve("src"), classes, framework.toString(), files);
+        Files.createDirectories(classes.resolve("META-INF"));
+        Files.write(classes.resolve("META-INF").resolve("MANIFEST.MF"),
+                ("Manifest-Version: 1.0\nBundle-SymbolicName: dev.galasa." + name + "\n").getBytes("utf-8"));
+
+        MavenProject project = new MavenProject();
+        project.setGroupId("dev.galasa.example");
+        project.setArtifactId("dev.galasa." + name);
+        project.setVersion("0.0.1");
+        project.setPackaging("bundle");
+        project.getBuild().setDirectory(base.resolve("target").toString());
+        project.getBuild().setOutputDirectory(classes.toString());
+
+        DefaultArtifactHandler handler = new DefaultArtifactHandler("jar");
+        handler.setAddedToClasspath(true);
+        DefaultArtifact artifact = new DefaultArtifact("dev.galasa", "dev.galasa.framework", "0.0.1", "compile", "jar",
+                null, handler);
+        artifact.setFile(framework.toFile());
+        project.setArtifacts(Collections.<Artifact>singleton(artifact));
+        Dependency dependency = new Dependency();
+        dependency.setGroupId("dev.galasa");
+        dependency.setArtifactId("dev.galasa.framework");
+        project.getDependencies().add(dependency);
+        return project;
+    }
+
+    /**
+     * @return a reactor of the projects in which the OBR depends on all the bundles, and is built last
+     */
+    private MavenSession createSession(MavenProject obr, List<MavenProject> bundles, MavenProject... others) {
+        List<MavenProject> projects = new ArrayList<>(Arrays.asList(others));
+        projects.addAll(bundles);
+        projects.add(obr);
+
+        ProjectDependencyGraph graph = new ProjectDependencyGraph() {
+            @Override
+            public List<MavenProject> getAllProjects() {
+                return projects;
+            }
+
+            @Override
+            public List<MavenProject> getSortedProjects() {
+                return projects;
+            }
+
+            @Override
+            public List<MavenProject> getDownstreamProjects(MavenProject project, boolean transitive) {
+                return bundles.contains(project) ? Collections.singletonList(obr) : Collections.<MavenProject>emptyList();
+            }
+
+            @Override
+            public List<MavenProject> getUpstreamProjects(MavenProject project, boolean transitive) {
+                return project == obr ? bundles : Collections.<MavenProject>emptyList();
+            }
+        };
+
+        @SuppressWarnings("deprecation")
+        MavenSession session = new MavenSession(null, new DefaultRepositorySystemSession(),
+                new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+        session.setProjects(projects);
+        session.setProjectDependencyGraph(graph);
+        return session;
+    }
+
+    private MavenProject createObr(String name) {
+        MavenProject obr = new MavenProject();
+        obr.setGroupId("dev.galasa.example");
+        obr.setArtifactId("dev.galasa." + name);
+        obr.setVersion("0.0.1");
+        obr.setPackaging("galasa-obr");
+        obr.getBuild().setOutputDirectory(temp.getRoot().toPath().resolve(name).resolve("target").resolve("classes").toString());
+        return obr;
+    }
+
+    private BuildReactorTestCatalogs createMojo(MavenProject obr, MavenSession session) throws Exception {
+        BuildReactorTestCatalogs mojo = new BuildReactorTestCatalogs();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", obr);
+        ReflectionUtils.setVariableValueInObject(mojo, "session", session);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "aggregate", true);
+        return mojo;
+    }
+
+    private JsonObject readCatalog(MavenProject project) throws Exception {
+        String catalog = FileUtils.readFileToString(new File(project.getBuild().getDirectory(), "testcatalog.json"), "utf-8");
+        return new Gson().fromJson(catalog, JsonObject.class);
+    }
+
+    @Test
+    public void TestEachBundleGetsItsOwnCatalogWithSharedBuilders() throws Exception {
+        Path framework = createFramework();
+        MavenProject a = createBundle(framework, "a",
+                "dev/galasa/a/ATest.java", "package dev.galasa.a;\n@dev.galasa.Test\npublic class ATest {}\n");
+        MavenProject b = createBundle(framework, "b",
+                "dev/galasa/b/BTest.java", "package dev.galasa.b;\n@dev.galasa.Test\npublic class BTest {}\n",
+                "dev/galasa/b/BEnv.java", "package dev.galasa.b;\n@dev.galasa.SharedEnvironment\npublic class BEnv {}\n");
+        MavenProject parent = new MavenProject();
+        parent.setPackaging("pom");
+        parent.getBuild().setOutputDirectory(temp.getRoot().toPath().resolve("target").resolve("classes").toString());
+        MavenProject obr = createObr("obr");
+
+        BuildReactorTestCatalogs mojo = createMojo(obr, createSession(obr, Arrays.asList(a, b), parent));
+        ReflectionUtils.setVariableValueInObject(mojo, "threads", 2);
+        mojo.execute();
+
+        JsonObject catalogA = readCatalog(a);
+        JsonObject catalogB = readCatalog(b);
+        assertThat(catalogA.getAsJsonObject("classes").keySet()).containsExactly("dev.galasa.a/dev.galasa.a.ATest");
+        assertThat(catalogB.getAsJsonObject("classes").keySet()).containsExactly("dev.galasa.b/dev.galasa.b.BTest");
+        assertThat(catalogA.getAsJsonObject("sharedEnvironments").keySet()).isEmpty();
+        assertThat(catalogB.getAsJsonObject("sharedEnvironments").keySet()).containsExactly("dev.galasa.b/dev.galasa.b.BEnv");
+
+        int builderA = catalogA.getAsJsonObject("classes").getAsJsonObject("dev.galasa.a/dev.galasa.a.ATest").get("builder").getAsInt();
+        int builderB = catalogB.getAsJsonObject("classes").getAsJsonObject("dev.galasa.b/dev.galasa.b.BTest").get("builder").getAsInt();
+        assertThat(builderA).isEqualTo(builderB);
+
+        assertThat(a.getAttachedArtifacts()).hasSize(1);
+        assertThat(a.getAttachedArtifacts().get(0).getClassifier()).isEqualTo("testcatalog");
+        assertThat(b.getAttachedArtifacts()).hasSize(1);
+        assertThat(parent.getAttachedArtifacts()).isEmpty();
+        assertThat(obr.getAttachedArtifacts()).isEmpty();
+    }
+
+    @Test
+    public void TestBundlesWithACatalogAreNotBuiltAgain() throws Exception {
+        Path framework = createFramework();
+        MavenProject a = createBundle(framework, "a",
+                "dev/galasa/a/ATest.java", "package dev.galasa.a;\n@dev.galasa.Test\npublic class ATest {}\n");
+        MavenProject first = createObr("first");
+        MavenProject second = createObr("second");
+
+        // *** Two OBRs in one reactor with the same bundle, the second finds the catalog the first built
+        createMojo(first, createSession(first, Arrays.asList(a))).execute();
+        File catalog = new File(a.getBuild().getDirectory(), "testcatalog.json");
+        assertThat(catalog).exists();
+        FileUtils.forceDelete(catalog);
+
+        BuildReactorTestCatalogs mojo = createMojo(second, createSession(second, Arrays.asList(a)));
+        MockMavenLog log = new MockMavenLog();
+        mojo.setLog(log);
+        mojo.execute();
+
+        assertThat(catalog).doesNotExist();
+        assertThat(a.getAttachedArtifacts()).hasSize(1);
+        log.assertContainsRecord("INFO:Skipping Reactor Test Catalog build, no bundle projects in the reactor without a test catalog");
+    }
+
+    @Test
+    public void TestNothingIsBuiltUnlessAggregateIsSet() throws Exception {
+        Path framework = createFramework();
+        MavenProject a = createBundle(framework, "a",
+                "dev/galasa/a/ATest.java", "package dev.galasa.a;\n@dev.galasa.Test\npublic class ATest {}\n");
+        MavenProject obr = createObr("obr");
+
+        BuildReactorTestCatalogs mojo = createMojo(obr, createSession(obr, Arrays.asList(a)));
+        ReflectionUtils.setVariableValueInObject(mojo, "aggregate", false);
+        mojo.execute();
+
+        assertThat(a.getAttachedArtifacts()).isEmpty();
+        assertThat(new File(a.getBuild().getDirectory(), "testcatalog.json")).doesNotExist();
+    }
+
+    @Test
+    public void TestSharedBuilderIsCalledByOneThreadAtATime() throws Exception {
+        Path framework = createFramework();
+        List<MavenProject> bundles = new ArrayList<>();
+        for (String name : new String[] { "a", "b", "c", "d" }) {
+            bundles.add(createBundle(framework, name,
+                    "dev/galasa/" + name + "/Test1.java", "package dev.galasa." + name + ";\n@dev.galasa.Test\npublic class Test1 {}\n",
+                    "dev/galasa/" + name + "/Test2.java", "package dev.galasa." + name + ";\n@dev.galasa.Test\npublic class Test2 {}\n"));
+        }
+
+        MavenProject obr = createObr("obr");
+        BuildReactorTestCatalogs mojo = createMojo(obr, createSession(obr, bundles));
+        ReflectionUtils.setVariableValueInObject(mojo, "threads", 4);
+        mojo.execute();
+
+        for (MavenProject bundle : bundles) {
+            JsonObject classes = readCatalog(bundle).getAsJsonObject("classes");
+            assertThat(classes.keySet()).hasSize(2);
+            for (String name : classes.keySet()) {
+                assertThat(classes.getAsJsonObject(name).get("callers").getAsInt()).as(name).isEqualTo(1);
+            }
+        }
+    }
+
+    @Test
+    public void TestUnresolvedBundleIsReported() throws Exception {
+        Path framework = createFramework();
+        MavenProject a = createBundle(framework, "a",
+                "dev/galasa/a/ATest.java", "package dev.galasa.a;\n@dev.galasa.Test\npublic class ATest {}\n");
+        a.setArtifacts(Collections.<Artifact>emptySet());
+
+        MavenProject obr = createObr("obr");
+        BuildReactorTestCatalogs mojo = createMojo(obr, createSession(obr, Arrays.asList(a)));
+
+        assertThatThrownBy(mojo::execute).hasMessageContaining("have not been resolved");
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.apache.felix.bundlerepository.DataModelHelper;
+import org.apache.felix.bundlerepository.Repository;
+import org.apache.felix.bundlerepository.impl.DataModelHelperImpl;
+import org.apache.felix.bundlerepository.impl.RepositoryImpl;
+import org.apache.felix.bundlerepository.impl.ResourceImpl;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BundleContentTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File createBundle(String symbolicName) throws Exception {
+        BundleJarWriter writer = new BundleJarWriter(symbolicName);
+        for (int i = 0; i < 20; i++) {
+            writer.addEntry("dev/galasa/example/Class" + i + ".class", 4096);
+        }
+        return writer.write(temp.newFile(symbolicName + ".jar"));
+    }
+
+    @Test
+    public void TestDigestMatchesFileWhenReadThroughFelix() throws Exception {
+        File jar = createBundle("dev.galasa.example");
+
+        BundleContent content = new BundleContent(jar);
+        ResourceImpl resource = (ResourceImpl) new DataModelHelperImpl().createResource(content.getUrl());
+
+        assertThat(resource.getSymbolicName()).isEqualTo("dev.galasa.example");
+        assertThat(content.getSha256()).isEqualTo(DigestUtils.sha256Hex(FileUtils.readFileToByteArray(jar)));
+        assertThat(content.getSize()).isEqualTo(jar.length());
+    }
+
+    @Test
+    public void TestDigestIsCalculatedIfUrlNeverRead() throws Exception {
+        File jar = createBundle("dev.galasa.unread");
+
+        BundleContent content = new BundleContent(jar);
+
+        assertThat(content.getSha256()).isEqualTo(DigestUtils.sha256Hex(FileUtils.readFileToByteArray(jar)));
+        assertThat(content.getSize()).isEqualTo(jar.length());
+    }
+
+    @Test
+    public void TestDigestSurvivesWritingAndReadingTheRepository() throws Exception {
+        File jar = createBundle("dev.galasa.roundtrip");
+        DataModelHelper helper = new DataModelHelperImpl();
+
+        BundleContent content = new BundleContent(jar);
+        ResourceImpl resource = (ResourceImpl) helper.createResource(content.getUrl());
+        content.addTo(resource);
+
+        RepositoryImpl repository = new RepositoryImpl();
+        repository.addResource(resource);
+        StringWriter writer = new StringWriter();
+        helper.writeRepository(repository, writer);
+
+        Repository readBack = helper.readRepository(new StringReader(writer.toString()));
+
+        assertThat(readBack.getResources()).hasSize(1);
+        assertThat(BundleContent.getSha256(readBack.getResources()[0])).isEqualTo(content.getSha256());
+        assertThat(readBack.getResources()[0].getSize()).isEqualTo(jar.length());
+    }
+}
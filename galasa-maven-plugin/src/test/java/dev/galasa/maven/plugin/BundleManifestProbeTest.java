@@ -0,0 +1,61 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BundleManifestProbeTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private File createJar(String name, String symbolicName) throws Exception {
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        if (symbolicName != null) {
+            manifest.getMainAttributes().putValue("Bundle-SymbolicName", symbolicName);
+        }
+
+        File jar = temp.newFile(name);
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+        }
+        return jar;
+    }
+
+    @Test
+    public void TestSymbolicNameIsReadWithoutDirectives() throws Exception {
+        File jar = createJar("bundle.jar", "dev.galasa.example; singleton:=true");
+
+        assertThat(BundleManifestProbe.getSymbolicName(jar)).isEqualTo("dev.galasa.example");
+    }
+
+    @Test
+    public void TestPlainJarHasNoSymbolicName() throws Exception {
+        File jar = createJar("plain.jar", null);
+
+        assertThat(BundleManifestProbe.getSymbolicName(jar)).isNull();
+    }
+
+    @Test
+    public void TestNonZipFileHasNoSymbolicName() throws Exception {
+        File pom = temp.newFile("example.pom");
+        FileUtils.writeStringToFile(pom, "<project/>", "utf-8");
+
+        assertThat(BundleManifestProbe.getSymbolicName(pom)).isNull();
+        assertThat(BundleManifestProbe.getSymbolicName(null)).isNull();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClassContentDigestTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static final String[] CLASS_FILES = {
+            "dev/galasa/example/Sample.class",
+            "dev/galasa/example/Sample$Inner.class",
+            "dev/galasa/example/Sample$Inner$Deeper.class",
+            "dev/galasa/example/Sample$1.class",
+            "dev/galasa/example/SampleOther.class" };
+
+    private Path createClasses() throws Exception {
+        Path classes = temp.newFolder("classes").toPath();
+        for (String classFile : CLASS_FILES) {
+            Path file = classes.resolve(classFile);
+            Files.createDirectories(file.getParent());
+            Files.write(file, classFile.getBytes("utf-8"));
+        }
+        return classes;
+    }
+
+    private String digest(URL url, String className) throws Exception {
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { url }, null)) {
+            return ClassContentDigest.digest(loader, className);
+        }
+    }
+
+    @Test
+    public void TestNestedClassChangesTheDigest() throws Exception {
+        Path classes = createClasses();
+        String before = digest(classes.toUri().toURL(), "dev.galasa.example.Sample");
+
+        Files.write(classes.resolve("dev/galasa/example/Sample$Inner$Deeper.class"), new byte[] { 1, 2, 3 });
+
+        assertThat(digest(classes.toUri().toURL(), "dev.galasa.example.Sample")).isNotEqualTo(before);
+    }
+
+    @Test
+    public void TestUnrelatedClassDoesNotChangeTheDigest() throws Exception {
+        Path classes = createClasses();
+        String before = digest(classes.toUri().toURL(), "dev.galasa.example.Sample");
+
+        Files.write(classes.resolve("dev/galasa/example/SampleOther.class"), new byte[] { 1, 2, 3 });
+
+        assertThat(digest(classes.toUri().toURL(), "dev.galasa.example.Sample")).isEqualTo(before);
+    }
+
+    @Test
+    public void TestDigestIsTheSameFromAJar() throws Exception {
+        Path classes = createClasses();
+        File jar = temp.newFile("classes.jar");
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar))) {
+            // *** Deliberately not in name order
+            for (int i = CLASS_FILES.length - 1; i >= 0; i--) {
+                jos.putNextEntry(new ZipEntry(CLASS_FILES[i]));
+                jos.write(CLASS_FILES[i].getBytes("utf-8"));
+                jos.closeEntry();
+            }
+        }
+
+        assertThat(digest(jar.toURI().toURL(), "dev.galasa.example.Sample"))
+                .isEqualTo(digest(classes.toUri().toURL(), "dev.galasa.example.Sample"));
+    }
+
+    @Test
+    public void TestMissingClassHasNoDigest() throws Exception {
+        Path classes = createClasses();
+
+        assertThat(digest(classes.toUri().toURL(), "dev.galasa.example.Missing")).isNull();
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ClassDependencyAnalyserTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private void createSource(Path sources, List<String> files, String relative, String content) throws Exception {
+        Path file = sources.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes("utf-8"));
+        files.add(file.toString());
+    }
+
+    // *** Compile a small bundle, then remove the manager classes as if they were in another bundle
+    private Path compileBundle() throws Exception {
+        Path sources = temp.newFolder("src").toPath();
+        Path classes = temp.newFolder("classes").toPath();
+        List<String> files = new ArrayList<>();
+
+        createSource(sources, files, "dev/galasa/manager/Manager.java",
+                "package dev.galasa.manager;\n"
+                + "@java.lang.annotation.Retention(java.lang.annotation.RetentionPolicy.RUNTIME)\n"
+                + "public @interface Manager {}\n");
+        createSource(sources, files, "dev/galasa/manager/IManager.java",
+                "package dev.galasa.manager;\npublic interface IManager {}\n");
+        createSource(sources, files, "dev/galasa/example/MyTest.java",
+                "package dev.galasa.example;\n"
+                + "public class MyTest {\n"
+                + "    @dev.galasa.manager.Manager public dev.galasa.manager.IManager manager;\n"
+                + "    private Helper helper;\n"
+                + "    public void run() {\n"
+                + "        Runnable r = new Runnable() { public void run() { new Deep(); } };\n"
+                + "        r.run();\n"
+                + "        String text = \"dev/galasa/example/Unrelated\";\n"
+                + "    }\n"
+                + "}\n");
+        createSource(sources, files, "dev/galasa/example/Helper.java",
+                "package dev.galasa.example;\npublic class Helper { public java.util.List<Util> utils; }\n");
+        createSource(sources, files, "dev/galasa/example/Util.java",
+                "package dev.galasa.example;\npublic class Util {}\n");
+        createSource(sources, files, "dev/galasa/example/Deep.java",
+                "package dev.galasa.example;\npublic class Deep {}\n");
+        createSource(sources, files, "dev/galasa/example/Unrelated.java",
+                "package dev.galasa.example;\npublic class Unrelated {}\n");
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        List<String> arguments = new ArrayList<>();
+        arguments.add("-d");
+        arguments.add(classes.toString());
+        arguments.addAll(files);
+        assertThat(compiler.run(null, null, null, arguments.toArray(new String[0]))).isEqualTo(0);
+
+        FileUtils.deleteDirectory(classes.resolve("dev/galasa/manager").toFile());
+        return classes;
+    }
+
+    @Test
+    public void TestTransitiveBundleClassesAndExternalPackagesAreFound() throws Exception {
+        Path classes = compileBundle();
+
+        ClassDependencyAnalyser.Dependencies dependencies = new ClassDependencyAnalyser(classes).analyse("dev.galasa.example.MyTest");
+
+        assertThat(dependencies.getClasses()).containsExactly("dev.galasa.example.Deep", "dev.galasa.example.Helper",
+                "dev.galasa.example.Util");
+        assertThat(dependencies.getPackages()).containsExactly("dev.galasa.manager");
+    }
+
+    @Test
+    public void TestClassOutsideTheBundleIsNotAnalysed() throws Exception {
+        Path classes = compileBundle();
+
+        assertThat(new ClassDependencyAnalyser(classes).analyse("dev.galasa.manager.IManager")).isNull();
+    }
+
+    @Test
+    public void TestDescriptorsAndSignaturesAreParsed() {
+        Set<String> references = new HashSet<>();
+
+        ClassDependencyAnalyser.addDescriptorReferences("(Ldev/galasa/a/A;[Ldev/galasa/b/B;I)Ldev/galasa/c/C$Inner;", references);
+        ClassDependencyAnalyser.addDescriptorReferences("<T:Ljava/lang/Object;>Ljava/util/List<Ldev/galasa/d/D;>;", references);
+        ClassDependencyAnalyser.addDescriptorReferences("Lnot a descriptor;", references);
+
+        assertThat(references).containsExactlyInAnyOrder("dev/galasa/a/A", "dev/galasa/b/B", "dev/galasa/c/C", "dev/galasa/d/D");
+    }
+
+    @Test
+    public void TestClassNamesStartingWithADollarAreKept() {
+        Set<String> references = new HashSet<>();
+
+        ClassDependencyAnalyser.addDescriptorReferences("(Lfoo/$Proxy;Lfoo/bar/$Proxy$Handler;Lfoo/Outer$Inner;)V", references);
+
+        assertThat(references).containsExactlyInAnyOrder("foo/$Proxy", "foo/bar/$Proxy", "foo/Outer");
+    }
+
+    @Test
+    public void TestClassTypesAfterPrimitivesAreFound() {
+        Set<String> references = new HashSet<>();
+
+        ClassDependencyAnalyser.addDescriptorReferences("(ILfoo/Bar;JLfoo/Baz;)V", references);
+        ClassDependencyAnalyser.addDescriptorReferences("(JZLdev/x/Baz;)Ldev/x/Q;", references);
+        ClassDependencyAnalyser.addDescriptorReferences("([[IDLfoo/Array;)[Lfoo/Result;", references);
+
+        assertThat(references).containsExactlyInAnyOrder("foo/Bar", "foo/Baz", "dev/x/Baz", "dev/x/Q", "foo/Array", "foo/Result");
+    }
+
+    @Test
+    public void TestGenericSignaturesAreWalked() {
+        Set<String> references = new HashSet<>();
+
+        // *** A class signature with bounds, then a method signature with wildcards, a nested parameterised type and throws
+        ClassDependencyAnalyser.addDescriptorReferences("<K:Lfoo/Key;V::Lfoo/Value;>Lfoo/Base<TK;>;Lfoo/Iface<TV;>;", references);
+        ClassDependencyAnalyser.addDescriptorReferences(
+                "<T:Ljava/lang/Object;>(ITT;Ljava/util/Map<+Lfoo/Upper;-Lfoo/Lower;>;Lfoo/Outer<*>.Inner<Lfoo/Arg;>;)TT;^Lfoo/Failure;^TT;",
+                references);
+
+        assertThat(references).containsExactlyInAnyOrder("foo/Key", "foo/Value", "foo/Base", "foo/Iface", "foo/Upper",
+                "foo/Lower", "foo/Outer", "foo/Arg", "foo/Failure");
+    }
+
+    @Test
+    public void TestStringsThatAreNotDescriptorsAreIgnored() {
+        Set<String> references = new HashSet<>();
+
+        ClassDependencyAnalyser.addDescriptorReferences("(Lfoo/Bar;", references);
+        ClassDependencyAnalyser.addDescriptorReferences("(Lfoo/Bar;)Lfoo/Baz", references);
+        ClassDependencyAnalyser.addDescriptorReferences("(Q)V", references);
+        ClassDependencyAnalyser.addDescriptorReferences("Lfoo/Bar;trailing", references);
+        ClassDependencyAnalyser.addDescriptorReferences("", references);
+
+        assertThat(references).isEmpty();
+    }
+}
@@ -5,12 +5,67 @@
  */
 package dev.galasa.maven.plugin;
 
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
 import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.MavenExecutionException;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
 
 public class DeployTestCatalogTest { 
 
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private MavenProject createProjectWithCatalog() throws Exception {
+        return createProjectWithCatalog("dev.galasa.example.obr");
+    }
+
+    private MavenProject createProjectWithCatalog(String artifactId) throws Exception {
+        MavenProject project = new MavenProject();
+        project.setGroupId("dev.galasa.example");
+        project.setArtifactId(artifactId);
+        project.setVersion("0.0.1");
+        project.setPackaging("galasa-obr");
+
+        // *** Repetitive, like a real merged catalog
+        StringBuilder catalog = new StringBuilder("{\n  \"classes\": {\n");
+        for (int i = 0; i < 2000; i++) {
+            catalog.append("    \"dev.galasa.example/dev.galasa.example.Test").append(i).append("\": {\n")
+                    .append("      \"name\": \"dev.galasa.example.Test").append(i).append("\",\n")
+                    .append("      \"bundle\": \"dev.galasa.example\"\n    },\n");
+        }
+        catalog.append("  }\n}\n");
+        File file = new File(temp.newFolder(artifactId), "testcatalog.json");
+        FileUtils.writeStringToFile(file, catalog.toString(), "utf-8");
+
+        new MockMavenProjectHelper().attachArtifact(project, "json", "testcatalog", file);
+        return project;
+    }
+
+    private DeployTestCatalog createCommand(MavenProject project, URL bootstrapUrl) {
+        DeployTestCatalog command = new DeployTestCatalog();
+        command.setLog(new MockMavenLog());
+        command.project = project;
+        command.testStream = "myTestStream";
+        command.bootstrapUrl = bootstrapUrl;
+        return command;
+    }
+
     @Test
     public void TestCanCreateDeployTestCatalog() {
         new DeployTestCatalog();
@@ -224,6 +279,421 @@ public class DeployTestCatalogTest {
 
     
  
+    @Test
+    public void TestCatalogIsSentAsIs() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+        byte[] catalog = Files.readAllBytes(project.getAttachedArtifacts().get(0).getFile().toPath());
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            createCommand(project, server.getBootstrapUrl()).execute();
+
+            List<MockGalasaServer.Request> puts = server.getRequests("PUT", "/testcatalog/myTestStream");
+            assertThat(puts).hasSize(1);
+            assertThat(puts.get(0).getHeader("Content-Encoding")).isNull();
+            assertThat(puts.get(0).getHeader("Content-Type")).isEqualTo("application/json");
+            assertThat(puts.get(0).getHeader("Authorization")).isNull();
+            assertThat(puts.get(0).getBody()).isEqualTo(catalog);
+        }
+    }
+
+    @Test
+    public void TestCatalogIsSentCompressedWithAToken() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+        byte[] catalog = Files.readAllBytes(project.getAttachedArtifacts().get(0).getFile().toPath());
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.compress = true;
+            command.galasaAccessToken = "my:token";
+            command.execute();
+
+            assertThat(server.getRequests("POST", "/auth")).hasSize(1);
+            List<MockGalasaServer.Request> puts = server.getRequests("PUT", "/testcatalog/myTestStream");
+            assertThat(puts).hasSize(1);
+            assertThat(puts.get(0).getHeader("Content-Encoding")).isEqualTo("gzip");
+            assertThat(puts.get(0).getHeader("Authorization")).isEqualTo("Bearer mock-jwt");
+            assertThat(puts.get(0).getDecodedBody()).isEqualTo(catalog);
+            assertThat(puts.get(0).getBody().length).isLessThan(catalog.length / 10);
+        }
+    }
+
+    @Test
+    public void TestUnchangedCatalogIsNotSentAgain() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+        File catalog = project.getAttachedArtifacts().get(0).getFile();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            for (int i = 0; i < 2; i++) {
+                DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+                command.skipUnchanged = true;
+                command.execute();
+            }
+
+            // *** The first finds no catalog on the server, the second finds the same one
+            assertThat(server.getRequests("GET", "/testcatalog/myTestStream")).hasSize(2);
+            List<MockGalasaServer.Request> puts = server.getRequests("PUT", "/testcatalog/myTestStream");
+            assertThat(puts).hasSize(1);
+            assertThat(puts.get(0).getHeader("Digest")).isNull();
+
+            // *** A changed catalog is sent, even when it is compressed
+            FileUtils.writeStringToFile(catalog, "{}", "utf-8");
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.skipUnchanged = true;
+            command.compress = true;
+            command.execute();
+            command.execute();
+
+            assertThat(server.getRequests("PUT", "/testcatalog/myTestStream")).hasSize(2);
+        }
+    }
+
+    @Test
+    public void TestCatalogIsComparedWithWhatTheServerHolds() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+        Artifact artifact = project.getAttachedArtifacts().get(0);
+        File catalog = artifact.getFile();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.skipUnchanged = true;
+            command.execute();
+
+            // *** Another build deploys its own catalog to the same stream in between
+            File other = temp.newFile("other.json");
+            FileUtils.writeStringToFile(other, "{}", "utf-8");
+            artifact.setFile(other);
+            createCommand(project, server.getBootstrapUrl()).execute();
+
+            artifact.setFile(catalog);
+            command = createCommand(project, server.getBootstrapUrl());
+            command.skipUnchanged = true;
+            command.execute();
+
+            assertThat(server.getRequests("PUT", "/testcatalog/myTestStream")).hasSize(3);
+        }
+    }
+
+    @Test
+    public void TestCatalogIsAlwaysSentByDefault() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            createCommand(project, server.getBootstrapUrl()).execute();
+            createCommand(project, server.getBootstrapUrl()).execute();
+
+            assertThat(server.getRequests("GET", "/testcatalog/myTestStream")).isEmpty();
+            assertThat(server.getRequests("PUT", "/testcatalog/myTestStream")).hasSize(2);
+        }
+    }
+
+    @Test
+    public void TestCatalogIsDeployedToEveryTarget() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+        byte[] catalog = Files.readAllBytes(project.getAttachedArtifacts().get(0).getFile().toPath());
+
+        try (MockGalasaServer server1 = new MockGalasaServer(); MockGalasaServer server2 = new MockGalasaServer()) {
+            DeployTestCatalog command = createCommand(project, server1.getBootstrapUrl());
+            command.compress = true;
+            command.targets = Arrays.asList(new DeployTarget("otherStream", server1.getBootstrapUrl(), null),
+                    new DeployTarget("myTestStream", server2.getBootstrapUrl(), "my:token"));
+            command.targetList = "thirdStream@" + server2.getBootstrapUrl() + ", myTestStream@" + server1.getBootstrapUrl();
+            command.execute();
+
+            assertThat(server1.getRequests("PUT", "/testcatalog/")).extracting(MockGalasaServer.Request::getPath)
+                .containsExactlyInAnyOrder("/testcatalog/myTestStream", "/testcatalog/otherStream");
+            assertThat(server2.getRequests("PUT", "/testcatalog/")).extracting(MockGalasaServer.Request::getPath)
+                .containsExactlyInAnyOrder("/testcatalog/myTestStream", "/testcatalog/thirdStream");
+            assertThat(server2.getRequests("POST", "/auth")).hasSize(1);
+
+            for (MockGalasaServer.Request put : server1.getRequests("PUT", "/testcatalog/")) {
+                assertThat(put.getHeader("Content-Encoding")).isEqualTo("gzip");
+                assertThat(put.getHeader("Content-Length")).isEqualTo(Integer.toString(put.getBody().length));
+                assertThat(put.getDecodedBody()).isEqualTo(catalog);
+            }
+
+            ((MockMavenLog) command.getLog())
+                .assertContainsRecordStartingWith("INFO:     thirdStream at " + server2.getBootstrapUrl() + " deployed in ");
+        }
+    }
+
+    @Test
+    public void TestFailedTargetIsReportedAfterTheOthersAreDeployed() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+
+        MockGalasaServer stopped = new MockGalasaServer();
+        URL stoppedUrl = stopped.getBootstrapUrl();
+        stopped.close();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.targetList = "otherStream@" + stoppedUrl + ",thirdStream@" + server.getBootstrapUrl();
+            command.threads = 1;
+
+            Throwable thrown = catchThrowable(command::execute);
+
+            assertThat(thrown).isInstanceOf(MojoExecutionException.class)
+                .hasMessage("Failed to deploy the test catalog to 1 of 3 test streams: otherStream at " + stoppedUrl);
+            assertThat(server.getRequests("PUT", "/testcatalog/")).extracting(MockGalasaServer.Request::getPath)
+                .containsExactlyInAnyOrder("/testcatalog/myTestStream", "/testcatalog/thirdStream");
+            ((MockMavenLog) command.getLog())
+                .assertContainsRecordStartingWith("ERROR:     otherStream at " + stoppedUrl + " failed after ");
+        }
+    }
+
+    @Test
+    public void TestInvalidTargetIsRejected() throws Exception {
+        assertThatThrownBy(() -> DeployTarget.parse("myTestStream"))
+            .isInstanceOf(MojoExecutionException.class)
+            .hasMessage("Invalid test catalog deploy target 'myTestStream', expected stream@bootstrap");
+        assertThatThrownBy(() -> DeployTarget.parse("myTestStream@notaurl"))
+            .isInstanceOf(MojoExecutionException.class)
+            .hasMessage("Invalid bootstrap URL in test catalog deploy target 'myTestStream@notaurl'");
+    }
+
+    private MavenSession createSession() {
+        @SuppressWarnings("deprecation")
+        MavenSession session = new MavenSession(null, new DefaultRepositorySystemSession(),
+                new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult());
+        return session;
+    }
+
+    private DeployTestCatalogParticipant createParticipant(MavenSession session, MockMavenLog log) throws Exception {
+        DeployTestCatalogParticipant participant = new DeployTestCatalogParticipant();
+        participant.enableLogging(new MockPlexusLogger(log));
+        participant.afterProjectsRead(session);
+        return participant;
+    }
+
+    @Test
+    public void TestAsyncDeployCompletesWhenTheSessionEnds() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+        MavenSession session = createSession();
+        DeployTestCatalogParticipant participant = createParticipant(session, new MockMavenLog());
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            server.setPutDelay(2000);
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.session = session;
+            command.async = true;
+
+            long start = System.nanoTime();
+            command.execute();
+            long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+            assertThat(elapsed).isLessThan(2000);
+            assertThat(server.getRequests("PUT", "/testcatalog/")).isEmpty();
+
+            participant.afterSessionEnd(session);
+
+            assertThat(server.getRequests("PUT", "/testcatalog/myTestStream")).hasSize(1);
+            ((MockMavenLog) command.getLog()).assertContainsRecord("INFO:Test Catalog successfully deployed to "
+                    + new URL(server.getBootstrapUrl(), "/testcatalog/myTestStream"));
+        }
+    }
+
+    @Test
+    public void TestAsyncDeployFailureFailsTheSessionEnd() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+        MavenSession session = createSession();
+        MockMavenLog log = new MockMavenLog();
+        DeployTestCatalogParticipant participant = createParticipant(session, log);
+
+        MockGalasaServer stopped = new MockGalasaServer();
+        URL stoppedUrl = stopped.getBootstrapUrl();
+        stopped.close();
+
+        DeployTestCatalog command = createCommand(project, stoppedUrl);
+        command.session = session;
+        command.async = true;
+        command.execute();
+
+        assertThatThrownBy(() -> participant.afterSessionEnd(session))
+            .isInstanceOf(MavenExecutionException.class)
+            .hasMessage("Failed to deploy the test catalog of dev.galasa.example:dev.galasa.example.obr");
+        log.assertContainsRecordStartingWith("ERROR:Background test catalog deploy of dev.galasa.example:dev.galasa.example.obr failed - ");
+
+        // *** Only joined once
+        participant.afterSessionEnd(session);
+    }
+
+    @Test
+    public void TestAsyncDeploysOfModulesWithTheSameArtifactIdAreBothJoined() throws Exception {
+        MavenSession session = createSession();
+        DeployTestCatalogParticipant participant = createParticipant(session, new MockMavenLog());
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            server.setPutDelay(500);
+            MavenProject project = createProjectWithCatalog();
+            for (String groupId : Arrays.asList("dev.galasa.one", "dev.galasa.two")) {
+                project.setGroupId(groupId);
+                DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+                command.session = session;
+                command.async = true;
+                command.execute();
+            }
+
+            participant.afterSessionEnd(session);
+
+            assertThat(server.getRequests("PUT", "/testcatalog/myTestStream")).hasSize(2);
+        }
+    }
+
+    @Test
+    public void TestAsyncDeployWithoutTheExtensionDeploysNow() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.session = createSession();
+            command.async = true;
+            command.execute();
+
+            assertThat(server.getRequests("PUT", "/testcatalog/myTestStream")).hasSize(1);
+            ((MockMavenLog) command.getLog()).assertContainsRecord("WARN:Deploying the test catalog now, galasa.testcatalog.deploy.async needs the galasa-maven-plugin to be declared with <extensions>true</extensions>");
+        }
+    }
+
+    @Test
+    public void TestBatchedCatalogsAreDeployedTogetherWhenTheSessionEnds() throws Exception {
+        MavenSession session = createSession();
+        DeployTestCatalogParticipant participant = createParticipant(session, new MockMavenLog());
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            for (String module : Arrays.asList("one", "two")) {
+                DeployTestCatalog command = createCommand(createProjectWithCatalog("dev.galasa.example." + module + ".obr"),
+                        server.getBootstrapUrl());
+                command.testStream = module;
+                command.session = session;
+                command.batch = true;
+                command.galasaAccessToken = "my:token";
+                command.execute();
+            }
+            assertThat(server.getRequests()).isEmpty();
+
+            participant.afterSessionEnd(session);
+
+            assertThat(server.getRequests("GET", "/bootstrap")).hasSize(1);
+            assertThat(server.getRequests("POST", "/auth")).hasSize(1);
+            List<MockGalasaServer.Request> catalogRequests = server.getRequests(null, "/testcatalog/");
+            assertThat(catalogRequests).extracting(request -> request.getMethod() + " " + request.getPath())
+                .containsExactly("PUT /testcatalog/one", "PUT /testcatalog/two");
+            assertThat(catalogRequests).extracting(MockGalasaServer.Request::getClientPort)
+                .containsOnly(catalogRequests.get(0).getClientPort());
+            for (MockGalasaServer.Request put : server.getRequests("PUT", "/testcatalog/")) {
+                assertThat(put.getHeader("Authorization")).isEqualTo("Bearer mock-jwt");
+            }
+        }
+    }
+
+    private String catalogUrl(MockGalasaServer server) throws Exception {
+        return new URL(server.getBootstrapUrl(), "/testcatalog/myTestStream").toString();
+    }
+
+    @Test
+    public void TestUploadIsRetriedAfterServerErrors() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            server.failNextPuts(2, 503);
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.retryBackoff = 10;
+            command.execute();
+
+            assertThat(server.getRequests("PUT", "/testcatalog/myTestStream")).hasSize(3);
+            MockMavenLog log = (MockMavenLog) command.getLog();
+            log.assertContainsRecordStartingWith("INFO:Test catalog deploy attempt 1 of 4 to " + catalogUrl(server) + " - 503 Service Unavailable in ");
+            log.assertContainsRecordStartingWith("WARN:Retrying the test catalog deploy to " + catalogUrl(server) + " in ");
+            log.assertContainsRecordStartingWith("INFO:Test catalog deploy attempt 3 of 4 to " + catalogUrl(server) + " - 200 OK in ");
+            log.assertContainsRecord("INFO:Test Catalog successfully deployed to " + catalogUrl(server));
+        }
+    }
+
+    @Test
+    public void TestBootstrapIsRetriedAfterServerErrors() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            server.failNextBootstraps(2, 503);
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.retryBackoff = 10;
+            command.execute();
+
+            assertThat(server.getRequests("GET", "/bootstrap")).hasSize(3);
+            assertThat(server.getRequests("PUT", "/testcatalog/myTestStream")).hasSize(1);
+            MockMavenLog log = (MockMavenLog) command.getLog();
+            log.assertContainsRecord("WARN:Bootstrap load attempt 1 of 4 from " + server.getBootstrapUrl() + " - 503 Service Unavailable");
+            log.assertContainsRecordStartingWith("WARN:Retrying the bootstrap load from " + server.getBootstrapUrl() + " in ");
+        }
+    }
+
+    @Test
+    public void TestBootstrapLoadTimesOut() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            server.setBootstrapDelay(5000);
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.readTimeout = 200;
+            command.retries = 0;
+
+            long start = System.nanoTime();
+            assertThatThrownBy(command::execute)
+                .isInstanceOf(MojoExecutionException.class)
+                .hasMessageStartingWith("Unable to load bootstrap properties from " + server.getBootstrapUrl());
+            assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(5000);
+            assertThat(server.getRequests("PUT", "/testcatalog/")).isEmpty();
+        }
+    }
+
+    @Test
+    public void TestUploadIsRetriedAfterALatencySpike() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            server.delayNextPuts(1, 3000);
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.readTimeout = 500;
+            command.retryBackoff = 10;
+            command.execute();
+
+            MockMavenLog log = (MockMavenLog) command.getLog();
+            log.assertContainsRecordStartingWith("INFO:Test catalog deploy attempt 1 of 4 to " + catalogUrl(server) + " - java.net.SocketTimeoutException: Read timed out in ");
+            log.assertContainsRecordStartingWith("INFO:Test catalog deploy attempt 2 of 4 to " + catalogUrl(server) + " - 200 OK in ");
+        }
+    }
+
+    @Test
+    public void TestUploadFailsAfterTheLastRetry() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            server.failNextPuts(10, 500);
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.retries = 2;
+            command.retryBackoff = 10;
+
+            assertThatThrownBy(command::execute)
+                .isInstanceOf(MojoExecutionException.class)
+                .hasMessage("Failed to deploy the test catalog. The server did not reply with OK (200)");
+            assertThat(server.getRequests("PUT", "/testcatalog/myTestStream")).hasSize(3);
+            ((MockMavenLog) command.getLog()).assertContainsRecord("ERROR:{\"error\":\"injected\"}");
+        }
+    }
+
+    @Test
+    public void TestUploadIsNotRetriedAfterAClientError() throws Exception {
+        MavenProject project = createProjectWithCatalog();
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            server.failNextPuts(1, 400);
+            DeployTestCatalog command = createCommand(project, server.getBootstrapUrl());
+            command.retryBackoff = 10;
+
+            assertThatThrownBy(command::execute).isInstanceOf(MojoExecutionException.class);
+            assertThat(server.getRequests("PUT", "/testcatalog/myTestStream")).hasSize(1);
+        }
+    }
+
     // This is my exploration unit test.
     //
     // The unit tests are not yet complete, as they don't test the last piece where the test catalog file is
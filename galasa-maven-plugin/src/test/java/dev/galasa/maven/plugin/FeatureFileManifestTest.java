@@ -0,0 +1,94 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FeatureFileManifestTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path createFile(Path base, String relative, String content) throws Exception {
+        Path file = base.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content.getBytes("utf-8"));
+        return file;
+    }
+
+    // *** Move everything out of the racy window so the manifest can be trusted
+    private void age(Path base) throws Exception {
+        FileTime old = FileTime.fromMillis(System.currentTimeMillis() - 60_000);
+        try (Stream<Path> paths = Files.walk(base)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.setLastModifiedTime(path, old);
+            }
+        }
+    }
+
+    private FeatureFileManifest scan(MockMavenLog log, Path base, File output) throws Exception {
+        return FeatureFileManifest.scan(log, base, output, null, null, 2, true);
+    }
+
+    @Test
+    public void TestUnchangedTreeReusesTheManifest() throws Exception {
+        Path base = temp.newFolder("project").toPath();
+        Path feature = createFile(base, "src/test/features/a.feature", "Feature: a\n");
+        File output = temp.newFolder("output");
+        age(base);
+
+        FeatureFileManifest first = scan(new MockMavenLog(), base, output);
+        assertThat(first.getFiles()).containsExactly(feature);
+        assertThat(first.getFeature(feature).getSha256()).isEqualTo(DigestUtils.sha256Hex("Feature: a\n"));
+
+        MockMavenLog log = new MockMavenLog();
+        FeatureFileManifest second = scan(log, base, output);
+
+        assertThat(second.getFiles()).containsExactly(feature);
+        assertThat(second.getFeature(feature).getSha256()).isEqualTo(first.getFeature(feature).getSha256());
+        log.assertContainsRecord("INFO:Reusing the feature file scan in " + new File(output, FeatureFileManifest.FILE_NAME)
+                + " for 1 feature(s)");
+    }
+
+    @Test
+    public void TestAddedFileIsFound() throws Exception {
+        Path base = temp.newFolder("project").toPath();
+        Path featureA = createFile(base, "features/a.feature", "Feature: a\n");
+        File output = temp.newFolder("output");
+        age(base);
+        scan(new MockMavenLog(), base, output);
+
+        Path featureB = createFile(base, "features/b.feature", "Feature: b\n");
+        FeatureFileManifest manifest = scan(new MockMavenLog(), base, output);
+
+        assertThat(manifest.getFiles()).containsExactly(featureA, featureB);
+    }
+
+    @Test
+    public void TestChangedFileGetsANewDigest() throws Exception {
+        Path base = temp.newFolder("project").toPath();
+        Path feature = createFile(base, "features/a.feature", "Feature: a\n");
+        File output = temp.newFolder("output");
+        age(base);
+        scan(new MockMavenLog(), base, output);
+
+        Files.write(feature, "Feature: changed\n".getBytes("utf-8"));
+        FeatureFileManifest manifest = scan(new MockMavenLog(), base, output);
+
+        assertThat(manifest.getFeature(feature).getSha256()).isEqualTo(DigestUtils.sha256Hex("Feature: changed\n"));
+    }
+}
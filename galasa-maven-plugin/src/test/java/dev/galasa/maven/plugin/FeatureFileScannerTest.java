@@ -0,0 +1,84 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FeatureFileScannerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path createFile(Path base, String relative) throws Exception {
+        Path file = base.resolve(relative);
+        Files.createDirectories(file.getParent());
+        Files.write(file, "Feature: example\n".getBytes("utf-8"));
+        return file;
+    }
+
+    private List<String> relative(Path base, List<Path> files) {
+        return files.stream().map(f -> base.relativize(f).toString().replace('\\', '/')).collect(Collectors.toList());
+    }
+
+    @Test
+    public void TestTargetAndHiddenDirectoriesAreSkippedByDefault() throws Exception {
+        Path base = temp.getRoot().toPath();
+        createFile(base, "src/main/resources/b.feature");
+        createFile(base, "src/main/resources/a.feature");
+        createFile(base, "features/nested/deep/c.feature");
+        createFile(base, "features/readme.md");
+        createFile(base, "target/classes/a.feature");
+        createFile(base, "module/target/classes/a.feature");
+        createFile(base, ".git/objects/x.feature");
+
+        List<Path> files = new FeatureFileScanner(base, null, null, 2).scan();
+
+        assertThat(relative(base, files)).containsExactly(
+                "features/nested/deep/c.feature",
+                "src/main/resources/a.feature",
+                "src/main/resources/b.feature");
+    }
+
+    @Test
+    public void TestIncludesAndExcludesAreApplied() throws Exception {
+        Path base = temp.getRoot().toPath();
+        createFile(base, "features/a.feature");
+        createFile(base, "features/wip/b.feature");
+        createFile(base, "other/c.feature");
+        createFile(base, "target/d.feature");
+
+        List<Path> files = new FeatureFileScanner(base, Arrays.asList("features/**/*.feature", "target/*.feature"),
+                Arrays.asList("**/wip/**"), 1).scan();
+
+        assertThat(relative(base, files)).containsExactly("features/a.feature", "target/d.feature");
+    }
+
+    @Test
+    public void TestParallelAndSequentialScansAgree() throws Exception {
+        Path base = temp.getRoot().toPath();
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                createFile(base, "dir" + i + "/sub" + j + "/test" + i + j + ".feature");
+            }
+        }
+
+        List<Path> sequential = new FeatureFileScanner(base, null, null, 1).scan();
+        List<Path> parallel = new FeatureFileScanner(base, null, null, 8).scan();
+
+        assertThat(sequential).hasSize(100);
+        assertThat(parallel).isEqualTo(sequential);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.StringReader;
+
+import org.junit.Test;
+
+public class GherkinFeatureReaderTest {
+
+    private static final String FEATURE =
+            "# A comment\n" +
+            "@regression @zos # trailing comment\n" +
+            "Feature: Logon to the system\n" +
+            "  Some free text describing the feature\n" +
+            "\n" +
+            "  Background:\n" +
+            "    Given a terminal\n" +
+            "\n" +
+            "  @smoke\n" +
+            "  Scenario: Logon with a valid user\n" +
+            "    Given a user\n" +
+            "    And a document\n" +
+            "      \"\"\"\n" +
+            "      Scenario: this is not a scenario\n" +
+            "      @notatag\n" +
+            "      \"\"\"\n" +
+            "    Then I am logged on\n" +
+            "\n" +
+            "  @data\n" +
+            "  Scenario Outline: Logon as <user>\n" +
+            "    Given the user <user>\n" +
+            "\n" +
+            "    Examples:\n" +
+            "      | user  |\n" +
+            "      | ALICE |\n" +
+            "      | BOB   |\n" +
+            "\n" +
+            "    @extra\n" +
+            "    Examples: more\n" +
+            "      | user  |\n" +
+            "      | CAROL |\n";
+
+    @Test
+    public void TestFeatureOutlineIsRead() throws Exception {
+        GherkinFeatureReader.Feature feature = GherkinFeatureReader.read(new StringReader(FEATURE));
+
+        assertThat(feature.getTitle()).isEqualTo("Logon to the system");
+        assertThat(feature.getTags()).containsExactly("@regression", "@zos");
+        assertThat(feature.getScenarios()).hasSize(2);
+
+        GherkinFeatureReader.Scenario scenario = feature.getScenarios().get(0);
+        assertThat(scenario.getName()).isEqualTo("Logon with a valid user");
+        assertThat(scenario.isOutline()).isFalse();
+        assertThat(scenario.getTags()).containsExactly("@smoke");
+
+        GherkinFeatureReader.Scenario outline = feature.getScenarios().get(1);
+        assertThat(outline.getName()).isEqualTo("Logon as <user>");
+        assertThat(outline.isOutline()).isTrue();
+        assertThat(outline.getTags()).containsExactly("@data");
+        assertThat(outline.getExamples()).isEqualTo(3);
+    }
+
+    @Test
+    public void TestEmptyFileHasNoScenarios() throws Exception {
+        GherkinFeatureReader.Feature feature = GherkinFeatureReader.read(new StringReader(""));
+
+        assertThat(feature.getTitle()).isNull();
+        assertThat(feature.getScenarios()).isEmpty();
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.felix.bundlerepository.impl.DataModelHelperImpl;
+import org.apache.felix.bundlerepository.impl.RepositoryImpl;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+public class LargeProjectGeneratorTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private JsonObject readCatalog(File file) throws Exception {
+        return new Gson().fromJson(FileUtils.readFileToString(file, "utf-8"), JsonObject.class);
+    }
+
+    private RepositoryImpl readObr(File file) throws Exception {
+        try (FileReader reader = new FileReader(file)) {
+            return (RepositoryImpl) new DataModelHelperImpl().readRepository(reader);
+        }
+    }
+
+    @Test
+    public void TestBundleJarsHoldTheClassesTheirCatalogsList() throws Exception {
+        LargeProjectGenerator generator = new LargeProjectGenerator(temp.newFolder("project"));
+        generator.setBundles(2);
+        generator.setTestClassesPerBundle(3);
+        generator.setOtherClassesPerBundle(2);
+        generator.setSharedEnvironmentsPerBundle(1);
+        LargeProject project = generator.generate();
+
+        JsonObject embedded;
+        List<String> classes = new ArrayList<>();
+        try (JarFile jar = new JarFile(project.getBundles().get(0))) {
+            assertThat(jar.getManifest().getMainAttributes().getValue("Bundle-SymbolicName"))
+                    .isEqualTo("dev.galasa.generated.bundle0");
+            jar.stream().map(ZipEntry::getName).filter(name -> name.endsWith(".class")).forEach(classes::add);
+            ZipEntry catalogEntry = jar.getEntry("META-INF/testcatalog.json");
+            try (InputStreamReader reader = new InputStreamReader(jar.getInputStream(catalogEntry), "utf-8")) {
+                embedded = new Gson().fromJson(reader, JsonObject.class);
+            }
+        }
+        assertThat(classes).hasSize(6).contains("dev/galasa/generated/bundle0/p0/Test0.class");
+
+        // *** The bundletestcat goal finds the same tests in the compiled bundle
+        MavenProject bundle = project.createBundleProject(0);
+        BuildBundleTestCatalog mojo = new BuildBundleTestCatalog();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", bundle);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", new File(bundle.getBuild().getDirectory()));
+        ReflectionUtils.setVariableValueInObject(mojo, "classpathElements", project.getClasspathElements(0));
+        mojo.execute();
+
+        JsonObject built = readCatalog(new File(bundle.getBuild().getDirectory(), "testcatalog.json"));
+        assertThat(built.getAsJsonObject("classes").keySet())
+                .containsExactlyInAnyOrderElementsOf(embedded.getAsJsonObject("classes").keySet())
+                .hasSize(3);
+        assertThat(built.getAsJsonObject("sharedEnvironments").keySet())
+                .containsExactlyInAnyOrderElementsOf(embedded.getAsJsonObject("sharedEnvironments").keySet());
+    }
+
+    @Test
+    public void TestSisterCatalogsAreMergedFromTheRepository() throws Exception {
+        LargeProjectGenerator generator = new LargeProjectGenerator(temp.newFolder("project"));
+        generator.setBundles(3);
+        generator.setTestClassesPerBundle(4);
+        generator.setEmbeddedTestCatalogs(false);
+        generator.setSisterTestCatalogs(true);
+        LargeProject project = generator.generate();
+
+        File output = temp.newFolder("target");
+        MergeTestCatalogs mojo = new MergeTestCatalogs();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project.createObrProject());
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "repoSystem", project.createRepositorySystem());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        mojo.execute();
+
+        JsonObject merged = readCatalog(new File(output, "testcatalog.json"));
+        assertThat(merged.getAsJsonObject("classes").keySet()).hasSize(12)
+                .contains("dev.galasa.generated.bundle2/dev.galasa.generated.bundle2.p3.Test3");
+    }
+
+    @Test
+    public void TestNestedObrsShareTheBundles() throws Exception {
+        LargeProjectGenerator generator = new LargeProjectGenerator(temp.newFolder("project"));
+        generator.setBundles(14);
+        generator.setTestClassesPerBundle(1);
+        generator.setOtherClassesPerBundle(0);
+        generator.setObrs(3, 2);
+        LargeProject project = generator.generate();
+
+        assertThat(project.getObrs()).hasSize(7);
+        RepositoryImpl top = readObr(project.getObrs().get(0));
+        assertThat(top.getReferrals()).hasSize(2);
+        assertThat(top.getReferrals()[0].getUrl()).isEqualTo(project.getObrs().get(1).toURI().toString());
+        for (File obr : project.getObrs()) {
+            assertThat(readObr(obr).getResources()).hasSize(2);
+        }
+
+        // *** Every bundle is on one of the OBRs, so all are embedded
+        File output = temp.newFolder("target");
+        BuildObrEmbeddedRepository mojo = new BuildObrEmbeddedRepository();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project.createObrProject());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "copyThreads", 2);
+        mojo.execute();
+
+        for (File bundle : project.getBundles()) {
+            assertThat(new File(output, bundle.getName())).hasSameBinaryContentAs(bundle);
+        }
+    }
+
+    @Test
+    public void TestFeatureTreeIsFoundWithoutTheBuildOutput() throws Exception {
+        LargeProjectGenerator generator = new LargeProjectGenerator(temp.newFolder("project"));
+        generator.setBundles(0);
+        generator.setFeatures(25);
+        generator.setFeatureDirectoryDepth(2);
+        LargeProject project = generator.generate();
+
+        File output = temp.newFolder("target");
+        BuildGherkinTestCatalog mojo = new BuildGherkinTestCatalog();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project.createFeatureProject());
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "scanThreads", 2);
+        mojo.execute();
+
+        JsonObject catalog = readCatalog(new File(output, "testcatalog.json"));
+        assertThat(catalog.getAsJsonObject("gherkin").keySet()).hasSize(25);
+    }
+
+    @Test
+    public void TestTheSameSeedGivesTheSameBundles() throws Exception {
+        LargeProjectGenerator first = new LargeProjectGenerator(temp.newFolder("first"));
+        first.setBundles(1);
+        first.setBundlePadding(1000);
+        LargeProjectGenerator second = new LargeProjectGenerator(temp.newFolder("second"));
+        second.setBundles(1);
+        second.setBundlePadding(1000);
+
+        assertThat(first.generate().getBundles().get(0)).hasSameBinaryContentAs(second.generate().getBundles().get(0));
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A stand-in for the parts of a Galasa server used to deploy a test catalog: the bootstrap, the
+ * token exchange and the test catalog store. Every request is recorded with the bytes received.
+ */
+public class MockGalasaServer implements AutoCloseable {
+
+    public static class Request {
+        private final String  method;
+        private final String  path;
+        private final Headers headers;
+        private final byte[]  body;
+        private final int     clientPort;
+
+        private Request(String method, String path, Headers headers, byte[] body, int clientPort) {
+            this.method = method;
+            this.path = path;
+            this.headers = headers;
+            this.body = body;
+            this.clientPort = clientPort;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return the port the request came from, the same for requests sent over the same connection
+         */
+        public int getClientPort() {
+            return clientPort;
+        }
+
+        public String getHeader(String name) {
+            return headers.getFirst(name);
+        }
+
+        /**
+         * @return the bytes as they were sent
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return the body with any gzip content encoding removed
+         */
+        public byte[] getDecodedBody() throws IOException {
+            if ("gzip".equals(getHeader("Content-Encoding"))) {
+                try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                    return IOUtils.toByteArray(is);
+                }
+            }
+            return body;
+        }
+    }
+
+    private final HttpServer          server;
+    private final List<Request>       requests = new CopyOnWriteArrayList<>();
+    private final Map<String, byte[]> catalogs = new ConcurrentHashMap<>();
+    private volatile long             putDelayMillis;
+
+    // *** Faults injected into the next catalog uploads
+    private final AtomicInteger       putsToFail = new AtomicInteger();
+    private volatile int              putFailureStatus;
+    private final AtomicInteger       bootstrapsToFail = new AtomicInteger();
+    private volatile int              bootstrapFailureStatus;
+    private volatile long             bootstrapDelayMillis;
+    private final AtomicInteger       putsToDelay = new AtomicInteger();
+    private volatile long             putSpikeMillis;
+    private final ExecutorService     executor = Executors.newCachedThreadPool();
+
+    public MockGalasaServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        // *** Requests are handled on their own threads, so a slow reply does not hold up a retry
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public URL getBootstrapUrl() throws IOException {
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/bootstrap");
+    }
+
+    /**
+     * @param putDelayMillis how long to take to store a catalog, like a slow or distant server
+     */
+    public void setPutDelay(long putDelayMillis) {
+        this.putDelayMillis = putDelayMillis;
+    }
+
+    /**
+     * @param count  how many of the next catalog uploads fail
+     * @param status the status they fail with
+     */
+    public void failNextPuts(int count, int status) {
+        this.putFailureStatus = status;
+        this.putsToFail.set(count);
+    }
+
+    /**
+     * @param count  how many of the next bootstrap loads fail
+     * @param status the status they fail with
+     */
+    public void failNextBootstraps(int count, int status) {
+        this.bootstrapFailureStatus = status;
+        this.bootstrapsToFail.set(count);
+    }
+
+    /**
+     * @param bootstrapDelayMillis how long to take to return the bootstrap, like a server that has hung
+     */
+    public void setBootstrapDelay(long bootstrapDelayMillis) {
+        this.bootstrapDelayMillis = bootstrapDelayMillis;
+    }
+
+    /**
+     * @param count  how many of the next catalog uploads are slow
+     * @param millis how long they take
+     */
+    public void delayNextPuts(int count, long millis) {
+        this.putSpikeMillis = millis;
+        this.putsToDelay.set(count);
+    }
+
+    public List<Request> getRequests() {
+        return new ArrayList<>(requests);
+    }
+
+    /**
+     * @param method the method of the requests, or null for all of them
+     */
+    public List<Request> getRequests(String method, String pathPrefix) {
+        List<Request> matching = new ArrayList<>();
+        for (Request request : requests) {
+            if ((method == null || request.method.equals(method)) && request.path.startsWith(pathPrefix)) {
+                matching.add(request);
+            }
+        }
+        return matching;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body;
+            try (InputStream is = exchange.getRequestBody()) {
+                body = IOUtils.toByteArray(is);
+            }
+            Request request = new Request(exchange.getRequestMethod(), exchange.getRequestURI().getPath(),
+                    exchange.getRequestHeaders(), body, exchange.getRemoteAddress().getPort());
+
+            if ("PUT".equals(request.method)) {
+                long delay = putDelayMillis;
+                if (putsToDelay.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                    delay = putSpikeMillis;
+                }
+                if (delay > 0) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+            requests.add(request);
+
+            if ("PUT".equals(request.method) && putsToFail.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                respond(exchange, putFailureStatus, "{\"error\":\"injected\"}");
+                return;
+            }
+
+            if (request.path.equals("/bootstrap")) {
+                if (bootstrapsToFail.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                    respond(exchange, bootstrapFailureStatus, "");
+                    return;
+                }
+                if (bootstrapDelayMillis > 0) {
+                    try {
+                        Thread.sleep(bootstrapDelayMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                respond(exchange, 200, "");
+            } else if (request.path.equals("/auth")) {
+                respond(exchange, 200, "{\"jwt\":\"mock-jwt\",\"refresh_token\":\"mock-refresh\"}");
+            } else if (request.path.startsWith("/testcatalog/") && "PUT".equals(request.method)) {
+                catalogs.put(request.path, request.getDecodedBody());
+                respond(exchange, 200, "{}");
+            } else if (request.path.startsWith("/testcatalog/") && "GET".equals(request.method)) {
+                // *** Like the server, the catalog stored for the stream is returned as it was sent
+                byte[] catalog = catalogs.get(request.path);
+                if (catalog == null) {
+                    respond(exchange, 404, "");
+                } else {
+                    respond(exchange, 200, catalog);
+                }
+            } else {
+                respond(exchange, 404, "");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        respond(exchange, status, body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] bytes) throws IOException {
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -10,7 +10,7 @@ import org.apache.maven.plugin.logging.Log;
 
 public class MockMavenLog implements Log {
 
-    private  List<String> logRecords = new ArrayList<String>();
+    private  List<String> logRecords = Collections.synchronizedList(new ArrayList<String>());
 
     public boolean isDebugEnabled = true ;
     public boolean isInfoEnabled = true ;
@@ -28,6 +28,27 @@ public class MockMavenLog implements Log {
         assertThat(matched).as("Log does not contain expected record '"+expectedRecord+"'").isTrue();
     }
 
+    public void assertContainsRecordStartingWith(String expectedPrefix) {
+        boolean matched = false;
+        synchronized (logRecords) {
+            for(String record: logRecords) {
+                if (record.startsWith(expectedPrefix)) {
+                    matched = true ;
+                    break;
+                }
+            }
+        }
+        assertThat(matched).as("Log does not contain a record starting '"+expectedPrefix+"'").isTrue();
+    }
+
+    public void assertDoesNotContainRecordStartingWith(String unexpectedPrefix) {
+        synchronized (logRecords) {
+            for(String record: logRecords) {
+                assertThat(record).as("Log contains unexpected record '"+record+"'").doesNotStartWith(unexpectedPrefix);
+            }
+        }
+    }
+
     @Override
     public boolean isDebugEnabled() {
         return this.isDebugEnabled() ;
@@ -0,0 +1,68 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import org.codehaus.plexus.logging.AbstractLogger;
+import org.codehaus.plexus.logging.Logger;
+
+/**
+ * A Plexus logger for the components Maven gives one to, recording into a MockMavenLog
+ */
+public class MockPlexusLogger extends AbstractLogger {
+
+    private final MockMavenLog log;
+
+    public MockPlexusLogger(MockMavenLog log) {
+        super(LEVEL_DEBUG, "mock");
+        this.log = log;
+    }
+
+    @Override
+    public void debug(String message, Throwable throwable) {
+        if (throwable == null) {
+            log.debug(message);
+        } else {
+            log.debug(message, throwable);
+        }
+    }
+
+    @Override
+    public void info(String message, Throwable throwable) {
+        if (throwable == null) {
+            log.info(message);
+        } else {
+            log.info(message, throwable);
+        }
+    }
+
+    @Override
+    public void warn(String message, Throwable throwable) {
+        if (throwable == null) {
+            log.warn(message);
+        } else {
+            log.warn(message, throwable);
+        }
+    }
+
+    @Override
+    public void error(String message, Throwable throwable) {
+        if (throwable == null) {
+            log.error(message);
+        } else {
+            log.error(message, throwable);
+        }
+    }
+
+    @Override
+    public void fatalError(String message, Throwable throwable) {
+        error(message, throwable);
+    }
+
+    @Override
+    public Logger getChildLogger(String name) {
+        return this;
+    }
+}
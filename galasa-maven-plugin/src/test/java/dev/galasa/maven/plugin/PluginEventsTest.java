@@ -0,0 +1,193 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class PluginEventsTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Before
+    public void checkFlightRecorder() {
+        Assume.assumeTrue("Java Flight Recorder is not available", PluginEvents.isAvailable());
+    }
+
+    private List<RecordedEvent> stop(Recording recording, String... names) throws Exception {
+        recording.stop();
+        Path file = temp.newFile("recording.jfr").toPath();
+        recording.dump(file);
+        recording.close();
+
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+            for (String name : names) {
+                if (event.getEventType().getName().equals(name)) {
+                    events.add(event);
+                }
+            }
+        }
+        return events;
+    }
+
+    @Test
+    public void TestNothingIsRecordedWhenTheEventIsDisabled() throws Exception {
+        Recording recording = new Recording();
+        recording.disable("dev.galasa.maven.plugin.Discovery");
+        recording.start();
+
+        assertThat(PluginEvents.begin(PluginEvents.Type.DISCOVERY, "dev.galasa.example")).isSameAs(PluginEvents.NONE);
+
+        assertThat(stop(recording, "dev.galasa.maven.plugin.Discovery")).isEmpty();
+    }
+
+    @Test
+    public void TestEmbeddedRepositoryRecordsEachBundle() throws Exception {
+        LargeProjectGenerator generator = new LargeProjectGenerator(temp.newFolder("project"));
+        generator.setBundles(2);
+        generator.setTestClassesPerBundle(1);
+        LargeProject project = generator.generate();
+
+        Recording recording = new Recording();
+        recording.enable("dev.galasa.maven.plugin.BundleAnalysis");
+        recording.start();
+
+        BuildObrEmbeddedRepository mojo = new BuildObrEmbeddedRepository();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project.createObrProject());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", temp.newFolder("target"));
+        ReflectionUtils.setVariableValueInObject(mojo, "hardLink", false);
+        mojo.execute();
+
+        List<RecordedEvent> analysed = stop(recording, "dev.galasa.maven.plugin.BundleAnalysis");
+        assertThat(analysed).extracting(event -> event.getString("artifactId"))
+                .containsExactlyInAnyOrder("dev.galasa.generated.bundle0", "dev.galasa.generated.bundle1");
+        for (RecordedEvent event : analysed) {
+            File bundle = project.getBundles().get(event.getString("artifactId").endsWith("0") ? 0 : 1);
+            assertThat(event.getLong("bytes")).isEqualTo(bundle.length());
+        }
+    }
+
+    @Test
+    public void TestBundleCopiesAreRecordedWithHowTheyWereCopied() throws Exception {
+        LargeProjectGenerator generator = new LargeProjectGenerator(temp.newFolder("project"));
+        generator.setBundles(2);
+        generator.setTestClassesPerBundle(1);
+        LargeProject project = generator.generate();
+
+        File output = temp.newFolder("target");
+        BuildObrEmbeddedRepository mojo = new BuildObrEmbeddedRepository();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project.createObrProject());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "hardLink", false);
+        mojo.execute();
+
+        // *** The second build finds the bundles already there
+        Recording recording = new Recording();
+        recording.enable("dev.galasa.maven.plugin.FileCopy");
+        recording.start();
+        mojo = new BuildObrEmbeddedRepository();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project.createObrProject());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "hardLink", false);
+        mojo.execute();
+
+        List<RecordedEvent> copies = stop(recording, "dev.galasa.maven.plugin.FileCopy");
+        assertThat(copies).hasSize(2);
+        for (RecordedEvent event : copies) {
+            assertThat(event.getString("artifactId")).startsWith("dev.galasa.generated.bundle");
+            assertThat(event.getString("detail")).isEqualTo("unchanged");
+            assertThat(event.getLong("bytes")).isZero();
+        }
+    }
+
+    @Test
+    public void TestEachDependencyMergeIsRecorded() throws Exception {
+        LargeProjectGenerator generator = new LargeProjectGenerator(temp.newFolder("project"));
+        generator.setBundles(3);
+        generator.setTestClassesPerBundle(2);
+        LargeProject project = generator.generate();
+
+        Recording recording = new Recording();
+        recording.enable("dev.galasa.maven.plugin.TestCatalogMerge");
+        recording.start();
+
+        MergeTestCatalogs mojo = new MergeTestCatalogs();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project.createObrProject());
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "repoSystem", project.createRepositorySystem());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", temp.newFolder("target"));
+        mojo.execute();
+
+        List<RecordedEvent> merges = stop(recording, "dev.galasa.maven.plugin.TestCatalogMerge");
+        assertThat(merges).hasSize(3);
+        for (RecordedEvent event : merges) {
+            assertThat(event.getString("artifactId")).startsWith("dev.galasa.generated.bundle");
+            assertThat(event.getString("detail")).isEqualTo("embedded");
+            assertThat(event.getLong("items")).isEqualTo(2);
+            assertThat(event.getLong("bytes")).isPositive();
+        }
+    }
+
+    @Test
+    public void TestEachDeployRequestIsRecordedWithItsStatus() throws Exception {
+        MavenProject project = new MavenProject();
+        project.setGroupId("dev.galasa.example");
+        project.setArtifactId("dev.galasa.example.obr");
+        project.setVersion("0.0.1");
+        project.setPackaging("galasa-obr");
+        File catalog = temp.newFile("testcatalog.json");
+        FileUtils.writeStringToFile(catalog, "{\"classes\":{}}", StandardCharsets.UTF_8);
+        new MockMavenProjectHelper().attachArtifact(project, "json", "testcatalog", catalog);
+
+        try (MockGalasaServer server = new MockGalasaServer()) {
+            server.failNextPuts(1, 503);
+
+            DeployTestCatalog command = new DeployTestCatalog();
+            command.setLog(new MockMavenLog());
+            command.project = project;
+            command.testStream = "myTestStream";
+            command.bootstrapUrl = server.getBootstrapUrl();
+            command.retryBackoff = 1;
+
+            Recording recording = new Recording();
+            recording.enable("dev.galasa.maven.plugin.Deploy");
+            recording.start();
+            command.execute();
+
+            List<RecordedEvent> deploys = stop(recording, "dev.galasa.maven.plugin.Deploy");
+            assertThat(deploys).extracting(event -> event.getInt("statusCode")).containsExactly(503, 200);
+            for (RecordedEvent event : deploys) {
+                assertThat(event.getString("artifactId")).isEqualTo("dev.galasa.example.obr");
+                assertThat(event.getString("detail")).endsWith("/testcatalog/myTestStream");
+                assertThat(event.getLong("bytes")).isEqualTo(catalog.length());
+            }
+        }
+    }
+}
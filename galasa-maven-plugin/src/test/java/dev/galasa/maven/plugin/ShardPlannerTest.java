@@ -0,0 +1,71 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ShardPlannerTest {
+
+    private ShardPlanner.Group group(String name, long duration) {
+        return new ShardPlanner.Group(name, Collections.singletonList(name), duration);
+    }
+
+    @Test
+    public void TestLongestGroupsArePlacedFirstOnTheLeastLoadedShard() {
+        List<ShardPlanner.Group> groups = Arrays.asList(group("a", 7), group("b", 5), group("c", 4), group("d", 3),
+                group("e", 1));
+
+        List<ShardPlanner.Shard> shards = ShardPlanner.plan(groups, 2);
+
+        assertThat(shards).hasSize(2);
+        assertThat(shards.get(0).getGroups()).extracting(ShardPlanner.Group::getName).containsExactly("a", "d");
+        assertThat(shards.get(1).getGroups()).extracting(ShardPlanner.Group::getName).containsExactly("b", "c", "e");
+        assertThat(shards.get(0).getDuration()).isEqualTo(10);
+        assertThat(shards.get(1).getDuration()).isEqualTo(10);
+        assertThat(ShardPlanner.lowerBound(groups, 2)).isEqualTo(10);
+    }
+
+    @Test
+    public void TestMoreShardsThanGroupsLeavesShardsEmpty() {
+        List<ShardPlanner.Shard> shards = ShardPlanner.plan(Arrays.asList(group("a", 2), group("b", 2)), 3);
+
+        assertThat(shards.get(2).getGroups()).isEmpty();
+        assertThat(ShardPlanner.lowerBound(Arrays.asList(group("a", 2), group("b", 9)), 3)).isEqualTo(9);
+    }
+
+    @Test
+    public void TestPlanIsWithinTheLptBound() {
+        List<ShardPlanner.Group> groups = new ArrayList<>();
+        long seed = 42;
+        for (int i = 0; i < 1000; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            groups.add(group("test" + i, 1 + ((seed >>> 33) % 600)));
+        }
+
+        List<ShardPlanner.Shard> shards = ShardPlanner.plan(groups, 16);
+
+        long longest = 0;
+        int placed = 0;
+        for (ShardPlanner.Shard shard : shards) {
+            longest = Math.max(longest, shard.getDuration());
+            placed += shard.getGroups().size();
+        }
+        assertThat(placed).isEqualTo(1000);
+        assertThat((double) longest).isLessThanOrEqualTo(ShardPlanner.lowerBound(groups, 16) * 4.0 / 3.0);
+    }
+
+    @Test
+    public void TestNoShardsIsRejected() {
+        assertThatThrownBy(() -> ShardPlanner.plan(Collections.emptyList(), 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
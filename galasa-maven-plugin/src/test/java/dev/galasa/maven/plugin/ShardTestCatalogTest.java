@@ -0,0 +1,121 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.ReflectionUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+public class ShardTestCatalogTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private static final String CATALOG = "{"
+            + "\"classes\":{"
+            + "\"bundle/dev.galasa.A\":{\"name\":\"dev.galasa.A\",\"bundle\":\"bundle\"},"
+            + "\"bundle/dev.galasa.B\":{\"name\":\"dev.galasa.B\",\"bundle\":\"bundle\"},"
+            + "\"bundle/dev.galasa.C\":{\"name\":\"dev.galasa.C\",\"bundle\":\"bundle\","
+            + "\"dependencies\":{\"classes\":[\"dev.galasa.Env\"],\"packages\":[]}},"
+            + "\"bundle/dev.galasa.D\":{\"name\":\"dev.galasa.D\",\"bundle\":\"bundle\","
+            + "\"dependencies\":{\"classes\":[\"dev.galasa.Env\"],\"packages\":[]}},"
+            + "\"bundle/dev.galasa.E\":{\"name\":\"dev.galasa.E\",\"bundle\":\"bundle\"}"
+            + "},"
+            + "\"sharedEnvironments\":{"
+            + "\"bundle/dev.galasa.Env\":{\"name\":\"dev.galasa.Env\",\"bundle\":\"bundle\"}"
+            + "}}";
+
+    private ShardTestCatalog createMojo(File output, int shards, File durations) throws Exception {
+        FileUtils.writeStringToFile(new File(output, "testcatalog.json"), CATALOG, "utf-8");
+
+        MavenProject project = new MavenProject();
+        project.setPackaging("galasa-obr");
+
+        ShardTestCatalog mojo = new ShardTestCatalog();
+        mojo.setLog(new MockMavenLog());
+        ReflectionUtils.setVariableValueInObject(mojo, "project", project);
+        ReflectionUtils.setVariableValueInObject(mojo, "projectHelper", new MockMavenProjectHelper());
+        ReflectionUtils.setVariableValueInObject(mojo, "outputDirectory", output);
+        ReflectionUtils.setVariableValueInObject(mojo, "shardCount", shards);
+        ReflectionUtils.setVariableValueInObject(mojo, "durationsFile", durations);
+        return mojo;
+    }
+
+    private JsonObject readPlan(File output) throws Exception {
+        String plan = FileUtils.readFileToString(new File(output, ShardTestCatalog.SHARDS_FILE), "utf-8");
+        return new Gson().fromJson(plan, JsonObject.class);
+    }
+
+    private List<String> classes(JsonObject shard) {
+        List<String> classes = new ArrayList<>();
+        for (JsonElement name : shard.getAsJsonArray("classes")) {
+            classes.add(name.getAsString());
+        }
+        return classes;
+    }
+
+    @Test
+    public void TestSharedEnvironmentTestsStayTogetherAndShardsBalance() throws Exception {
+        File output = temp.newFolder("output");
+        File durations = temp.newFile("durations.json");
+        FileUtils.writeStringToFile(durations, "{\"dev.galasa.A\":60,\"bundle/dev.galasa.B\":50,"
+                + "\"dev.galasa.C\":30,\"dev.galasa.D\":25,\"dev.galasa.E\":55}", "utf-8");
+
+        createMojo(output, 2, durations).execute();
+
+        JsonObject plan = readPlan(output);
+        assertThat(plan.get("tests").getAsInt()).isEqualTo(5);
+        assertThat(plan.get("estimatedTests").getAsInt()).isEqualTo(0);
+
+        JsonArray shards = plan.getAsJsonArray("plan");
+        assertThat(shards).hasSize(2);
+        JsonObject first = shards.get(0).getAsJsonObject();
+        JsonObject second = shards.get(1).getAsJsonObject();
+
+        // *** C and D share an environment, 55s together, so 60+50 and 55+55 is the best split
+        assertThat(classes(first)).containsExactly("bundle/dev.galasa.A", "bundle/dev.galasa.B");
+        assertThat(classes(second)).containsExactly("bundle/dev.galasa.C", "bundle/dev.galasa.D", "bundle/dev.galasa.E");
+        assertThat(second.getAsJsonArray("sharedEnvironments").get(0).getAsString()).isEqualTo("bundle/dev.galasa.Env");
+        assertThat(plan.get("duration").getAsDouble()).isEqualTo(110.0);
+        assertThat(plan.get("lowerBound").getAsDouble()).isEqualTo(110.0);
+    }
+
+    @Test
+    public void TestMissingDurationsUseTheMedian() throws Exception {
+        File output = temp.newFolder("output");
+        File durations = temp.newFile("durations.json");
+        FileUtils.writeStringToFile(durations, "{\"dev.galasa.A\":10,\"dev.galasa.B\":20,\"dev.galasa.E\":30}", "utf-8");
+
+        createMojo(output, 3, durations).execute();
+
+        JsonObject plan = readPlan(output);
+        assertThat(plan.get("estimatedTests").getAsInt()).isEqualTo(2);
+        assertThat(plan.get("assumedDuration").getAsDouble()).isEqualTo(20.0);
+    }
+
+    @Test
+    public void TestNoShardCountSkips() throws Exception {
+        File output = temp.newFolder("output");
+
+        createMojo(output, 0, null).execute();
+
+        assertThat(new File(output, ShardTestCatalog.SHARDS_FILE)).doesNotExist();
+    }
+}
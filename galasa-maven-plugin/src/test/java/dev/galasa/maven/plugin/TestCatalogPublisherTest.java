@@ -0,0 +1,96 @@
+/*
+ * Copyright contributors to the Galasa project
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package dev.galasa.maven.plugin;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TestCatalogPublisherTest {
+
+    private static final String CATALOG = "{\"classes\":{\"dev.galasa.example/dev.galasa.example.MyTest\":{}}}";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private TestCatalogArtifactMavenImpl createCatalog(boolean compress) throws Exception {
+        File file = temp.newFile("testcatalog.json");
+        FileUtils.writeStringToFile(file, CATALOG, StandardCharsets.UTF_8);
+        DefaultArtifact artifact = new DefaultArtifact("dev.galasa.example", "dev.galasa.example.obr", "0.0.1", null,
+                "json", "testcatalog", new DefaultArtifactHandler("json"));
+        artifact.setFile(file);
+        return new TestCatalogArtifactMavenImpl(artifact, new ErrorRaiserMavenImpl(new MockMavenLog()), compress);
+    }
+
+    @Test
+    public void TestBackoffDoublesWithJitterUpToTheMaximum() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(TestCatalogPublisher.backoffMillis(1, 1000, 30000, random)).isBetween(500L, 1000L);
+            assertThat(TestCatalogPublisher.backoffMillis(2, 1000, 30000, random)).isBetween(1000L, 2000L);
+            assertThat(TestCatalogPublisher.backoffMillis(5, 1000, 30000, random)).isBetween(8000L, 16000L);
+            assertThat(TestCatalogPublisher.backoffMillis(6, 1000, 30000, random)).isBetween(15000L, 30000L);
+            assertThat(TestCatalogPublisher.backoffMillis(200, 1000, 30000, random)).isBetween(15000L, 30000L);
+        }
+    }
+
+    @Test
+    public void TestBackoffIsSpreadOut() {
+        Random random = new Random(42);
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 0; i < 1000; i++) {
+            long backoff = TestCatalogPublisher.backoffMillis(3, 1000, 30000, random);
+            min = Math.min(min, backoff);
+            max = Math.max(max, backoff);
+        }
+        assertThat(min).isLessThan(2200);
+        assertThat(max).isGreaterThan(3800);
+    }
+
+    @Test
+    public void TestEntityContentCanBeReadRepeatedly() throws Exception {
+        TestCatalogPublisher.TestCatalogEntity entity = new TestCatalogPublisher.TestCatalogEntity(createCatalog(false));
+
+        for (int i = 0; i < 2; i++) {
+            try (InputStream content = entity.getContent()) {
+                assertThat(IOUtils.toString(content, StandardCharsets.UTF_8)).isEqualTo(CATALOG);
+            }
+        }
+        assertThat(entity.getContentLength()).isEqualTo(CATALOG.length());
+    }
+
+    @Test
+    public void TestCompressedEntityContentMatchesWhatIsWritten() throws Exception {
+        TestCatalogPublisher.TestCatalogEntity entity = new TestCatalogPublisher.TestCatalogEntity(createCatalog(true));
+
+        byte[] content;
+        try (InputStream in = entity.getContent()) {
+            content = IOUtils.toByteArray(in);
+        }
+        ByteArrayOutputStream written = new ByteArrayOutputStream();
+        entity.writeTo(written);
+
+        assertThat(written.toByteArray()).isEqualTo(content);
+        assertThat(entity.getContentEncoding().getValue()).isEqualTo("gzip");
+        try (InputStream in = new GZIPInputStream(entity.getContent())) {
+            assertThat(IOUtils.toString(in, StandardCharsets.UTF_8)).isEqualTo(CATALOG);
+        }
+    }
+}